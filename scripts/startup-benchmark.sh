@@ -0,0 +1,63 @@
+#!/usr/bin/env bash
+# Tiempo hasta la primera peticion atendida, con y sin AOT y archivo CDS.
+# Requiere antes: mvn -Pfast-start package
+# Uso: scripts/startup-benchmark.sh [repeticiones] [puerto]
+set -euo pipefail
+
+RUNS="${1:-5}"
+PORT="${2:-8081}"
+APP_DIR="$(cd "$(dirname "$0")/.." && pwd)/target/application"
+JAR="$(find "$APP_DIR" -maxdepth 1 -name 'microservicio04-*.jar' | head -n 1)"
+URL="http://localhost:${PORT}/actuator/health"
+
+if [[ -z "$JAR" ]]; then
+  echo "No extracted jar in $APP_DIR; run 'mvn -Pfast-start package' first" >&2
+  exit 1
+fi
+
+now_ms() {
+  date +%s%3N
+}
+
+# Arranca la aplicacion y mide hasta que responde cualquier codigo HTTP
+time_to_first_request() {
+  local start pid
+  start="$(now_ms)"
+  (cd "$APP_DIR" && exec java "$@" -Dserver.port="$PORT" -jar "$(basename "$JAR")") \
+    >/dev/null 2>&1 &
+  pid=$!
+  until [[ "$(curl -s -o /dev/null -w '%{http_code}' "$URL" || true)" != "000" ]]; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "The application exited before serving a request" >&2
+      return 1
+    fi
+    sleep 0.05
+  done
+  echo $(( $(now_ms) - start ))
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+}
+
+run_mode() {
+  local name="$1"
+  shift
+  local samples=()
+  for _ in $(seq "$RUNS"); do
+    samples+=("$(time_to_first_request "$@")")
+  done
+  local sorted
+  sorted="$(printf '%s\n' "${samples[@]}" | sort -n)"
+  printf '%-10s min=%6s ms  median=%6s ms  max=%6s ms\n' "$name" \
+    "$(echo "$sorted" | head -n 1)" \
+    "$(echo "$sorted" | sed -n "$(( (RUNS + 1) / 2 ))p")" \
+    "$(echo "$sorted" | tail -n 1)"
+}
+
+run_mode "baseline" -Xshare:auto
+run_mode "aot" -Dspring.aot.enabled=true
+if [[ -f "$APP_DIR/application.jsa" ]]; then
+  run_mode "cds" -XX:SharedArchiveFile=application.jsa
+  run_mode "aot+cds" -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true
+else
+  echo "No application.jsa in $APP_DIR; skipping the CDS runs" >&2
+fi
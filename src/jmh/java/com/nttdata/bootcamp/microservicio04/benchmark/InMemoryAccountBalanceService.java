@@ -0,0 +1,65 @@
+package com.nttdata.bootcamp.microservicio04.benchmark;
+
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.AccountBalance;
+import com.nttdata.bootcamp.microservicio04.service.AccountBalanceService;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import reactor.core.publisher.Mono;
+
+/** Proyeccion de saldos en memoria con la misma semantica de siembra que la de Mongo. */
+final class InMemoryAccountBalanceService implements AccountBalanceService {
+
+  private final Map<String, AccountBalance> balances = new ConcurrentHashMap<>();
+
+  @Override
+  public Mono<BigDecimal> findBalance(Account account) {
+    return Mono.fromSupplier(
+        () ->
+            balances
+                .compute(account.getId(), (id, current) -> seed(id, current, account))
+                .getBalance());
+  }
+
+  @Override
+  public Mono<AccountBalance> settled(String accountId) {
+    return Mono.justOrEmpty(balances.get(accountId));
+  }
+
+  @Override
+  public Mono<AccountBalance> apply(String accountId, BigDecimal delta) {
+    return Mono.fromSupplier(
+        () ->
+            balances.compute(
+                accountId,
+                (id, current) ->
+                    current == null
+                        ? balance(id, delta, true)
+                        : balance(id, current.getBalance().add(delta), current.getProvisional())));
+  }
+
+  @Override
+  public Mono<Long> rebuild() {
+    return Mono.just(0L);
+  }
+
+  void clear() {
+    balances.clear();
+  }
+
+  // Sin proyeccion o con una provisional se suma el saldo remoto
+  private static AccountBalance seed(String id, AccountBalance current, Account account) {
+    if (current == null) {
+      return balance(id, account.getAmountAvailable(), null);
+    }
+    return Boolean.TRUE.equals(current.getProvisional())
+        ? balance(id, current.getBalance().add(account.getAmountAvailable()), null)
+        : current;
+  }
+
+  private static AccountBalance balance(String id, BigDecimal balance, Boolean provisional) {
+    return new AccountBalance(id, balance, 0L, LocalDateTime.now(), provisional);
+  }
+}
@@ -0,0 +1,33 @@
+package com.nttdata.bootcamp.microservicio04.benchmark;
+
+import com.nttdata.bootcamp.microservicio04.service.TransactionCounterService;
+import java.time.YearMonth;
+import reactor.core.publisher.Mono;
+
+/**
+ * Contador que informa siempre los mismos movimientos en el mes. Con cero cada rama de validacion
+ * se mide en su camino de exito; con un valor en el limite se mide el rechazo por limite mensual.
+ */
+final class InMemoryTransactionCounterService implements TransactionCounterService {
+
+  private volatile long ownerTransactions;
+
+  void setOwnerTransactions(long ownerTransactions) {
+    this.ownerTransactions = ownerTransactions;
+  }
+
+  @Override
+  public Mono<Long> countOwnerTransactions(String accountId, YearMonth period) {
+    return Mono.just(ownerTransactions);
+  }
+
+  @Override
+  public Mono<Long> increment(String accountId, YearMonth period) {
+    return Mono.just(1L);
+  }
+
+  @Override
+  public Mono<Long> rebuild() {
+    return Mono.just(0L);
+  }
+}
@@ -0,0 +1,59 @@
+package com.nttdata.bootcamp.microservicio04.benchmark;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.repository.TransactionRepository;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** Sustituto en memoria del repositorio: solo las operaciones que usa el camino de escritura. */
+final class InMemoryTransactionRepository {
+
+  private final Map<String, Transaction> store = new ConcurrentHashMap<>();
+
+  private final TransactionRepository repository =
+      (TransactionRepository)
+          Proxy.newProxyInstance(
+              TransactionRepository.class.getClassLoader(),
+              new Class<?>[] {TransactionRepository.class},
+              (proxy, method, args) ->
+                  switch (method.getName()) {
+                    case "insert", "save", "saveAll" -> store(args[0]);
+                    case "findById" -> Mono.justOrEmpty(store.get((String) args[0]));
+                    case "count" -> Mono.just((long) store.size());
+                    case "toString" -> "InMemoryTransactionRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                  });
+
+  TransactionRepository repository() {
+    return repository;
+  }
+
+  int size() {
+    return store.size();
+  }
+
+  void clear() {
+    store.clear();
+  }
+
+  private Object store(Object argument) {
+    if (argument instanceof Iterable<?> transactions) {
+      return Flux.fromIterable(transactions).cast(Transaction.class).doOnNext(this::put);
+    }
+    Transaction transaction = (Transaction) argument;
+    return Mono.fromSupplier(
+        () -> {
+          put(transaction);
+          return transaction;
+        });
+  }
+
+  private void put(Transaction transaction) {
+    store.put(transaction.getId(), transaction);
+  }
+}
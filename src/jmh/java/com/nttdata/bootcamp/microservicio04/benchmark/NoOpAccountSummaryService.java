@@ -0,0 +1,27 @@
+package com.nttdata.bootcamp.microservicio04.benchmark;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.dto.MonthlyStatement;
+import com.nttdata.bootcamp.microservicio04.service.AccountSummaryService;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import reactor.core.publisher.Mono;
+
+/** Los resumenes mensuales son un upsert mas en Mongo; el benchmark no los mide. */
+final class NoOpAccountSummaryService implements AccountSummaryService {
+
+  @Override
+  public Mono<Void> record(Transaction transaction, BigDecimal delta, BigDecimal openingBalance) {
+    return Mono.empty();
+  }
+
+  @Override
+  public Mono<MonthlyStatement> findMonthlyStatement(String accountId, YearMonth month) {
+    return Mono.empty();
+  }
+
+  @Override
+  public Mono<Long> rebuild(String accountId) {
+    return Mono.just(0L);
+  }
+}
@@ -0,0 +1,25 @@
+package com.nttdata.bootcamp.microservicio04.benchmark;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.service.BalanceOutboxService;
+import java.util.List;
+import reactor.core.publisher.Mono;
+
+/** El outbox es un insert mas en Mongo y su despacho corre fuera de la peticion. */
+final class NoOpBalanceOutboxService implements BalanceOutboxService {
+
+  @Override
+  public Mono<Void> enqueue(List<Transaction> transactions) {
+    return Mono.empty();
+  }
+
+  @Override
+  public Mono<Long> dispatch() {
+    return Mono.just(0L);
+  }
+
+  @Override
+  public Mono<Long> replayDeadLetters() {
+    return Mono.just(0L);
+  }
+}
@@ -0,0 +1,20 @@
+package com.nttdata.bootcamp.microservicio04.benchmark;
+
+import com.nttdata.bootcamp.microservicio04.model.CreditBalance;
+import com.nttdata.bootcamp.microservicio04.service.CreditBalanceService;
+import java.math.BigDecimal;
+import reactor.core.publisher.Mono;
+
+/** La proyeccion de creditos es un upsert mas en Mongo; el benchmark no la mide. */
+final class NoOpCreditBalanceService implements CreditBalanceService {
+
+  @Override
+  public Mono<CreditBalance> settled(String creditId) {
+    return Mono.empty();
+  }
+
+  @Override
+  public Mono<CreditBalance> apply(String creditId, BigDecimal delta) {
+    return Mono.empty();
+  }
+}
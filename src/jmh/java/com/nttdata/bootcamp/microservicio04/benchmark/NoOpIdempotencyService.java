@@ -0,0 +1,21 @@
+package com.nttdata.bootcamp.microservicio04.benchmark;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.service.IdempotencyService;
+import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
+
+/** Las creaciones del benchmark no llevan Idempotency-Key. */
+final class NoOpIdempotencyService implements IdempotencyService {
+
+  @Override
+  public Mono<Transaction> execute(
+      String idempotencyKey, Transaction request, Supplier<Mono<Transaction>> action) {
+    return Mono.defer(action);
+  }
+
+  @Override
+  public Mono<Void> complete(Transaction response) {
+    return Mono.empty();
+  }
+}
@@ -0,0 +1,36 @@
+package com.nttdata.bootcamp.microservicio04.benchmark;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.service.TransactionArchiveService;
+import com.nttdata.bootcamp.microservicio04.utils.PageCursor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** El camino de escritura no lee el archivo; el benchmark no lo mide. */
+final class NoOpTransactionArchiveService implements TransactionArchiveService {
+
+  @Override
+  public Mono<Long> archive() {
+    return Mono.just(0L);
+  }
+
+  @Override
+  public Mono<Transaction> findById(String transactionId) {
+    return Mono.empty();
+  }
+
+  @Override
+  public Flux<Transaction> findAll() {
+    return Flux.empty();
+  }
+
+  @Override
+  public Flux<Transaction> findByAccountId(String accountId, PageCursor after) {
+    return Flux.empty();
+  }
+
+  @Override
+  public Flux<Transaction> findByCreditId(String creditId, PageCursor after) {
+    return Flux.empty();
+  }
+}
@@ -0,0 +1,46 @@
+package com.nttdata.bootcamp.microservicio04.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.function.Function;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Intercambio HTTP en proceso para WebClient: responde GET y PATCH sobre {@code /{id}} con el
+ * recurso que devuelva {@code resourceById}, sin red ni servidor.
+ */
+final class StubExchangeFunction implements ExchangeFunction {
+
+  private final ObjectMapper objectMapper;
+  private final Function<String, Object> resourceById;
+
+  StubExchangeFunction(ObjectMapper objectMapper, Function<String, Object> resourceById) {
+    this.objectMapper = objectMapper;
+    this.resourceById = resourceById;
+  }
+
+  @Override
+  public Mono<ClientResponse> exchange(ClientRequest request) {
+    String path = request.url().getPath();
+    String id = path.substring(path.lastIndexOf('/') + 1);
+    Object resource = resourceById.apply(id);
+    if (resource == null) {
+      return Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build());
+    }
+    try {
+      return Mono.just(
+          ClientResponse.create(HttpStatus.OK)
+              .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+              .body(objectMapper.writeValueAsString(resource))
+              .build());
+    } catch (JsonProcessingException e) {
+      return Mono.error(e);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.nttdata.bootcamp.microservicio04.benchmark;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.utils.TransactionFields;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+/** Compara la seleccion de producto y el PATCH parcial reflexivos con la tabla de accesores. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransactionFieldAccessBenchmark {
+
+  private Transaction partial;
+
+  @Setup
+  public void setUp() {
+    partial = new Transaction();
+    partial.setAccountId("acc-1");
+    partial.setAmount(new BigDecimal("150.00"));
+    partial.setTransactionType(TransactionType.DEPOSIT);
+    partial.setActive(true);
+  }
+
+  @Benchmark
+  public boolean selectProductReflective() {
+    return isFieldNonNull(partial, "accountId") ^ isFieldNonNull(partial, "creditId");
+  }
+
+  @Benchmark
+  public boolean selectProductDirect() {
+    return (partial.getAccountId() != null) ^ (partial.getCreditId() != null);
+  }
+
+  @Benchmark
+  public Transaction patchReflective() {
+    Transaction existing = existing();
+    for (Field field : partial.getClass().getDeclaredFields()) {
+      if ("id".equals(field.getName())) {
+        continue;
+      }
+      field.setAccessible(true);
+      try {
+        Object value = field.get(partial);
+        if (value != null) {
+          ReflectionUtils.setField(field, existing, value);
+        }
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return existing;
+  }
+
+  @Benchmark
+  public Transaction patchAccessorTable() {
+    Transaction existing = existing();
+    TransactionFields.copyNonNullFields(partial, existing);
+    return existing;
+  }
+
+  private Transaction existing() {
+    Transaction existing = new Transaction();
+    existing.setId("tx-1");
+    existing.setAmount(BigDecimal.TEN);
+    existing.setCreated(LocalDate.of(2024, 1, 15));
+    existing.setTransactionType(TransactionType.WITHDRAWAL);
+    existing.setAccountId("acc-0");
+    existing.setOwnerTransaction(true);
+    existing.setActive(false);
+    return existing;
+  }
+
+  private static boolean isFieldNonNull(Transaction transaction, String fieldName) {
+    try {
+      Field field = Transaction.class.getDeclaredField(fieldName);
+      field.setAccessible(true);
+      return field.get(transaction) != null;
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
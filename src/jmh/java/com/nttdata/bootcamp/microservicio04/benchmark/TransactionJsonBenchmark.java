@@ -0,0 +1,58 @@
+package com.nttdata.bootcamp.microservicio04.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/** Serializacion JSON de {@link Transaction} con el ObjectMapper que construye Spring Boot. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionJsonBenchmark {
+
+  private ObjectMapper objectMapper;
+  private Transaction transaction;
+  private byte[] json;
+
+  @Setup
+  public void setUp() throws IOException {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    transaction = new Transaction();
+    transaction.setAmount(new BigDecimal("-125.75"));
+    transaction.setCreated(LocalDate.of(2024, 3, 31));
+    transaction.setTransactionType(TransactionType.BANK_TRANSFER);
+    transaction.setAccountId("6f1c2d8e-8d2b-4a57-9d63-3c1f1b0a9e21");
+    transaction.setDestinationAccountId("0b7e9a52-61a4-4f0e-b3e5-7f2d9c4e1a88");
+    transaction.setOwnerTransaction(true);
+    transaction.setActive(true);
+    json = objectMapper.writeValueAsBytes(transaction);
+  }
+
+  @Benchmark
+  public byte[] serialize() throws IOException {
+    return objectMapper.writeValueAsBytes(transaction);
+  }
+
+  @Benchmark
+  public Transaction deserialize() throws IOException {
+    return objectMapper.readValue(json, Transaction.class);
+  }
+}
@@ -0,0 +1,242 @@
+package com.nttdata.bootcamp.microservicio04.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nttdata.bootcamp.microservicio04.client.AccountClient;
+import com.nttdata.bootcamp.microservicio04.client.CreditClient;
+import com.nttdata.bootcamp.microservicio04.client.DownstreamGuard;
+import com.nttdata.bootcamp.microservicio04.client.DownstreamMetrics;
+import com.nttdata.bootcamp.microservicio04.config.MongoTransactions;
+import com.nttdata.bootcamp.microservicio04.config.ResilienceProperties;
+import com.nttdata.bootcamp.microservicio04.config.TransactionRuleProperties;
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.AccountType;
+import com.nttdata.bootcamp.microservicio04.model.Credit;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.service.impl.TransactionLedgerServiceImpl;
+import com.nttdata.bootcamp.microservicio04.service.impl.TransactionMetrics;
+import com.nttdata.bootcamp.microservicio04.service.impl.TransactionServiceImpl;
+import com.nttdata.bootcamp.microservicio04.service.impl.TransactionValidationPipeline;
+import com.nttdata.bootcamp.microservicio04.utils.KeyedSequencer;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Mide {@link TransactionServiceImpl#create} por cada rama de tipo de cuenta y de transaccion, con
+ * WebClient sobre un intercambio en proceso y el repositorio en memoria. Los parametros de cada
+ * escenario viven en su propio estado, asi JMH solo recorre la matriz de los benchmarks que lo
+ * usan: el de credito corre una vez por estado de cache, no por cada tipo de cuenta.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionServiceBenchmark {
+
+  private static final BigDecimal FUNDED = new BigDecimal("1000000000.00");
+
+  @Param({"true", "false"})
+  public boolean warmCache;
+
+  // Cuenta que devuelve el servicio stub; la fija el escenario de cada benchmark
+  private volatile AccountType accountType = AccountType.SAVING;
+  private volatile BigDecimal amountAvailable = FUNDED;
+
+  private InMemoryTransactionRepository repository;
+  private InMemoryAccountBalanceService balanceService;
+  private InMemoryTransactionCounterService counterService;
+  private TransactionServiceImpl transactionService;
+
+  /** Todas las ramas de exito por tipo de cuenta y de transaccion. */
+  @State(Scope.Benchmark)
+  public static class AccountScenario {
+
+    @Param({"SAVING", "CURRENT", "FIXED_TERM"})
+    public AccountType accountType;
+
+    @Param({"DEPOSIT", "WITHDRAWAL", "OPENING_AMOUNT", "BANK_TRANSFER"})
+    public TransactionType transactionType;
+
+    @Setup(Level.Trial)
+    public void setUp(TransactionServiceBenchmark benchmark) {
+      benchmark.configure(accountType, FUNDED, 0L);
+    }
+  }
+
+  /** Retiros de ahorro que la validacion rechaza, por saldo o por limite mensual. */
+  @State(Scope.Benchmark)
+  public static class RejectionScenario {
+
+    @Param({"sufficient-balance", "monthly-transactions"})
+    public String rule;
+
+    @Setup(Level.Trial)
+    public void setUp(TransactionServiceBenchmark benchmark) {
+      if ("sufficient-balance".equals(rule)) {
+        benchmark.configure(AccountType.SAVING, BigDecimal.ZERO, 0L);
+      } else {
+        benchmark.configure(AccountType.SAVING, FUNDED, Integer.MAX_VALUE);
+      }
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    repository = new InMemoryTransactionRepository();
+    balanceService = new InMemoryAccountBalanceService();
+    counterService = new InMemoryTransactionCounterService();
+    AsyncCache<String, Account> accountCache = cache();
+    AsyncCache<String, Credit> creditCache = cache();
+
+    WebClient webClientAccount =
+        WebClient.builder()
+            .baseUrl("http://account.stub/")
+            .exchangeFunction(new StubExchangeFunction(objectMapper, this::account))
+            .build();
+    WebClient webClientCredit =
+        WebClient.builder()
+            .baseUrl("http://credit.stub/")
+            .exchangeFunction(new StubExchangeFunction(objectMapper, this::credit))
+            .build();
+    DownstreamMetrics downstreamMetrics = new DownstreamMetrics(meterRegistry);
+    AccountClient accountClient =
+        new AccountClient(
+            webClientAccount, accountCache, downstreamMetrics, guard("account", meterRegistry));
+    CreditClient creditClient =
+        new CreditClient(
+            webClientCredit, creditCache, downstreamMetrics, guard("credit", meterRegistry));
+
+    transactionService =
+        new TransactionServiceImpl(
+            repository.repository(),
+            new TransactionValidationPipeline(
+                counterService, balanceService, new TransactionRuleProperties(), meterRegistry),
+            new TransactionLedgerServiceImpl(
+                repository.repository(),
+                counterService,
+                balanceService,
+                new NoOpCreditBalanceService(),
+                new NoOpAccountSummaryService(),
+                new NoOpBalanceOutboxService(),
+                new NoOpIdempotencyService(),
+                new MongoTransactions(null, "false")),
+            accountClient,
+            creditClient,
+            new TransactionMetrics(meterRegistry),
+            new KeyedSequencer("write", Duration.ofSeconds(10), meterRegistry),
+            new NoOpTransactionArchiveService());
+  }
+
+  @TearDown(Level.Iteration)
+  public void clearRepository() {
+    repository.clear();
+    balanceService.clear();
+  }
+
+  @Benchmark
+  public Transaction createAccountTransaction(AccountScenario scenario) {
+    Transaction transaction = new Transaction();
+    transaction.setAccountId("acc-origin");
+    transaction.setAmount(new BigDecimal("25.50"));
+    transaction.setTransactionType(scenario.transactionType);
+    if (TransactionType.BANK_TRANSFER.equals(scenario.transactionType)) {
+      transaction.setDestinationAccountId("acc-destination");
+    }
+    return transactionService.create(transaction).block();
+  }
+
+  // Saldo insuficiente termina vacio y el limite mensual con error; ambos se devuelven
+  @Benchmark
+  public Object rejectAccountTransaction(RejectionScenario scenario) {
+    Transaction transaction = new Transaction();
+    transaction.setAccountId("acc-origin");
+    transaction.setAmount(new BigDecimal("25.50"));
+    transaction.setTransactionType(TransactionType.WITHDRAWAL);
+    return transactionService
+        .create(transaction)
+        .cast(Object.class)
+        .onErrorResume(Mono::just)
+        .block();
+  }
+
+  @Benchmark
+  public Transaction createCreditTransaction() {
+    Transaction transaction = new Transaction();
+    transaction.setCreditId("cred-1");
+    transaction.setAmount(new BigDecimal("25.50"));
+    transaction.setTransactionType(TransactionType.DEPOSIT);
+    return transactionService.create(transaction).block();
+  }
+
+  private void configure(AccountType accountType, BigDecimal amountAvailable, long monthly) {
+    this.accountType = accountType;
+    this.amountAvailable = amountAvailable;
+    counterService.setOwnerTransactions(monthly);
+  }
+
+  // Con cache fria no se guarda nada: cada lectura llega al stub sin invalidar entre
+  // invocaciones, lo que con Level.Invocation sumaria su propio coste a la medida
+  private <T> AsyncCache<String, T> cache() {
+    return warmCache
+        ? Caffeine.newBuilder().buildAsync()
+        : Caffeine.newBuilder().maximumSize(0).executor(Runnable::run).buildAsync();
+  }
+
+  // Valores por defecto de resilience4j; el hedging queda apagado
+  private DownstreamGuard guard(String service, MeterRegistry meterRegistry) {
+    return new DownstreamGuard(
+        service,
+        CircuitBreaker.ofDefaults(service),
+        Bulkhead.ofDefaults(service),
+        new ResilienceProperties.Hedge(),
+        meterRegistry);
+  }
+
+  private Account account(String id) {
+    Account account = new Account();
+    account.setId(id);
+    account.setAccountNumber("191-" + id);
+    account.setCustomer("cus-1");
+    account.setAccountType(accountType);
+    account.setCurrency("PEN");
+    account.setAmountAvailable(amountAvailable);
+    account.setTransactionLimit(Integer.MAX_VALUE);
+    account.setCommissionRate(BigDecimal.ONE);
+    account.setActive(true);
+    account.setDateAllowedTransaction(LocalDate.now().getDayOfMonth());
+    return account;
+  }
+
+  private Credit credit(String id) {
+    return new Credit(
+        id, "cus-1", "PEN", new BigDecimal("50000.00"), new BigDecimal("50000.00"), true);
+  }
+}
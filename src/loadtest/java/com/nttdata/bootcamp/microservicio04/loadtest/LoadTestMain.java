@@ -0,0 +1,82 @@
+package com.nttdata.bootcamp.microservicio04.loadtest;
+
+import com.nttdata.bootcamp.microservicio04.Microservicio04Application;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.containers.MongoDBContainer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Prueba de carga local de {@code POST api/v1/transactions}: levanta Mongo en un contenedor, los
+ * servicios de cuentas y creditos como stubs en proceso y la aplicacion real apuntando a ambos;
+ * despues recorre las tasas de llegada configuradas y escribe los resultados.
+ *
+ * <p>mvn -Ploadtest test-compile exec:exec@run-loadtest -Dloadtest.args="-Dloadtest.rates=100,200"
+ */
+public final class LoadTestMain {
+
+  private static final Logger log = LoggerFactory.getLogger(LoadTestMain.class);
+
+  private LoadTestMain() {}
+
+  public static void main(String[] args) {
+    LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+    try (MongoDBContainer mongo = new MongoDBContainer(settings.mongoImage());
+        StubDownstreamServer stubs = new StubDownstreamServer(settings)) {
+      mongo.start();
+      // Sin servidor de configuracion ni Eureka: todo lo necesario va en propiedades de sistema,
+      // que tambien ve el contexto de bootstrap
+      Map.of(
+              "spring.cloud.config.enabled", "false",
+              "eureka.client.enabled", "false",
+              "spring.data.mongodb.uri", mongo.getReplicaSetUrl("transactions"),
+              "application.endpoints.url.account", stubs.baseUrl(),
+              "application.endpoints.url.credit", stubs.baseUrl(),
+              "server.port", "0",
+              "logging.level.root", "WARN",
+              "logging.level.com.nttdata.bootcamp.microservicio04.loadtest", "INFO")
+          .forEach(System::setProperty);
+
+      try (ConfigurableApplicationContext context =
+          new SpringApplicationBuilder(Microservicio04Application.class).run(args)) {
+        String port = context.getEnvironment().getProperty("local.server.port");
+        // El pool admite tantas conexiones y esperas como peticiones en vuelo permite el
+        // generador; con el pool por defecto las esperas se medirian como latencia del servicio
+        ConnectionProvider connections =
+            ConnectionProvider.builder("loadtest")
+                .maxConnections(settings.maxInFlight())
+                .pendingAcquireMaxCount(settings.maxInFlight())
+                .build();
+        WebClient webClient =
+            WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+        OpenModelLoadGenerator generator =
+            new OpenModelLoadGenerator(
+                webClient,
+                TransactionMix.parse(settings.mix(), stubs),
+                settings.maxInFlight(),
+                settings.requestTimeout());
+
+        // Calentamiento a la primera tasa, fuera de los resultados
+        generator.run(settings.rates().get(0), settings.warmup());
+
+        LoadTestReport report = new LoadTestReport(settings.output(), settings);
+        for (int rate : settings.rates()) {
+          log.info("Running {} req/s for {}", rate, settings.stageDuration());
+          report.write(generator.run(rate, settings.stageDuration()));
+        }
+        report.close();
+        connections.dispose();
+        log.info("Load test results written to {}", report.directory().toAbsolutePath());
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package com.nttdata.bootcamp.microservicio04.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+/**
+ * Escribe los resultados de una ejecucion en su propio directorio: un {@code .hgrm} por etapa y
+ * entrada de la mezcla (distribucion de percentiles en ms, legible por el plotter de
+ * HdrHistogram), un {@code .hlog} con los histogramas completos para combinarlos o compararlos
+ * despues, y {@code summary.csv} con throughput y percentiles.
+ */
+final class LoadTestReport {
+
+  private static final String ALL = "ALL";
+  private static final double MICROS_PER_MILLI = 1000.0;
+
+  private final Path directory;
+  private final PrintStream summary;
+  private final HistogramLogWriter log;
+
+  LoadTestReport(Path output, LoadTestSettings settings) {
+    try {
+      this.directory = Files.createDirectories(output.resolve(runId()));
+      Files.writeString(directory.resolve("settings.txt"), settings.toString());
+      this.summary = new PrintStream(Files.newOutputStream(directory.resolve("summary.csv")));
+      this.log =
+          new HistogramLogWriter(
+              new PrintStream(Files.newOutputStream(directory.resolve("latency.hlog"))));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    summary.println(
+        "rate,entry,ok,errors,dropped,throughput_ok_per_s,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+    long startMillis = System.currentTimeMillis();
+    log.outputLogFormatVersion();
+    log.outputStartTime(startMillis);
+    log.setBaseTime(startMillis);
+    log.outputLegend();
+  }
+
+  Path directory() {
+    return directory;
+  }
+
+  void write(OpenModelLoadGenerator.StageResult result) {
+    Histogram all = new Histogram(3);
+    Histogram allErrors = new Histogram(3);
+    long allDropped = 0;
+    for (Map.Entry<String, OpenModelLoadGenerator.EntryStats> entry : result.stats().entrySet()) {
+      OpenModelLoadGenerator.EntryStats stats = entry.getValue();
+      Histogram latency = stats.latency.copy();
+      Histogram errors = stats.errorLatency.copy();
+      all.add(latency);
+      allErrors.add(errors);
+      allDropped += stats.dropped.get();
+      writeEntry(result, entry.getKey(), latency, errors, stats.dropped.get());
+    }
+    writeEntry(result, ALL, all, allErrors, allDropped);
+    summary.flush();
+  }
+
+  private void writeEntry(
+      OpenModelLoadGenerator.StageResult result,
+      String name,
+      Histogram latency,
+      Histogram errors,
+      long dropped) {
+    String tag = "rate-" + result.ratePerSecond() + "_" + name;
+    double seconds = result.elapsedNanos() / 1e9;
+    summary.printf(
+        Locale.ROOT,
+        "%d,%s,%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+        result.ratePerSecond(),
+        name,
+        latency.getTotalCount(),
+        errors.getTotalCount(),
+        dropped,
+        latency.getTotalCount() / seconds,
+        millis(latency, 50),
+        millis(latency, 90),
+        millis(latency, 99),
+        millis(latency, 99.9),
+        latency.getMaxValue() / MICROS_PER_MILLI);
+    long endMillis = System.currentTimeMillis();
+    latency.setStartTimeStamp(endMillis - result.elapsedNanos() / 1_000_000);
+    latency.setEndTimeStamp(endMillis);
+    latency.setTag(tag);
+    log.outputIntervalHistogram(latency);
+    try (PrintStream hgrm =
+        new PrintStream(Files.newOutputStream(directory.resolve(tag + ".hgrm")))) {
+      latency.outputPercentileDistribution(hgrm, MICROS_PER_MILLI);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static double millis(Histogram histogram, double percentile) {
+    return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+  }
+
+  void close() {
+    summary.close();
+    log.close();
+  }
+
+  private static String runId() {
+    return Instant.now().toString().replace(':', '-');
+  }
+}
@@ -0,0 +1,50 @@
+package com.nttdata.bootcamp.microservicio04.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/** Parametros de la prueba de carga, leidos de propiedades de sistema {@code loadtest.*}. */
+record LoadTestSettings(
+    List<Integer> rates,
+    Duration stageDuration,
+    Duration warmup,
+    String mix,
+    int accountsPerType,
+    int credits,
+    int maxInFlight,
+    Duration requestTimeout,
+    Duration stubLatency,
+    Duration stubJitter,
+    double stubErrorRate,
+    String mongoImage,
+    Path output) {
+
+  static LoadTestSettings fromSystemProperties() {
+    return new LoadTestSettings(
+        Arrays.stream(property("rates", "50,100,200").split(","))
+            .map(String::trim)
+            .map(Integer::parseInt)
+            .toList(),
+        Duration.parse(property("stage-duration", "PT30S")),
+        Duration.parse(property("warmup", "PT10S")),
+        property(
+            "mix",
+            "SAVING.DEPOSIT:30,SAVING.WITHDRAWAL:20,CURRENT.DEPOSIT:20,"
+                + "CURRENT.BANK_TRANSFER:20,CREDIT.DEPOSIT:10"),
+        Integer.parseInt(property("accounts-per-type", "1000")),
+        Integer.parseInt(property("credits", "1000")),
+        Integer.parseInt(property("max-in-flight", "2000")),
+        Duration.parse(property("request-timeout", "PT10S")),
+        Duration.parse(property("stub.latency", "PT0.02S")),
+        Duration.parse(property("stub.jitter", "PT0.01S")),
+        Double.parseDouble(property("stub.error-rate", "0")),
+        property("mongo-image", "mongo:7.0"),
+        Path.of(property("output", "target/loadtest")));
+  }
+
+  private static String property(String name, String defaultValue) {
+    return System.getProperty("loadtest." + name, defaultValue);
+  }
+}
@@ -0,0 +1,97 @@
+package com.nttdata.bootcamp.microservicio04.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Generador de carga de modelo abierto: las llegadas siguen un calendario fijo a la tasa pedida,
+ * sin esperar a que terminen las peticiones anteriores. La latencia se mide desde el instante
+ * previsto de cada llegada, asi un retraso del propio generador cuenta como espera del cliente y
+ * no se pierde (coordinated omission).
+ */
+final class OpenModelLoadGenerator {
+
+  // Microsegundos; hasta 60 s con tres cifras significativas
+  private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+  private static final int SIGNIFICANT_DIGITS = 3;
+
+  private final WebClient webClient;
+  private final TransactionMix mix;
+  private final int maxInFlight;
+  private final Duration requestTimeout;
+
+  OpenModelLoadGenerator(
+      WebClient webClient, TransactionMix mix, int maxInFlight, Duration requestTimeout) {
+    this.webClient = webClient;
+    this.mix = mix;
+    this.maxInFlight = maxInFlight;
+    this.requestTimeout = requestTimeout;
+  }
+
+  StageResult run(int ratePerSecond, Duration duration) {
+    Map<String, EntryStats> stats = new LinkedHashMap<>();
+    mix.names().forEach(name -> stats.put(name, new EntryStats()));
+    AtomicLong inFlight = new AtomicLong();
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+    long durationNanos = duration.toNanos();
+    long start = System.nanoTime();
+
+    for (long arrival = 0; arrival * intervalNanos < durationNanos; arrival++) {
+      long intended = start + arrival * intervalNanos;
+      long wait = intended - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      TransactionMix.Entry entry = mix.next();
+      EntryStats entryStats = stats.get(entry.name());
+      // Por encima del limite la llegada se descarta y se cuenta; el calendario no se desplaza
+      if (inFlight.get() >= maxInFlight) {
+        entryStats.dropped.incrementAndGet();
+        continue;
+      }
+      inFlight.incrementAndGet();
+      webClient
+          .post()
+          .uri("/api/v1/transactions")
+          .bodyValue(entry.request())
+          .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()))
+          .timeout(requestTimeout)
+          .doFinally(signal -> inFlight.decrementAndGet())
+          .subscribe(
+              status -> entryStats.record(intended, status.is2xxSuccessful()),
+              error -> entryStats.record(intended, false));
+    }
+
+    // Las peticiones pendientes terminan o agotan su timeout
+    long drainDeadline = System.nanoTime() + requestTimeout.toNanos();
+    while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    return new StageResult(ratePerSecond, System.nanoTime() - start, stats);
+  }
+
+  static final class EntryStats {
+
+    final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    final Histogram errorLatency =
+        new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    final AtomicLong dropped = new AtomicLong();
+
+    private void record(long intended, boolean success) {
+      long micros =
+          Math.min(
+              TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended),
+              HIGHEST_TRACKABLE_MICROS);
+      (success ? latency : errorLatency).recordValue(micros);
+    }
+  }
+
+  record StageResult(int ratePerSecond, long elapsedNanos, Map<String, EntryStats> stats) {}
+}
@@ -0,0 +1,188 @@
+package com.nttdata.bootcamp.microservicio04.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.AccountType;
+import com.nttdata.bootcamp.microservicio04.model.Credit;
+import com.nttdata.bootcamp.microservicio04.model.dto.AccountUpdateDto;
+import com.nttdata.bootcamp.microservicio04.model.dto.CreditUpdateDto;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+/**
+ * Servidor HTTP en proceso que sustituye a los servicios de cuentas y creditos: responde GET y
+ * PATCH de {@code v1/accounts/{id}} y {@code v1/credits/{id}} con una latencia fija mas un jitter
+ * aleatorio, y devuelve 503 con la probabilidad configurada.
+ */
+final class StubDownstreamServer implements AutoCloseable {
+
+  private static final String ACCOUNTS = "/v1/accounts/";
+  private static final String CREDITS = "/v1/credits/";
+  private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000000000");
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+  private final Map<String, Credit> credits = new ConcurrentHashMap<>();
+  private final Duration latency;
+  private final Duration jitter;
+  private final double errorRate;
+  private final DisposableServer server;
+
+  StubDownstreamServer(LoadTestSettings settings) {
+    this.latency = settings.stubLatency();
+    this.jitter = settings.stubJitter();
+    this.errorRate = settings.stubErrorRate();
+    seed(settings.accountsPerType(), settings.credits());
+    this.server = HttpServer.create().port(0).handle(this::handle).bindNow();
+  }
+
+  String baseUrl() {
+    return "http://localhost:" + server.port() + "/";
+  }
+
+  List<String> accountIds(AccountType accountType) {
+    List<String> ids = new ArrayList<>();
+    accounts.values().stream()
+        .filter(account -> accountType.equals(account.getAccountType()))
+        .forEach(account -> ids.add(account.getId()));
+    return ids;
+  }
+
+  List<String> creditIds() {
+    return List.copyOf(credits.keySet());
+  }
+
+  private void seed(int accountsPerType, int creditCount) {
+    // Limites holgados: la prueba mide la ruta de escritura, no los rechazos de las reglas
+    int today = LocalDate.now().getDayOfMonth();
+    for (AccountType accountType : AccountType.values()) {
+      for (int i = 0; i < accountsPerType; i++) {
+        String id = accountType.name().toLowerCase() + "-" + i;
+        Account account = new Account();
+        account.setId(id);
+        account.setAccountNumber(id);
+        account.setCustomer("customer-" + i);
+        account.setAccountType(accountType);
+        account.setCurrency("PEN");
+        account.setAmountAvailable(OPENING_BALANCE);
+        account.setTransactionLimit(Integer.MAX_VALUE);
+        account.setCommissionRate(BigDecimal.ZERO);
+        account.setActive(true);
+        account.setDateAllowedTransaction(today);
+        accounts.put(id, account);
+      }
+    }
+    for (int i = 0; i < creditCount; i++) {
+      String id = "credit-" + i;
+      credits.put(
+          id, new Credit(id, "customer-" + i, "PEN", OPENING_BALANCE, OPENING_BALANCE, true));
+    }
+  }
+
+  private Publisher<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+    String path = request.fullPath();
+    Mono<Object> resource;
+    if (path.startsWith(ACCOUNTS)) {
+      String id = path.substring(ACCOUNTS.length());
+      resource =
+          HttpMethod.PATCH.equals(request.method())
+              ? request
+                  .receive()
+                  .aggregate()
+                  .asString()
+                  .map(body -> read(body, AccountUpdateDto.class))
+                  .mapNotNull(
+                      update ->
+                          accounts.computeIfPresent(
+                              id,
+                              (key, account) -> {
+                                account.setAmountAvailable(update.getAmountAvailable());
+                                return account;
+                              }))
+              : Mono.justOrEmpty(accounts.get(id));
+    } else if (path.startsWith(CREDITS)) {
+      String id = path.substring(CREDITS.length());
+      resource =
+          HttpMethod.PATCH.equals(request.method())
+              ? request
+                  .receive()
+                  .aggregate()
+                  .asString()
+                  .map(body -> read(body, CreditUpdateDto.class))
+                  .mapNotNull(
+                      update ->
+                          credits.computeIfPresent(
+                              id,
+                              (key, credit) -> {
+                                credit.setAmountAvailable(update.getAmountAvailable());
+                                return credit;
+                              }))
+              : Mono.justOrEmpty(credits.get(id));
+    } else {
+      return response.status(HttpResponseStatus.NOT_FOUND).send();
+    }
+
+    return Mono.delay(delay())
+        .then(
+            Mono.defer(
+                () -> {
+                  if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                    return response.status(HttpResponseStatus.SERVICE_UNAVAILABLE).send().then();
+                  }
+                  return resource
+                      .flatMap(
+                          body ->
+                              response
+                                  .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                  .sendString(Mono.just(write(body)))
+                                  .then())
+                      .switchIfEmpty(
+                          Mono.defer(
+                              () -> response.status(HttpResponseStatus.NOT_FOUND).send().then()));
+                }));
+  }
+
+  private Duration delay() {
+    long jitterNanos = jitter.toNanos();
+    return jitterNanos <= 0
+        ? latency
+        : latency.plusNanos(ThreadLocalRandom.current().nextLong(jitterNanos + 1));
+  }
+
+  private <T> T read(String body, Class<T> type) {
+    try {
+      return objectMapper.readValue(body, type);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Invalid request body: " + body, e);
+    }
+  }
+
+  private String write(Object body) {
+    try {
+      return objectMapper.writeValueAsString(body);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.disposeNow();
+  }
+}
@@ -0,0 +1,93 @@
+package com.nttdata.bootcamp.microservicio04.loadtest;
+
+import com.nttdata.bootcamp.microservicio04.model.AccountType;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mezcla ponderada de peticiones {@code POST api/v1/transactions}. Cada entrada tiene la forma
+ * {@code PRODUCTO.TIPO:peso}, donde PRODUCTO es un {@link AccountType} o CREDIT, por ejemplo
+ * {@code SAVING.WITHDRAWAL:20}.
+ */
+final class TransactionMix {
+
+  private static final String CREDIT = "CREDIT";
+  private static final BigDecimal AMOUNT = new BigDecimal("10.00");
+
+  private final List<Entry> entries;
+  private final int totalWeight;
+
+  private TransactionMix(List<Entry> entries) {
+    this.entries = entries;
+    this.totalWeight = entries.stream().mapToInt(Entry::weight).sum();
+  }
+
+  static TransactionMix parse(String mix, StubDownstreamServer stubs) {
+    List<Entry> entries = new ArrayList<>();
+    for (String item : mix.split(",")) {
+      String[] nameAndWeight = item.trim().split(":");
+      String[] productAndType = nameAndWeight[0].split("\\.");
+      if (nameAndWeight.length != 2 || productAndType.length != 2) {
+        throw new IllegalArgumentException("Invalid mix entry: " + item);
+      }
+      TransactionType transactionType = TransactionType.valueOf(productAndType[1]);
+      List<String> ids =
+          CREDIT.equals(productAndType[0])
+              ? stubs.creditIds()
+              : stubs.accountIds(AccountType.valueOf(productAndType[0]));
+      if (TransactionType.BANK_TRANSFER.equals(transactionType) && ids.size() < 2) {
+        throw new IllegalArgumentException("A transfer needs at least two accounts: " + item);
+      }
+      entries.add(
+          new Entry(
+              nameAndWeight[0],
+              Integer.parseInt(nameAndWeight[1]),
+              CREDIT.equals(productAndType[0]),
+              transactionType,
+              ids));
+    }
+    return new TransactionMix(entries);
+  }
+
+  List<String> names() {
+    return entries.stream().map(Entry::name).toList();
+  }
+
+  Entry next() {
+    int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+    for (Entry entry : entries) {
+      pick -= entry.weight();
+      if (pick < 0) {
+        return entry;
+      }
+    }
+    return entries.get(entries.size() - 1);
+  }
+
+  record Entry(
+      String name, int weight, boolean credit, TransactionType transactionType, List<String> ids) {
+
+    Map<String, Object> request() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      Map<String, Object> body = new LinkedHashMap<>();
+      body.put("amount", AMOUNT);
+      body.put("transactionType", transactionType);
+      int origin = random.nextInt(ids.size());
+      body.put(credit ? "creditId" : "accountId", ids.get(origin));
+      if (TransactionType.BANK_TRANSFER.equals(transactionType)) {
+        // Cualquier otra cuenta del mismo tipo: se salta el origen
+        int destination = random.nextInt(ids.size() - 1);
+        if (destination >= origin) {
+          destination++;
+        }
+        body.put("destinationAccountId", ids.get(destination));
+      }
+      return body;
+    }
+  }
+}
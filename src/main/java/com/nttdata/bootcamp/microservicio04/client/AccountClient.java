@@ -0,0 +1,95 @@
+package com.nttdata.bootcamp.microservicio04.client;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.dto.AccountUpdateDto;
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+@Component
+@Slf4j
+public class AccountClient {
+
+  private final WebClient webClientAccount;
+  private final DownstreamMetrics downstreamMetrics;
+  private final DownstreamGuard accountGuard;
+  private final CachedLookup<Account> accountLookup;
+
+  public AccountClient(
+      WebClient webClientAccount,
+      AsyncCache<String, Account> accountCache,
+      DownstreamMetrics downstreamMetrics,
+      DownstreamGuard accountGuard) {
+    this.webClientAccount = webClientAccount;
+    this.downstreamMetrics = downstreamMetrics;
+    this.accountGuard = accountGuard;
+    this.accountLookup =
+        new CachedLookup<>(
+            accountCache,
+            this::fetchById,
+            (id, account) -> id.equals(account.getId()) && account.getAmountAvailable() != null);
+  }
+
+  // Las consultas concurrentes del mismo id comparten la misma peticion en curso
+  public Mono<Account> findById(String id) {
+    return accountLookup.find(id);
+  }
+
+  public Mono<List<Account>> findPage(int page, int size) {
+    Mono<List<Account>> call =
+        this.webClientAccount
+            .get()
+            .uri(
+                uriBuilder ->
+                    uriBuilder
+                        .path("v1/accounts/")
+                        .queryParam("page", page)
+                        .queryParam("size", size)
+                        .build())
+            .retrieve()
+            .bodyToFlux(Account.class)
+            .collectList();
+    return accountGuard.call(downstreamMetrics.timed("account", "findPage", call));
+  }
+
+  // Sin cache: para sembrar saldos que no pueden partir de una copia desactualizada
+  public Mono<Account> findFreshById(String id) {
+    return accountLookup.findFresh(id);
+  }
+
+  public Mono<Account> updateById(String id, AccountUpdateDto accountUpdateDto) {
+    log.info("Update account with id: [{}]", id);
+    Mono<Account> call =
+        this.webClientAccount
+            .patch()
+            .uri(uriBuilder -> uriBuilder.path("v1/accounts/" + id).build())
+            .bodyValue(accountUpdateDto)
+            .retrieve()
+            .bodyToMono(Account.class);
+    return accountLookup.write(
+        id, accountGuard.call(downstreamMetrics.timed("account", "update", call)));
+  }
+
+  // El saldo base se lee sin cache: sobre una copia vieja el PATCH absoluto pisaria movimientos
+  public Mono<Account> applyDelta(String id, BigDecimal delta) {
+    return findFreshById(id)
+        .flatMap(
+            account ->
+                updateById(id, new AccountUpdateDto(account.getAmountAvailable().add(delta))));
+  }
+
+  private Mono<Account> fetchById(String id) {
+    Mono<Account> call =
+        this.webClientAccount
+            .get()
+            .uri(uriBuilder -> uriBuilder.path("v1/accounts/" + id).build())
+            .retrieve()
+            .bodyToMono(Account.class);
+    // GET idempotente: admite un intento adicional si la respuesta se demora
+    return accountGuard.hedgedCall(downstreamMetrics.timed("account", "find", call));
+  }
+}
@@ -0,0 +1,155 @@
+package com.nttdata.bootcamp.microservicio04.client;
+
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Agrupa los deltas de saldo por cuenta o credito en ventanas cortas y envia un solo PATCH por
+ * clave. Cada clave tiene a lo sumo un PATCH en vuelo: los deltas que llegan mientras tanto se
+ * suman en el siguiente, sin frenar a las demas claves. Cada llamador recibe la confirmacion (o el
+ * error) del PATCH que incluyo su delta.
+ */
+@Slf4j
+public class BalanceUpdateStage implements AutoCloseable {
+
+  private final String name;
+  private final BiFunction<String, BigDecimal, Mono<?>> applyDelta;
+  private final Sinks.Many<BalanceUpdate> queue = Sinks.many().unicast().onBackpressureBuffer();
+  // Claves con un PATCH en vuelo y los deltas que esperan a que termine
+  private final Map<String, List<BalanceUpdate>> inFlight = new HashMap<>();
+  private final AtomicInteger queueDepth = new AtomicInteger();
+  private final Timer flushTimer;
+  private final Disposable subscription;
+
+  public BalanceUpdateStage(
+      String name,
+      BiFunction<String, BigDecimal, Mono<?>> applyDelta,
+      int batchSize,
+      Duration window,
+      int concurrency,
+      MeterRegistry meterRegistry) {
+    this.name = name;
+    this.applyDelta = applyDelta;
+    Gauge.builder("balance.update.queue.depth", queueDepth, AtomicInteger::get)
+        .tag("stage", name)
+        .register(meterRegistry);
+    this.flushTimer =
+        Timer.builder("balance.update.flush")
+            .tag("stage", name)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    this.subscription =
+        queue
+            .asFlux()
+            .bufferTimeout(batchSize, window)
+            .concatMapIterable(this::claim)
+            .flatMap(group -> drain(group.key(), group.updates()), concurrency)
+            .subscribe();
+  }
+
+  public Mono<Void> submit(String key, BigDecimal delta) {
+    return Mono.defer(
+        () -> {
+          Sinks.One<Void> ack = Sinks.one();
+          queueDepth.incrementAndGet();
+          queue.emitNext(
+              new BalanceUpdate(key, delta, ack),
+              Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+          return ack.asMono();
+        });
+  }
+
+  // Devuelve los grupos del lote cuya clave estaba libre; los demas esperan al PATCH en vuelo
+  private List<KeyedUpdates> claim(List<BalanceUpdate> batch) {
+    Map<String, List<BalanceUpdate>> updatesByKey =
+        batch.stream()
+            .collect(
+                Collectors.groupingBy(
+                    BalanceUpdate::key, LinkedHashMap::new, Collectors.toList()));
+    List<KeyedUpdates> claimed = new ArrayList<>();
+    synchronized (inFlight) {
+      updatesByKey.forEach(
+          (key, updates) -> {
+            List<BalanceUpdate> waiting = inFlight.get(key);
+            if (waiting == null) {
+              inFlight.put(key, new ArrayList<>());
+              claimed.add(new KeyedUpdates(key, updates));
+            } else {
+              waiting.addAll(updates);
+            }
+          });
+    }
+    return claimed;
+  }
+
+  // Sigue con los deltas acumulados de la clave hasta que no quede ninguno y entonces la libera
+  private Mono<Void> drain(String key, List<BalanceUpdate> updates) {
+    return applyGroup(key, updates)
+        .then(
+            Mono.defer(
+                () -> {
+                  List<BalanceUpdate> waiting;
+                  synchronized (inFlight) {
+                    waiting = inFlight.remove(key);
+                    if (waiting != null && !waiting.isEmpty()) {
+                      inFlight.put(key, new ArrayList<>());
+                    }
+                  }
+                  return waiting == null || waiting.isEmpty()
+                      ? Mono.empty()
+                      : drain(key, waiting);
+                }));
+  }
+
+  private Mono<Void> applyGroup(String key, List<BalanceUpdate> updates) {
+    long start = System.nanoTime();
+    BigDecimal delta =
+        updates.stream().map(BalanceUpdate::delta).reduce(BigDecimal.ZERO, BigDecimal::add);
+    return applyDelta
+        .apply(key, delta)
+        // Sin respuesta el PATCH no se aplico: confirmarlo perderia el delta
+        .switchIfEmpty(
+            Mono.error(new OperationNoCompletedException(ErrorCode.DATA_NOT_FOUND)))
+        .then()
+        .doOnSuccess(v -> updates.forEach(update -> update.ack().tryEmitEmpty()))
+        .onErrorResume(
+            e -> {
+              log.error("Error applying {} balance update for [{}]", name, key, e);
+              updates.forEach(update -> update.ack().tryEmitError(e));
+              return Mono.empty();
+            })
+        .doFinally(
+            signal -> {
+              queueDepth.addAndGet(-updates.size());
+              flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            });
+  }
+
+  @Override
+  public void close() {
+    queue.tryEmitComplete();
+    subscription.dispose();
+  }
+
+  private record BalanceUpdate(String key, BigDecimal delta, Sinks.One<Void> ack) {}
+
+  private record KeyedUpdates(String key, List<BalanceUpdate> updates) {}
+}
@@ -0,0 +1,68 @@
+package com.nttdata.bootcamp.microservicio04.client;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import reactor.core.publisher.Mono;
+
+/**
+ * Lecturas por id de un servicio externo a traves de una cache Caffeine. Las consultas concurrentes
+ * del mismo id comparten la misma peticion en curso. Una escritura invalida la entrada al empezar,
+ * asi nadie lee una copia anterior a ella mientras esta en vuelo, y guarda la respuesta al
+ * terminar.
+ */
+final class CachedLookup<T> {
+
+  private final AsyncCache<String, T> cache;
+  private final Function<String, Mono<T>> fetch;
+  // La respuesta corresponde al id pedido y trae el saldo
+  private final BiPredicate<String, T> cacheable;
+
+  CachedLookup(
+      AsyncCache<String, T> cache,
+      Function<String, Mono<T>> fetch,
+      BiPredicate<String, T> cacheable) {
+    this.cache = cache;
+    this.fetch = fetch;
+    this.cacheable = cacheable;
+  }
+
+  Mono<T> find(String id) {
+    return Mono.fromFuture(
+        () -> cache.get(id, (key, executor) -> fetch.apply(key).toFuture()), true);
+  }
+
+  Mono<T> findFresh(String id) {
+    return fetch.apply(id).doOnNext(value -> refresh(id, value));
+  }
+
+  Mono<T> write(String id, Mono<T> call) {
+    return Mono.defer(
+            () -> {
+              invalidate(id);
+              return call;
+            })
+        .doOnNext(value -> refresh(id, value))
+        .doOnSuccess(value -> invalidateIfEmpty(id, value))
+        .doOnError(e -> invalidate(id));
+  }
+
+  private void refresh(String id, T value) {
+    if (cacheable.test(id, value)) {
+      cache.put(id, CompletableFuture.completedFuture(value));
+    } else {
+      invalidate(id);
+    }
+  }
+
+  private void invalidateIfEmpty(String id, T value) {
+    if (value == null) {
+      invalidate(id);
+    }
+  }
+
+  private void invalidate(String id) {
+    cache.synchronous().invalidate(id);
+  }
+}
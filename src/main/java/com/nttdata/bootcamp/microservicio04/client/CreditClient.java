@@ -0,0 +1,76 @@
+package com.nttdata.bootcamp.microservicio04.client;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.nttdata.bootcamp.microservicio04.model.Credit;
+import com.nttdata.bootcamp.microservicio04.model.dto.CreditUpdateDto;
+import java.math.BigDecimal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+@Component
+@Slf4j
+public class CreditClient {
+
+  private final WebClient webClientCredit;
+  private final DownstreamMetrics downstreamMetrics;
+  private final DownstreamGuard creditGuard;
+  private final CachedLookup<Credit> creditLookup;
+
+  public CreditClient(
+      WebClient webClientCredit,
+      AsyncCache<String, Credit> creditCache,
+      DownstreamMetrics downstreamMetrics,
+      DownstreamGuard creditGuard) {
+    this.webClientCredit = webClientCredit;
+    this.downstreamMetrics = downstreamMetrics;
+    this.creditGuard = creditGuard;
+    this.creditLookup =
+        new CachedLookup<>(
+            creditCache,
+            this::fetchById,
+            (id, credit) -> id.equals(credit.getId()) && credit.getAmountAvailable() != null);
+  }
+
+  // Las consultas concurrentes del mismo id comparten la misma peticion en curso
+  public Mono<Credit> findById(String id) {
+    return creditLookup.find(id);
+  }
+
+  // Sin cache: para sembrar saldos que no pueden partir de una copia desactualizada
+  public Mono<Credit> findFreshById(String id) {
+    return creditLookup.findFresh(id);
+  }
+
+  public Mono<Credit> updateById(String id, CreditUpdateDto creditUpdateDto) {
+    log.info("Update credit with id: [{}]", id);
+    Mono<Credit> call =
+        this.webClientCredit
+            .patch()
+            .uri(uriBuilder -> uriBuilder.path("v1/credits/" + id).build())
+            .bodyValue(creditUpdateDto)
+            .retrieve()
+            .bodyToMono(Credit.class);
+    return creditLookup.write(
+        id, creditGuard.call(downstreamMetrics.timed("credit", "update", call)));
+  }
+
+  // El saldo base se lee sin cache: sobre una copia vieja el PATCH absoluto pisaria movimientos
+  public Mono<Credit> applyDelta(String id, BigDecimal delta) {
+    return findFreshById(id)
+        .flatMap(
+            credit -> updateById(id, new CreditUpdateDto(credit.getAmountAvailable().add(delta))));
+  }
+
+  private Mono<Credit> fetchById(String id) {
+    Mono<Credit> call =
+        this.webClientCredit
+            .get()
+            .uri(uriBuilder -> uriBuilder.path("v1/credits/" + id).build())
+            .retrieve()
+            .bodyToMono(Credit.class);
+    // GET idempotente: admite un intento adicional si la respuesta se demora
+    return creditGuard.hedgedCall(downstreamMetrics.timed("credit", "find", call));
+  }
+}
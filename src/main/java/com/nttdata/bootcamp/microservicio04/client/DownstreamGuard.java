@@ -0,0 +1,193 @@
+package com.nttdata.bootcamp.microservicio04.client;
+
+import com.nttdata.bootcamp.microservicio04.config.ResilienceProperties;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Aislamiento de un servicio externo: bulkhead de concurrencia, circuit breaker y, para lecturas
+ * idempotentes, un segundo intento en paralelo cuando la primera respuesta tarda mas que el
+ * percentil configurado.
+ */
+@Slf4j
+public class DownstreamGuard {
+
+  private final String service;
+  private final CircuitBreaker circuitBreaker;
+  private final Bulkhead bulkhead;
+  private final ResilienceProperties.Hedge hedge;
+  private final Timer readLatency;
+  private final Counter hedgedReads;
+
+  public DownstreamGuard(
+      String service,
+      CircuitBreaker circuitBreaker,
+      Bulkhead bulkhead,
+      ResilienceProperties.Hedge hedge,
+      MeterRegistry meterRegistry) {
+    this.service = service;
+    this.circuitBreaker = circuitBreaker;
+    this.bulkhead = bulkhead;
+    this.hedge = hedge;
+    this.readLatency =
+        Timer.builder("downstream.client.read.latency")
+            .tag("service", service)
+            .publishPercentiles(hedge.getPercentile())
+            .register(meterRegistry);
+    this.hedgedReads =
+        Counter.builder("downstream.client.hedged").tag("service", service).register(meterRegistry);
+
+    circuitBreaker
+        .getEventPublisher()
+        .onStateTransition(
+            event -> {
+              log.warn("Circuit breaker [{}] {}", service, event.getStateTransition());
+              Counter.builder("downstream.circuitbreaker.transitions")
+                  .tag("service", service)
+                  .tag("from", event.getStateTransition().getFromState().name())
+                  .tag("to", event.getStateTransition().getToState().name())
+                  .register(meterRegistry)
+                  .increment();
+            });
+    Counter bulkheadRejections =
+        Counter.builder("downstream.bulkhead.rejections")
+            .tag("service", service)
+            .register(meterRegistry);
+    bulkhead.getEventPublisher().onCallRejected(event -> bulkheadRejections.increment());
+  }
+
+  public <T> Mono<T> call(Mono<T> call) {
+    return call.transformDeferred(BulkheadOperator.of(bulkhead))
+        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+        .onErrorMap(
+            e -> e instanceof CallNotPermittedException || e instanceof BulkheadFullException,
+            e -> {
+              log.warn("Call to {} rejected: {}", service, e.getMessage());
+              return new OperationNoCompletedException(ErrorCode.SERVICE_UNAVAILABLE);
+            });
+  }
+
+  /**
+   * Solo para lecturas idempotentes. Gana el primer intento que responde; el otro se cancela. El
+   * segundo intento solo se lanza mientras el primero sigue pendiente y si el bulkhead y el circuit
+   * breaker lo admiten. Un fallo del primero se propaga en el acto, salvo uno transitorio con el
+   * segundo intento ya en curso, que entonces puede ganar.
+   */
+  public <T> Mono<T> hedgedCall(Mono<T> read) {
+    Mono<T> attempt = call(timedRead(read));
+    if (!hedge.isEnabled()) {
+      return attempt;
+    }
+    return Mono.defer(
+        () -> {
+          AtomicBoolean hedging = new AtomicBoolean();
+          AtomicReference<Throwable> primaryError = new AtomicReference<>();
+          Mono<Outcome<T>> primary =
+              answered(attempt)
+                  .onErrorResume(
+                      e -> {
+                        primaryError.set(e);
+                        // Un fallo que gana la carrera cancela tambien la espera del segundo
+                        return hedging.get() && retryable(e)
+                            ? Mono.error(e)
+                            : Mono.just(Outcome.failed(e));
+                      });
+          Mono<Outcome<T>> hedged =
+              Mono.delay(hedgeDelay())
+                  .filter(tick -> hedgeAdmitted())
+                  .flatMap(
+                      tick -> {
+                        hedging.set(true);
+                        hedgedReads.increment();
+                        return answered(attempt);
+                      });
+          return Mono.firstWithValue(primary, hedged)
+              .onErrorMap(
+                  NoSuchElementException.class,
+                  e -> primaryError.get() != null ? primaryError.get() : e)
+              .flatMap(
+                  outcome ->
+                      outcome.error() != null
+                          ? Mono.error(outcome.error())
+                          : Mono.justOrEmpty(outcome.value()));
+        });
+  }
+
+  // Una respuesta vacia tambien es una respuesta y debe ganar la carrera
+  private static <T> Mono<Outcome<T>> answered(Mono<T> attempt) {
+    return attempt.map(Outcome::of).defaultIfEmpty(Outcome.of(null));
+  }
+
+  // Un 4xx o un rechazo del bulkhead o del breaker se repetiria igual en el segundo intento
+  private static boolean retryable(Throwable error) {
+    if (error instanceof WebClientResponseException response) {
+      return response.getStatusCode().is5xxServerError();
+    }
+    return error instanceof WebClientRequestException || error instanceof TimeoutException;
+  }
+
+  private boolean hedgeAdmitted() {
+    CircuitBreaker.State state = circuitBreaker.getState();
+    boolean breakerAdmits =
+        state == CircuitBreaker.State.CLOSED
+            || state == CircuitBreaker.State.DISABLED
+            || state == CircuitBreaker.State.METRICS_ONLY;
+    return breakerAdmits && bulkhead.getMetrics().getAvailableConcurrentCalls() > 0;
+  }
+
+  private <T> Mono<T> timedRead(Mono<T> read) {
+    return Mono.defer(
+        () -> {
+          long start = System.nanoTime();
+          return read.doOnSuccess(
+              value -> readLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+  }
+
+  private Duration hedgeDelay() {
+    long observed = 0;
+    for (ValueAtPercentile value : readLatency.takeSnapshot().percentileValues()) {
+      observed = (long) value.value(TimeUnit.NANOSECONDS);
+    }
+    // Sin historial suficiente se usa el retardo maximo
+    if (observed <= 0) {
+      return hedge.getMaxDelay();
+    }
+    Duration delay = Duration.ofNanos(observed);
+    if (delay.compareTo(hedge.getMinDelay()) < 0) {
+      return hedge.getMinDelay();
+    }
+    return delay.compareTo(hedge.getMaxDelay()) > 0 ? hedge.getMaxDelay() : delay;
+  }
+
+  private record Outcome<T>(T value, Throwable error) {
+
+    static <T> Outcome<T> of(T value) {
+      return new Outcome<>(value, null);
+    }
+
+    static <T> Outcome<T> failed(Throwable error) {
+      return new Outcome<>(null, error);
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.nttdata.bootcamp.microservicio04.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/** Latencia del lado cliente de las llamadas a los servicios de cuentas y creditos. */
+@Component
+public class DownstreamMetrics {
+
+  private final MeterRegistry meterRegistry;
+
+  public DownstreamMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  public <T> Mono<T> timed(String service, String operation, Mono<T> call) {
+    return Mono.defer(
+        () -> {
+          long start = System.nanoTime();
+          return call.doFinally(
+              signal ->
+                  timer(service, operation, outcome(signal))
+                      .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+  }
+
+  public Timer timer(String service, String operation, String outcome) {
+    return Timer.builder("downstream.client.requests")
+        .tag("service", service)
+        .tag("operation", operation)
+        .tag("outcome", outcome)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  private static String outcome(SignalType signal) {
+    return switch (signal) {
+      case ON_COMPLETE -> "SUCCESS";
+      case ON_ERROR -> "ERROR";
+      case CANCEL -> "CANCELLED";
+      default -> signal.name();
+    };
+  }
+}
@@ -0,0 +1,125 @@
+package com.nttdata.bootcamp.microservicio04.client;
+
+import com.nttdata.bootcamp.microservicio04.config.AdminTokenFilter;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import java.net.ConnectException;
+import java.util.Arrays;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+/** Reenvia escrituras a la instancia duena de la cuenta o credito. */
+@Component
+@Slf4j
+public class PeerClient {
+
+  // Una peticion reenviada se procesa siempre en destino, aunque su anillo aun no coincida. Lleva
+  // el token compartido entre instancias; AffinityForwardFilter la descarta si no coincide
+  public static final String FORWARDED_HEADER = "X-Affinity-Forwarded";
+
+  private final WebClient webClientPeer;
+  private final DownstreamMetrics downstreamMetrics;
+  private final String peerToken;
+  private final String adminToken;
+
+  public PeerClient(
+      WebClient webClientPeer,
+      DownstreamMetrics downstreamMetrics,
+      @Value("${application.affinity.peer-token:}") String peerToken,
+      @Value("${application.admin.token:}") String adminToken) {
+    this.webClientPeer = webClientPeer;
+    this.downstreamMetrics = downstreamMetrics;
+    this.peerToken = peerToken;
+    this.adminToken = adminToken;
+  }
+
+  public Mono<Transaction> createTransaction(
+      ServiceInstance owner, Transaction transaction, String idempotencyKey) {
+    log.debug("Forwarding transaction to owner instance [{}]", owner.getInstanceId());
+    Mono<Transaction> call =
+        retrieve(
+                webClientPeer
+                    .post()
+                    .uri(owner.getUri().resolve("/api/v1/transactions"))
+                    .header(FORWARDED_HEADER, peerToken)
+                    .headers(
+                        headers -> {
+                          if (idempotencyKey != null) {
+                            headers.set("Idempotency-Key", idempotencyKey);
+                          }
+                        })
+                    .bodyValue(transaction))
+            .bodyToMono(Transaction.class);
+    return downstreamMetrics.timed("peer", "create", unreachable(inProgress(call, idempotencyKey)));
+  }
+
+  /** Reenvia una reconstruccion sin cuerpo al dueno; devuelve el total que informa. */
+  public Mono<Long> rebuild(ServiceInstance owner, String path) {
+    log.debug("Forwarding rebuild [{}] to owner instance [{}]", path, owner.getInstanceId());
+    Mono<Long> call =
+        retrieve(
+                webClientPeer
+                    .post()
+                    .uri(owner.getUri().resolve("/api/v1/transactions" + path))
+                    .header(FORWARDED_HEADER, peerToken)
+                    .header(AdminTokenFilter.ADMIN_TOKEN_HEADER, adminToken))
+            .bodyToMono(Long.class);
+    return downstreamMetrics.timed("peer", "rebuild", unreachable(call));
+  }
+
+  private static WebClient.ResponseSpec retrieve(WebClient.RequestHeadersSpec<?> request) {
+    return request
+        .retrieve()
+        .onStatus(
+            HttpStatusCode::isError,
+            response ->
+                response
+                    .bodyToMono(new ParameterizedTypeReference<Map<String, String>>() {})
+                    .map(PeerClient::toException)
+                    .defaultIfEmpty(toException(Map.of())));
+  }
+
+  // Si no se pudo conectar con el dueno se rechaza: atenderla aqui romperia la afinidad
+  private static <T> Mono<T> unreachable(Mono<T> call) {
+    return call.onErrorMap(
+        e -> e instanceof WebClientRequestException && e.getCause() instanceof ConnectException,
+        e -> {
+          log.warn("Owner instance unreachable", e);
+          return new OperationNoCompletedException(ErrorCode.SERVICE_UNAVAILABLE);
+        });
+  }
+
+  // Sin respuesta a tiempo la escritura puede haberse confirmado en el dueno: con Idempotency-Key
+  // se informa como en curso, asi el reintento con la misma clave devuelve su resultado
+  private static <T> Mono<T> inProgress(Mono<T> call, String idempotencyKey) {
+    if (idempotencyKey == null) {
+      return call;
+    }
+    return call.onErrorMap(
+        e -> e instanceof WebClientRequestException && e.getCause() instanceof ReadTimeoutException,
+        e -> {
+          log.warn("Owner instance did not answer a forwarded write in time", e);
+          return new OperationNoCompletedException(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS);
+        });
+  }
+
+  // El dueno responde con el cuerpo de GlobalExceptionHandler; se conserva su ErrorCode
+  private static OperationNoCompletedException toException(Map<String, String> body) {
+    ErrorCode error =
+        Arrays.stream(ErrorCode.values())
+            .filter(code -> code.name().equals(body.get("error")))
+            .findFirst()
+            .orElse(ErrorCode.INTERNAL_SERVER_ERROR);
+    return new OperationNoCompletedException(error);
+  }
+}
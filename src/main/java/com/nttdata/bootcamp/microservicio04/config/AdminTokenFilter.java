@@ -0,0 +1,78 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+/**
+ * Las operaciones de mantenimiento (reconstrucciones, migracion, archivado, reintento del outbox y
+ * refresco de configuracion) exigen la cabecera {@code X-Admin-Token} con
+ * {@code application.admin.token}. Sin token configurado quedan cerradas.
+ */
+@Component
+@Slf4j
+public class AdminTokenFilter implements WebFilter {
+
+  public static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+
+  private static final List<PathPattern> ADMIN_PATHS =
+      List.of(
+              "/api/v1/transactions/account/{id}/summary/rebuild",
+              "/api/v1/transactions/counters/rebuild",
+              "/api/v1/transactions/balances/rebuild",
+              "/api/v1/transactions/storage/compact",
+              "/api/v1/transactions/archive/run",
+              "/api/v1/transactions/outbox/dead-letters/replay",
+              // Recarga la configuracion, incluidos los limites de las reglas de validacion
+              "/actuator/refresh")
+          .stream()
+          .map(PathPatternParser.defaultInstance::parse)
+          .toList();
+
+  private final byte[] adminToken;
+
+  public AdminTokenFilter(@Value("${application.admin.token:}") String adminToken) {
+    this.adminToken = adminToken.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    if (!isAdminRequest(exchange)
+        || authorized(exchange.getRequest().getHeaders().getFirst(ADMIN_TOKEN_HEADER))) {
+      return chain.filter(exchange);
+    }
+    log.warn("Rejecting unauthorized request to {}", exchange.getRequest().getPath());
+    exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+    return exchange.getResponse().setComplete();
+  }
+
+  private static boolean isAdminRequest(ServerWebExchange exchange) {
+    if (!HttpMethod.POST.equals(exchange.getRequest().getMethod())) {
+      return false;
+    }
+    String path = exchange.getRequest().getPath().pathWithinApplication().value();
+    // Las rutas se publican con y sin barra final
+    PathContainer normalized =
+        PathContainer.parsePath(
+            path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path);
+    return ADMIN_PATHS.stream().anyMatch(pattern -> pattern.matches(normalized));
+  }
+
+  private boolean authorized(String token) {
+    return token != null
+        && adminToken.length > 0
+        && MessageDigest.isEqual(adminToken, token.getBytes(StandardCharsets.UTF_8));
+  }
+}
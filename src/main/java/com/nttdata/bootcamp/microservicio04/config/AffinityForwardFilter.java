@@ -0,0 +1,48 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import com.nttdata.bootcamp.microservicio04.client.PeerClient;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Solo otra instancia puede marcar una peticion como reenviada. La cabecera se quita en el borde
+ * si no trae el token compartido, asi un cliente externo no puede saltarse el reparto por
+ * afinidad.
+ */
+@Component
+@Slf4j
+public class AffinityForwardFilter implements WebFilter {
+
+  private final byte[] peerToken;
+
+  public AffinityForwardFilter(@Value("${application.affinity.peer-token:}") String peerToken) {
+    this.peerToken = peerToken.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    String forwarded = exchange.getRequest().getHeaders().getFirst(PeerClient.FORWARDED_HEADER);
+    if (forwarded == null || trusted(forwarded)) {
+      return chain.filter(exchange);
+    }
+    log.warn("Dropping untrusted {} header", PeerClient.FORWARDED_HEADER);
+    return chain.filter(
+        exchange
+            .mutate()
+            .request(
+                request -> request.headers(headers -> headers.remove(PeerClient.FORWARDED_HEADER)))
+            .build());
+  }
+
+  private boolean trusted(String forwarded) {
+    return peerToken.length > 0
+        && MessageDigest.isEqual(peerToken, forwarded.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,37 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import com.nttdata.bootcamp.microservicio04.client.AccountClient;
+import com.nttdata.bootcamp.microservicio04.client.BalanceUpdateStage;
+import com.nttdata.bootcamp.microservicio04.client.CreditClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class BalanceUpdateConfig {
+
+  @Value("${application.balance-update.batch-size:100}")
+  private int batchSize;
+
+  @Value("${application.balance-update.window:PT0.02S}")
+  private Duration window;
+
+  @Value("${application.balance-update.concurrency:16}")
+  private int concurrency;
+
+  @Bean
+  public BalanceUpdateStage accountBalanceUpdateStage(
+      AccountClient accountClient, MeterRegistry meterRegistry) {
+    return new BalanceUpdateStage(
+        "account", accountClient::applyDelta, batchSize, window, concurrency, meterRegistry);
+  }
+
+  @Bean
+  public BalanceUpdateStage creditBalanceUpdateStage(
+      CreditClient creditClient, MeterRegistry meterRegistry) {
+    return new BalanceUpdateStage(
+        "credit", creditClient::applyDelta, batchSize, window, concurrency, meterRegistry);
+  }
+}
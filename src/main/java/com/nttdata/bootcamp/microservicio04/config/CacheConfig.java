@@ -0,0 +1,69 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.Credit;
+import com.nttdata.bootcamp.microservicio04.model.IdempotencyRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfig {
+
+  @Value("${application.cache.account.maximum-size:10000}")
+  private long accountMaximumSize;
+
+  @Value("${application.cache.account.expire-after-write:PT30S}")
+  private Duration accountExpireAfterWrite;
+
+  @Value("${application.cache.credit.maximum-size:10000}")
+  private long creditMaximumSize;
+
+  @Value("${application.cache.credit.expire-after-write:PT30S}")
+  private Duration creditExpireAfterWrite;
+
+  @Value("${application.cache.idempotency.maximum-size:10000}")
+  private long idempotencyMaximumSize;
+
+  @Value("${application.cache.idempotency.expire-after-write:PT10M}")
+  private Duration idempotencyExpireAfterWrite;
+
+  @Bean
+  public AsyncCache<String, Account> accountCache(MeterRegistry meterRegistry) {
+    AsyncCache<String, Account> cache =
+        Caffeine.newBuilder()
+            .maximumSize(accountMaximumSize)
+            .expireAfterWrite(accountExpireAfterWrite)
+            .recordStats()
+            .buildAsync();
+    return CaffeineCacheMetrics.monitor(meterRegistry, cache, "account");
+  }
+
+  @Bean
+  public AsyncCache<String, Credit> creditCache(MeterRegistry meterRegistry) {
+    AsyncCache<String, Credit> cache =
+        Caffeine.newBuilder()
+            .maximumSize(creditMaximumSize)
+            .expireAfterWrite(creditExpireAfterWrite)
+            .recordStats()
+            .buildAsync();
+    return CaffeineCacheMetrics.monitor(meterRegistry, cache, "credit");
+  }
+
+  // Frente en memoria del almacen de Idempotency-Key; tambien agrupa los duplicados en curso
+  @Bean
+  public AsyncCache<String, IdempotencyRecord> idempotencyCache(MeterRegistry meterRegistry) {
+    AsyncCache<String, IdempotencyRecord> cache =
+        Caffeine.newBuilder()
+            .maximumSize(idempotencyMaximumSize)
+            .expireAfterWrite(idempotencyExpireAfterWrite)
+            .recordStats()
+            .buildAsync();
+    return CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+  }
+}
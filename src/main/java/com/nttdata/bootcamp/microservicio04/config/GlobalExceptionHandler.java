@@ -17,9 +17,10 @@ public class GlobalExceptionHandler {
   public Mono<ResponseEntity<Map<String, String>>> handleCustomException(
       OperationNoCompletedException ex) {
     Map<String, String> errorResponse = new HashMap<>();
+    errorResponse.put("error", ex.getError().name());
     errorResponse.put("errorCode", ex.getErrorCode());
     errorResponse.put("errorMessage", ex.getErrorMessage());
-    return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse));
+    return Mono.just(ResponseEntity.status(status(ex.getError())).body(errorResponse));
   }
 
   @ExceptionHandler(Exception.class)
@@ -29,4 +30,10 @@ public class GlobalExceptionHandler {
     errorResponse.put("errorMessage", ErrorCode.INTERNAL_SERVER_ERROR.getMessage());
     return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse));
   }
+
+  // El codigo de cada ErrorCode es su estado HTTP
+  static HttpStatus status(ErrorCode error) {
+    HttpStatus status = HttpStatus.resolve(Integer.parseInt(error.getCode()));
+    return status != null ? status : HttpStatus.INTERNAL_SERVER_ERROR;
+  }
 }
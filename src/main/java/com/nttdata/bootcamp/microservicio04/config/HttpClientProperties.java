@@ -0,0 +1,31 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "application.http-client")
+public class HttpClientProperties {
+
+  private Pool account = new Pool();
+  private Pool credit = new Pool();
+  private Pool peer = new Pool();
+
+  @Getter
+  @Setter
+  public static class Pool {
+    private int maxConnections = 100;
+    private int pendingAcquireMaxCount = 500;
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    private Duration maxLifeTime = Duration.ofMinutes(5);
+    private Duration evictInBackground = Duration.ofSeconds(30);
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration responseTimeout = Duration.ofSeconds(3);
+    private boolean keepAlive = true;
+    private boolean http2 = false;
+  }
+}
@@ -0,0 +1,37 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import com.nttdata.bootcamp.microservicio04.utils.converter.TransactionReadConverter;
+import com.nttdata.bootcamp.microservicio04.utils.converter.TransactionTypeReadConverter;
+import com.nttdata.bootcamp.microservicio04.utils.converter.TransactionTypeWriteConverter;
+import java.util.List;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.DefaultMongoTypeMapper;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+@Configuration
+public class MongoConversionConfig {
+
+  @Bean
+  public MongoCustomConversions mongoCustomConversions() {
+    return new MongoCustomConversions(
+        List.of(
+            new TransactionTypeWriteConverter(),
+            new TransactionTypeReadConverter(),
+            new TransactionReadConverter()));
+  }
+
+  // Sin clave _class: ninguna coleccion guarda tipos polimorficos
+  @Bean
+  public MappingMongoConverter mappingMongoConverter(
+      MongoMappingContext mappingContext, MongoCustomConversions mongoCustomConversions) {
+    MappingMongoConverter converter =
+        new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+    converter.setCustomConversions(mongoCustomConversions);
+    converter.setTypeMapper(new DefaultMongoTypeMapper(null));
+    return converter;
+  }
+}
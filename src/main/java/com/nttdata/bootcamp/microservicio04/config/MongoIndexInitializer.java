@@ -0,0 +1,151 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import com.mongodb.MongoCommandException;
+import com.nttdata.bootcamp.microservicio04.model.BalanceOutboxEntry;
+import com.nttdata.bootcamp.microservicio04.model.IdempotencyRecord;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionArchiveBucket;
+import java.time.Duration;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Component
+@Slf4j
+public class MongoIndexInitializer {
+
+  public static final String ACCOUNT_HISTORY_INDEX = "acc_cr_id";
+  public static final String CREDIT_HISTORY_INDEX = "crd_cr_id";
+  public static final String CREATED_INDEX = "cr_id";
+  public static final String OWNER_COUNTER_INDEX = "acc_cr_own";
+
+  // Indices sobre las claves largas y el del antiguo conteo mensual por fecha, que ya no consulta
+  // nadie y cada insercion seguia manteniendo
+  static final List<String> SUPERSEDED_INDEXES =
+      List.of(
+          "accountId_created",
+          "creditId_created",
+          "created_id",
+          "created_ownerTransaction",
+          "cr_own");
+
+  private static final int NAMESPACE_NOT_FOUND = 26;
+  private static final int INDEX_NOT_FOUND = 27;
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final Duration idempotencyTtl;
+
+  public MongoIndexInitializer(
+      ReactiveMongoTemplate mongoTemplate,
+      @Value("${application.idempotency.ttl:PT24H}") Duration idempotencyTtl) {
+    this.mongoTemplate = mongoTemplate;
+    this.idempotencyTtl = idempotencyTtl;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    ensureIndexes()
+        .subscribe(
+            null,
+            error -> log.error("Error creating the transaction indexes", error),
+            () -> log.info("Transaction indexes are up to date."));
+  }
+
+  public Mono<Void> ensureIndexes() {
+    ReactiveIndexOperations indexOperations = mongoTemplate.indexOps(Transaction.class);
+    return dropSupersededIndexes()
+        .thenMany(Flux.fromIterable(transactionIndexes()))
+        .concatMap(indexOperations::ensureIndex)
+        .doOnNext(name -> log.debug("Ensured index [{}] on transaction", name))
+        .then(
+            mongoTemplate
+                .indexOps(IdempotencyRecord.class)
+                .ensureIndex(
+                    new Index()
+                        .on("createdAt", Sort.Direction.ASC)
+                        .expire(idempotencyTtl)
+                        .named("createdAt_ttl")))
+        .then(
+            Flux.fromIterable(outboxIndexes())
+                .concatMap(mongoTemplate.indexOps(BalanceOutboxEntry.class)::ensureIndex)
+                .then())
+        // Busqueda por id de una transaccion archivada
+        .then(
+            mongoTemplate
+                .indexOps(TransactionArchiveBucket.class)
+                .ensureIndex(new Index().on("ids", Sort.Direction.ASC).named("ids")))
+        .then();
+  }
+
+  private Mono<Void> dropSupersededIndexes() {
+    return mongoTemplate
+        .getCollection(mongoTemplate.getCollectionName(Transaction.class))
+        .flatMapMany(
+            collection ->
+                Flux.fromIterable(SUPERSEDED_INDEXES)
+                    .concatMap(
+                        name ->
+                            Mono.from(collection.dropIndex(name))
+                                .doOnSuccess(
+                                    dropped -> log.info("Dropped superseded index [{}]", name))
+                                .onErrorResume(
+                                    error ->
+                                        error instanceof MongoCommandException command
+                                            && (command.getErrorCode() == INDEX_NOT_FOUND
+                                                || command.getErrorCode() == NAMESPACE_NOT_FOUND),
+                                    error -> Mono.empty())))
+        .then();
+  }
+
+  private static List<IndexDefinition> outboxIndexes() {
+    return List.of(
+        // Entradas listas para el despachador
+        new Index()
+            .on("status", Sort.Direction.ASC)
+            .on("nextAttemptAt", Sort.Direction.ASC)
+            .named("status_nextAttemptAt"),
+        new Index()
+            .on("productId", Sort.Direction.ASC)
+            .on("status", Sort.Direction.ASC)
+            .named("productId_status"));
+  }
+
+  // Las claves son las cortas que se guardan en disco (ver Transaction)
+  private static List<IndexDefinition> transactionIndexes() {
+    return List.of(
+        // Historial por cuenta: igualdad en accountId, orden por fecha y _id como desempate
+        new Index()
+            .on(Transaction.ACCOUNT_ID_KEY, Sort.Direction.ASC)
+            .on(Transaction.CREATED_KEY, Sort.Direction.DESC)
+            .on("_id", Sort.Direction.DESC)
+            .named(ACCOUNT_HISTORY_INDEX),
+        new Index()
+            .on(Transaction.CREDIT_ID_KEY, Sort.Direction.ASC)
+            .on(Transaction.CREATED_KEY, Sort.Direction.DESC)
+            .on("_id", Sort.Direction.DESC)
+            .named(CREDIT_HISTORY_INDEX),
+        // Paginacion global por cursor
+        new Index()
+            .on(Transaction.CREATED_KEY, Sort.Direction.DESC)
+            .on("_id", Sort.Direction.DESC)
+            .named(CREATED_INDEX),
+        // Rebuild de los contadores mensuales: solo las transacciones propias de una cuenta
+        new Index()
+            .on(Transaction.ACCOUNT_ID_KEY, Sort.Direction.ASC)
+            .on(Transaction.CREATED_KEY, Sort.Direction.ASC)
+            .partial(PartialIndexFilter.of(Criteria.where(Transaction.OWNER_KEY).is(true)))
+            .named(OWNER_COUNTER_INDEX));
+  }
+}
@@ -0,0 +1,93 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Transacciones multi-documento de MongoDB para las escrituras del ledger. Requieren un replica
+ * set o un cluster sharded: con {@code application.mongo.transactions.enabled} en {@code true} o
+ * {@code auto} (por defecto) un Mongo standalone impide el arranque, y si el servidor no responde
+ * al arrancar la comprobacion se repite en cada escritura hasta que lo haga, sin escribir nunca
+ * fuera de una transaccion. {@code false} las desactiva explicitamente, solo para desarrollo y
+ * pruebas: cada escritura queda atomica solo a nivel de documento.
+ */
+@Component
+@Slf4j
+public class MongoTransactions {
+
+  private static final Duration DETECTION_TIMEOUT = Duration.ofSeconds(10);
+
+  private final ReactiveMongoDatabaseFactory databaseFactory;
+  private final TransactionalOperator transactionalOperator;
+  // Solo se guarda una deteccion correcta; un fallo se vuelve a intentar en la siguiente escritura
+  private volatile boolean verified;
+
+  public MongoTransactions(
+      ReactiveMongoDatabaseFactory databaseFactory,
+      @Value("${application.mongo.transactions.enabled:auto}") String enabled) {
+    this.databaseFactory = databaseFactory;
+    if ("false".equalsIgnoreCase(enabled)) {
+      log.warn("Mongo multi-document transactions are disabled");
+      this.transactionalOperator = null;
+      return;
+    }
+    this.transactionalOperator =
+        TransactionalOperator.create(new ReactiveMongoTransactionManager(databaseFactory));
+    try {
+      operator().block(DETECTION_TIMEOUT);
+    } catch (UnsupportedOperationException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      log.warn("Could not detect Mongo transaction support, retrying on write: {}", e.getMessage());
+    }
+  }
+
+  public boolean isEnabled() {
+    return transactionalOperator != null;
+  }
+
+  public <T> Flux<T> inTransaction(Flux<T> flux) {
+    return transactionalOperator == null
+        ? flux
+        : operator().flatMapMany(operator -> operator.transactional(flux));
+  }
+
+  public <T> Mono<T> inTransaction(Mono<T> mono) {
+    return transactionalOperator == null
+        ? mono
+        : operator().flatMap(operator -> operator.transactional(mono));
+  }
+
+  private Mono<TransactionalOperator> operator() {
+    return verified
+        ? Mono.just(transactionalOperator)
+        : detect(databaseFactory)
+            .doOnSuccess(ignored -> verified = true)
+            .thenReturn(transactionalOperator);
+  }
+
+  // Un miembro de replica set informa setName y un mongos responde msg=isdbgrid
+  private static Mono<Void> detect(ReactiveMongoDatabaseFactory databaseFactory) {
+    return databaseFactory
+        .getMongoDatabase()
+        .flatMap(database -> Mono.from(database.runCommand(new Document("hello", 1))))
+        .timeout(DETECTION_TIMEOUT)
+        .flatMap(
+            hello ->
+                hello.containsKey("setName") || "isdbgrid".equals(hello.getString("msg"))
+                    ? Mono.<Void>empty()
+                    : Mono.error(
+                        new UnsupportedOperationException(
+                            "Mongo transactions need a replica set or a sharded cluster; set"
+                                + " application.mongo.transactions.enabled=false to run"
+                                + " without them")));
+  }
+}
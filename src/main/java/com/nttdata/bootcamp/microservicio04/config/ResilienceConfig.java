@@ -0,0 +1,104 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import com.nttdata.bootcamp.microservicio04.client.DownstreamGuard;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+@Configuration
+@EnableConfigurationProperties(ResilienceProperties.class)
+public class ResilienceConfig {
+
+  private final ResilienceProperties resilienceProperties;
+
+  public ResilienceConfig(ResilienceProperties resilienceProperties) {
+    this.resilienceProperties = resilienceProperties;
+  }
+
+  // Los binders publican resilience4j.circuitbreaker.* y resilience4j.bulkhead.*
+  @Bean
+  public CircuitBreakerRegistry circuitBreakerRegistry(MeterRegistry meterRegistry) {
+    CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
+    TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+    return registry;
+  }
+
+  @Bean
+  public BulkheadRegistry bulkheadRegistry(MeterRegistry meterRegistry) {
+    BulkheadRegistry registry = BulkheadRegistry.ofDefaults();
+    TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+    return registry;
+  }
+
+  @Bean
+  public DownstreamGuard accountGuard(
+      CircuitBreakerRegistry circuitBreakerRegistry,
+      BulkheadRegistry bulkheadRegistry,
+      MeterRegistry meterRegistry) {
+    return guard(
+        "account",
+        resilienceProperties.getAccount(),
+        circuitBreakerRegistry,
+        bulkheadRegistry,
+        meterRegistry);
+  }
+
+  @Bean
+  public DownstreamGuard creditGuard(
+      CircuitBreakerRegistry circuitBreakerRegistry,
+      BulkheadRegistry bulkheadRegistry,
+      MeterRegistry meterRegistry) {
+    return guard(
+        "credit",
+        resilienceProperties.getCredit(),
+        circuitBreakerRegistry,
+        bulkheadRegistry,
+        meterRegistry);
+  }
+
+  private DownstreamGuard guard(
+      String service,
+      ResilienceProperties.Downstream properties,
+      CircuitBreakerRegistry circuitBreakerRegistry,
+      BulkheadRegistry bulkheadRegistry,
+      MeterRegistry meterRegistry) {
+    CircuitBreaker circuitBreaker =
+        circuitBreakerRegistry.circuitBreaker(service, circuitBreakerConfig(properties));
+    Bulkhead bulkhead =
+        bulkheadRegistry.bulkhead(
+            service,
+            BulkheadConfig.custom()
+                .maxConcurrentCalls(properties.getMaxConcurrentCalls())
+                .maxWaitDuration(properties.getMaxWaitDuration())
+                .build());
+    return new DownstreamGuard(
+        service, circuitBreaker, bulkhead, properties.getHedge(), meterRegistry);
+  }
+
+  private CircuitBreakerConfig circuitBreakerConfig(ResilienceProperties.Downstream properties) {
+    return CircuitBreakerConfig.custom()
+        .failureRateThreshold(properties.getFailureRateThreshold())
+        .slowCallRateThreshold(properties.getSlowCallRateThreshold())
+        .slowCallDurationThreshold(properties.getSlowCallDurationThreshold())
+        .waitDurationInOpenState(properties.getWaitDurationInOpenState())
+        .slidingWindowSize(properties.getSlidingWindowSize())
+        .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+        .permittedNumberOfCallsInHalfOpenState(properties.getPermittedCallsInHalfOpenState())
+        // Un 4xx es una respuesta valida del servicio, no una falla
+        .recordException(
+            e ->
+                !(e instanceof WebClientResponseException response)
+                    || response.getStatusCode().is5xxServerError())
+        .build();
+  }
+}
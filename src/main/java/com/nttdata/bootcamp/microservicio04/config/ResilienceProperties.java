@@ -0,0 +1,42 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "application.resilience")
+public class ResilienceProperties {
+
+  private Downstream account = new Downstream();
+  private Downstream credit = new Downstream();
+
+  @Getter
+  @Setter
+  public static class Downstream {
+    // Circuit breaker
+    private float failureRateThreshold = 50;
+    private float slowCallRateThreshold = 80;
+    private Duration slowCallDurationThreshold = Duration.ofSeconds(2);
+    private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+    private int slidingWindowSize = 50;
+    private int minimumNumberOfCalls = 20;
+    private int permittedCallsInHalfOpenState = 5;
+    // Bulkhead
+    private int maxConcurrentCalls = 64;
+    private Duration maxWaitDuration = Duration.ZERO;
+    // Hedging de lecturas
+    private Hedge hedge = new Hedge();
+  }
+
+  @Getter
+  @Setter
+  public static class Hedge {
+    private boolean enabled = false;
+    private double percentile = 0.95;
+    private Duration minDelay = Duration.ofMillis(50);
+    private Duration maxDelay = Duration.ofSeconds(1);
+  }
+}
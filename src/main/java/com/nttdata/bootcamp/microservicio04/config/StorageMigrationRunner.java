@@ -0,0 +1,38 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import com.nttdata.bootcamp.microservicio04.service.TransactionStorageMigrationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Migra al formato compacto antes de aceptar trafico: las consultas e indices usan solo las claves
+ * cortas y no verian los documentos antiguos. Spring publica la disponibilidad para trafico
+ * despues de los runners, y si la migracion falla la aplicacion no arranca. La migracion solo toca
+ * documentos antiguos, asi varias instancias pueden arrancar a la vez.
+ */
+@Component
+@Slf4j
+public class StorageMigrationRunner implements ApplicationRunner {
+
+  private final TransactionStorageMigrationService transactionStorageMigrationService;
+  private final boolean enabled;
+
+  public StorageMigrationRunner(
+      TransactionStorageMigrationService transactionStorageMigrationService,
+      @Value("${application.storage-migration.on-startup:true}") boolean enabled) {
+    this.transactionStorageMigrationService = transactionStorageMigrationService;
+    this.enabled = enabled;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (!enabled) {
+      log.warn("Startup storage migration is disabled; legacy documents stay invisible");
+      return;
+    }
+    transactionStorageMigrationService.migrate().block();
+  }
+}
@@ -0,0 +1,34 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import com.nttdata.bootcamp.microservicio04.model.AccountType;
+import java.util.EnumMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Limites de las reglas de validacion por tipo de cuenta. Un limite sin valor se toma de la cuenta
+ * remota. Spring Cloud vuelve a enlazar este bean en cada refresh del servidor de configuracion, y
+ * las reglas lo leen en cada evaluacion, asi un cambio aplica sin reiniciar.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "application.validation")
+public class TransactionRuleProperties {
+
+  private static final Limits ACCOUNT_LIMITS = new Limits();
+
+  private Map<AccountType, Limits> limits = new EnumMap<>(AccountType.class);
+
+  public Limits limits(AccountType accountType) {
+    return limits.getOrDefault(accountType, ACCOUNT_LIMITS);
+  }
+
+  @Getter
+  @Setter
+  public static class Limits {
+    private Integer monthlyTransactions;
+    private Integer allowedDay;
+  }
+}
@@ -1,15 +1,23 @@
 package com.nttdata.bootcamp.microservicio04.config;
 
+import io.netty.channel.ChannelOption;
+import java.time.Duration;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 @Slf4j
+@EnableConfigurationProperties(HttpClientProperties.class)
 public class WebClientConfig {
 
   @Value("${application.endpoints.url.account}")
@@ -18,10 +26,37 @@ public class WebClientConfig {
   @Value("${application.endpoints.url.credit}")
   private String urlEndpointCredit;
 
+  @Value("${application.write-sequencer.timeout:PT10S}")
+  private Duration writeTimeout;
+
+  private final HttpClientProperties httpClientProperties;
+
+  public WebClientConfig(HttpClientProperties httpClientProperties) {
+    this.httpClientProperties = httpClientProperties;
+  }
+
+  @Bean(destroyMethod = "dispose")
+  public ConnectionProvider accountConnectionProvider() {
+    return connectionProvider("account", httpClientProperties.getAccount());
+  }
+
+  @Bean(destroyMethod = "dispose")
+  public ConnectionProvider creditConnectionProvider() {
+    return connectionProvider("credit", httpClientProperties.getCredit());
+  }
+
+  @Bean(destroyMethod = "dispose")
+  public ConnectionProvider peerConnectionProvider() {
+    return connectionProvider("peer", httpClientProperties.getPeer());
+  }
+
   @Bean
-  public WebClient webClientAccount() {
+  public WebClient webClientAccount(ConnectionProvider accountConnectionProvider) {
     return WebClient.builder()
         .baseUrl(urlEndpointAccount)
+        .clientConnector(
+            new ReactorClientHttpConnector(
+                httpClient(accountConnectionProvider, httpClientProperties.getAccount())))
         .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
         .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
         .filter(
@@ -31,9 +66,12 @@ public class WebClientConfig {
   }
 
   @Bean
-  public WebClient webClientCredit() {
+  public WebClient webClientCredit(ConnectionProvider creditConnectionProvider) {
     return WebClient.builder()
         .baseUrl(urlEndpointCredit)
+        .clientConnector(
+            new ReactorClientHttpConnector(
+                httpClient(creditConnectionProvider, httpClientProperties.getCredit())))
         .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
         .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
         .filter(
@@ -41,4 +79,52 @@ public class WebClientConfig {
                 next.exchange(request).doOnError(e -> log.info("WebClient request error", e)))
         .build();
   }
+
+  // Sin baseUrl: cada peticion va a la instancia duena de la cuenta. El dueno puede tardar hasta
+  // el plazo de su secuenciador en escribir; el responseTimeout de peer es el margen sobre ese
+  // plazo, asi un reenvio no informa como fallida una escritura que el dueno confirma despues
+  @Bean
+  public WebClient webClientPeer(ConnectionProvider peerConnectionProvider) {
+    HttpClientProperties.Pool peer = httpClientProperties.getPeer();
+    return WebClient.builder()
+        .clientConnector(
+            new ReactorClientHttpConnector(
+                httpClient(
+                    peerConnectionProvider,
+                    peer,
+                    writeTimeout.plus(peer.getResponseTimeout()))))
+        .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+        .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+        .build();
+  }
+
+  // metrics(true) publica reactor.netty.connection.provider.* en el registro global de Micrometer
+  private ConnectionProvider connectionProvider(String name, HttpClientProperties.Pool pool) {
+    return ConnectionProvider.builder(name)
+        .maxConnections(pool.getMaxConnections())
+        .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+        .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+        .maxIdleTime(pool.getMaxIdleTime())
+        .maxLifeTime(pool.getMaxLifeTime())
+        .evictInBackground(pool.getEvictInBackground())
+        .metrics(true)
+        .build();
+  }
+
+  private HttpClient httpClient(ConnectionProvider provider, HttpClientProperties.Pool pool) {
+    return httpClient(provider, pool, pool.getResponseTimeout());
+  }
+
+  private HttpClient httpClient(
+      ConnectionProvider provider, HttpClientProperties.Pool pool, Duration responseTimeout) {
+    HttpClient httpClient =
+        HttpClient.create(provider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
+            .responseTimeout(responseTimeout)
+            .keepAlive(pool.isKeepAlive());
+    if (pool.isHttp2()) {
+      httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+    }
+    return httpClient;
+  }
 }
@@ -0,0 +1,21 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import com.nttdata.bootcamp.microservicio04.utils.KeyedSequencer;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class WriteSequencerConfig {
+
+  // Plazo de una escritura con su cuenta tomada: consultas remotas con sus reintentos y el ledger
+  @Value("${application.write-sequencer.timeout:PT10S}")
+  private Duration timeout;
+
+  @Bean
+  public KeyedSequencer writeSequencer(MeterRegistry meterRegistry) {
+    return new KeyedSequencer("write", timeout, meterRegistry);
+  }
+}
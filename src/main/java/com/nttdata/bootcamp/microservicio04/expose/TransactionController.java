@@ -1,18 +1,46 @@
 package com.nttdata.bootcamp.microservicio04.expose;
 
+import com.nttdata.bootcamp.microservicio04.client.PeerClient;
 import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.dto.MonthlyStatement;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionBatchResult;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionPage;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionSearchFilter;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionSearchPage;
+import com.nttdata.bootcamp.microservicio04.service.AccountAffinityService;
+import com.nttdata.bootcamp.microservicio04.service.AccountBalanceService;
+import com.nttdata.bootcamp.microservicio04.service.AccountSummaryService;
+import com.nttdata.bootcamp.microservicio04.service.BalanceOutboxService;
+import com.nttdata.bootcamp.microservicio04.service.IdempotencyService;
+import com.nttdata.bootcamp.microservicio04.service.TransactionArchiveService;
+import com.nttdata.bootcamp.microservicio04.service.TransactionCounterService;
+import com.nttdata.bootcamp.microservicio04.service.TransactionSearchService;
 import com.nttdata.bootcamp.microservicio04.service.TransactionService;
+import com.nttdata.bootcamp.microservicio04.service.TransactionStorageMigrationService;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
@@ -24,9 +52,43 @@ import reactor.core.publisher.Mono;
 public class TransactionController {
 
   private TransactionService transactionService;
+  private TransactionCounterService transactionCounterService;
+  private AccountBalanceService accountBalanceService;
+  private AccountSummaryService accountSummaryService;
+  private IdempotencyService idempotencyService;
+  private AccountAffinityService accountAffinityService;
+  private PeerClient peerClient;
+  private BalanceOutboxService balanceOutboxService;
+  private TransactionStorageMigrationService transactionStorageMigrationService;
+  private TransactionArchiveService transactionArchiveService;
+  private TransactionSearchService transactionSearchService;
+  private int batchConcurrency;
 
-  public TransactionController(TransactionService transactionService) {
+  public TransactionController(
+      TransactionService transactionService,
+      TransactionCounterService transactionCounterService,
+      AccountBalanceService accountBalanceService,
+      AccountSummaryService accountSummaryService,
+      IdempotencyService idempotencyService,
+      AccountAffinityService accountAffinityService,
+      PeerClient peerClient,
+      BalanceOutboxService balanceOutboxService,
+      TransactionStorageMigrationService transactionStorageMigrationService,
+      TransactionArchiveService transactionArchiveService,
+      TransactionSearchService transactionSearchService,
+      @Value("${application.batch.concurrency:32}") int batchConcurrency) {
     this.transactionService = transactionService;
+    this.transactionCounterService = transactionCounterService;
+    this.accountBalanceService = accountBalanceService;
+    this.accountSummaryService = accountSummaryService;
+    this.idempotencyService = idempotencyService;
+    this.accountAffinityService = accountAffinityService;
+    this.peerClient = peerClient;
+    this.balanceOutboxService = balanceOutboxService;
+    this.transactionStorageMigrationService = transactionStorageMigrationService;
+    this.transactionArchiveService = transactionArchiveService;
+    this.transactionSearchService = transactionSearchService;
+    this.batchConcurrency = batchConcurrency;
   }
 
   @GetMapping({"/{id}/", "/{id}"})
@@ -35,7 +97,9 @@ public class TransactionController {
     return transactionService.findById(id);
   }
 
-  @GetMapping({"", "/"})
+  @GetMapping(
+      value = {"", "/"},
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
   public Flux<Transaction> findAll() {
     log.info("List all accounts in the controller.");
     return transactionService.findAll();
@@ -43,11 +107,90 @@ public class TransactionController {
 
   @PostMapping({"", "/"})
   @ResponseStatus(HttpStatus.CREATED)
-  public Mono<Transaction> create(@RequestBody Transaction transaction) {
+  public Mono<Transaction> create(
+      @RequestBody Transaction transaction,
+      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+      @RequestHeader(value = PeerClient.FORWARDED_HEADER, required = false) String forwarded) {
     log.info("Create a transaction in the controller.");
-    return transactionService.create(transaction);
+    if (forwarded == null) {
+      Optional<ServiceInstance> owner = accountAffinityService.remoteOwner(transaction);
+      if (owner.isPresent()) {
+        return peerClient.createTransaction(owner.get(), transaction, idempotencyKey);
+      }
+    }
+    return createLocally(transaction, idempotencyKey);
   }
 
+  private Mono<Transaction> createLocally(Transaction transaction, String idempotencyKey) {
+    if (idempotencyKey == null || idempotencyKey.isBlank()) {
+      return transactionService.create(transaction);
+    }
+    return idempotencyService.execute(
+        idempotencyKey, transaction, () -> transactionService.create(transaction));
+  }
+
+  @PostMapping(
+      value = {"/batch", "/batch/"},
+      consumes = MediaType.APPLICATION_NDJSON_VALUE,
+      produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<TransactionBatchResult> createBatch(
+      @RequestBody Flux<Transaction> transactions,
+      @RequestHeader(value = PeerClient.FORWARDED_HEADER, required = false) String forwarded) {
+    log.info("Create a batch of transactions in the controller.");
+    if (forwarded != null) {
+      return transactionService.createBatch(transactions);
+    }
+    // Las partidas de productos de otra instancia se reenvian una a una a su dueno; el resto va al
+    // lote local, que numera sus partidas desde cero
+    return Flux.defer(
+        () -> {
+          List<Long> localIndexes = Collections.synchronizedList(new ArrayList<>());
+          return transactions
+              .index()
+              .map(
+                  item ->
+                      new RoutedItem(
+                          item.getT1(),
+                          item.getT2(),
+                          accountAffinityService.remoteOwner(item.getT2())))
+              .publish(
+                  items ->
+                      Flux.merge(
+                          transactionService
+                              .createBatch(
+                                  items
+                                      .filter(item -> item.owner().isEmpty())
+                                      .doOnNext(item -> localIndexes.add(item.index()))
+                                      .map(RoutedItem::transaction))
+                              .doOnNext(
+                                  result ->
+                                      result.setIndex(
+                                          localIndexes.get((int) result.getIndex()))),
+                          items
+                              .filter(item -> item.owner().isPresent())
+                              .flatMap(this::forwardBatchItem, batchConcurrency)));
+        });
+  }
+
+  private Mono<TransactionBatchResult> forwardBatchItem(RoutedItem item) {
+    return peerClient
+        .createTransaction(item.owner().get(), item.transaction(), null)
+        .map(created -> TransactionBatchResult.created(item.index(), List.of(created.getId())))
+        .onErrorResume(
+            e -> {
+              ErrorCode error =
+                  e instanceof OperationNoCompletedException ex
+                      ? ex.getError()
+                      : ErrorCode.INTERNAL_SERVER_ERROR;
+              return Mono.just(
+                  TransactionBatchResult.rejected(
+                      item.index(), error.getCode(), error.getMessage()));
+            });
+  }
+
+  private record RoutedItem(
+      long index, Transaction transaction, Optional<ServiceInstance> owner) {}
+
   @PutMapping({"/{id}/", "/{id}"})
   public Mono<ResponseEntity<Transaction>> update(
       @RequestBody Transaction account, @PathVariable("id") String transactionId) {
@@ -77,15 +220,116 @@ public class TransactionController {
         .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
   }
 
-  @GetMapping({"/account/{id}/", "/account/{id}"})
+  @GetMapping({"/page", "/page/"})
+  public Mono<TransactionPage> findPage(
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "limit", required = false) Integer limit) {
+    log.info("List a page of transactions in the controller.");
+    return transactionService.findPage(cursor, limit);
+  }
+
+  @GetMapping({"/search", "/search/"})
+  public Mono<TransactionSearchPage> search(
+      @ModelAttribute TransactionSearchFilter filter,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "limit", required = false) Integer limit) {
+    log.info("Search transactions in the controller.");
+    return transactionSearchService.search(filter, cursor, limit);
+  }
+
+  @GetMapping(
+      value = {"/account/{id}/", "/account/{id}"},
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
   public Flux<Transaction> findByAccountId(@PathVariable("id") String transactionId) {
     log.info("Find an accounts by customerId in the controller.");
     return transactionService.findByAccountId(transactionId);
   }
 
-  @GetMapping({"/credit/{id}/", "/credit/{id}"})
+  @GetMapping({"/account/{id}/page", "/account/{id}/page/"})
+  public Mono<TransactionPage> findPageByAccountId(
+      @PathVariable("id") String accountId,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "limit", required = false) Integer limit) {
+    log.info("List a page of transactions by accountId in the controller.");
+    return transactionService.findPageByAccountId(accountId, cursor, limit);
+  }
+
+  @GetMapping(
+      value = {"/credit/{id}/", "/credit/{id}"},
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
   public Flux<Transaction> findByCreditId(@PathVariable("id") String transactionId) {
     log.info("Find an credit by customerId in the controller.");
     return transactionService.findByCreditId(transactionId);
   }
+
+  @GetMapping({"/credit/{id}/page", "/credit/{id}/page/"})
+  public Mono<TransactionPage> findPageByCreditId(
+      @PathVariable("id") String creditId,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "limit", required = false) Integer limit) {
+    log.info("List a page of transactions by creditId in the controller.");
+    return transactionService.findPageByCreditId(creditId, cursor, limit);
+  }
+
+  @GetMapping({"/account/{id}/summary", "/account/{id}/summary/"})
+  public Mono<MonthlyStatement> findMonthlyStatement(
+      @PathVariable("id") String accountId,
+      @RequestParam(value = "month", required = false) YearMonth month) {
+    log.info("Find the monthly statement of an account in the controller.");
+    return accountSummaryService.findMonthlyStatement(
+        accountId, month == null ? YearMonth.now() : month);
+  }
+
+  @PostMapping({"/account/{id}/summary/rebuild", "/account/{id}/summary/rebuild/"})
+  public Mono<Long> rebuildMonthlySummaries(
+      @PathVariable("id") String accountId,
+      @RequestHeader(value = PeerClient.FORWARDED_HEADER, required = false) String forwarded) {
+    log.info("Rebuild the monthly summaries of an account in the controller.");
+    Optional<ServiceInstance> owner =
+        forwarded == null ? accountAffinityService.remoteAccountOwner(accountId) : Optional.empty();
+    return owner
+        .map(instance -> peerClient.rebuild(instance, "/account/" + accountId + "/summary/rebuild"))
+        .orElseGet(() -> accountSummaryService.rebuild(accountId));
+  }
+
+  @PostMapping({"/counters/rebuild", "/counters/rebuild/"})
+  public Mono<Long> rebuildCounters(
+      @RequestHeader(value = PeerClient.FORWARDED_HEADER, required = false) String forwarded) {
+    log.info("Rebuild the monthly transaction counters in the controller.");
+    return maintenanceOwner(forwarded)
+        .map(instance -> peerClient.rebuild(instance, "/counters/rebuild"))
+        .orElseGet(transactionCounterService::rebuild);
+  }
+
+  @PostMapping({"/outbox/dead-letters/replay", "/outbox/dead-letters/replay/"})
+  public Mono<Long> replayOutboxDeadLetters() {
+    log.info("Replay the dead balance updates of the outbox in the controller.");
+    return balanceOutboxService.replayDeadLetters();
+  }
+
+  @PostMapping({"/balances/rebuild", "/balances/rebuild/"})
+  public Mono<Long> rebuildBalances(
+      @RequestHeader(value = PeerClient.FORWARDED_HEADER, required = false) String forwarded) {
+    log.info("Rebuild the account balance projection in the controller.");
+    return maintenanceOwner(forwarded)
+        .map(instance -> peerClient.rebuild(instance, "/balances/rebuild"))
+        .orElseGet(accountBalanceService::rebuild);
+  }
+
+  @PostMapping({"/storage/compact", "/storage/compact/"})
+  public Mono<Long> compactStorage() {
+    log.info("Migrate the transaction documents to the compact encoding in the controller.");
+    return transactionStorageMigrationService.migrate();
+  }
+
+  @PostMapping({"/archive/run", "/archive/run/"})
+  public Mono<Long> archiveTransactions() {
+    log.info("Archive the old transactions in the controller.");
+    return transactionArchiveService.archive();
+  }
+
+  // Las reconstrucciones globales corren siempre en la misma instancia
+  private Optional<ServiceInstance> maintenanceOwner(String forwarded) {
+    return forwarded == null ? accountAffinityService.remoteMaintenanceOwner() : Optional.empty();
+  }
 }
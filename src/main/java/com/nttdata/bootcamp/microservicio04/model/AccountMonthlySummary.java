@@ -0,0 +1,32 @@
+package com.nttdata.bootcamp.microservicio04.model;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "account_monthly_summary")
+public class AccountMonthlySummary {
+  @Id private String id; // accountId:yyyy-MM
+  private String accountId;
+  private String period;
+
+  // Saldo antes del primer movimiento del mes; null si la cuenta aun no tenia proyeccion
+  @Field(targetType = FieldType.DECIMAL128)
+  private BigDecimal openingBalance;
+
+  @Field(targetType = FieldType.DECIMAL128)
+  private BigDecimal netChange;
+
+  private Map<String, TransactionTypeTotal> totals; // por TransactionType
+}
@@ -0,0 +1,39 @@
+package com.nttdata.bootcamp.microservicio04.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "balance_outbox")
+public class BalanceOutboxEntry {
+  public static final String ACCOUNT = "ACCOUNT";
+  public static final String CREDIT = "CREDIT";
+  public static final String PENDING = "PENDING";
+  public static final String DEAD = "DEAD";
+
+  @Id private String id; // ObjectId: el orden de _id es el orden de insercion
+  private String target; // ACCOUNT o CREDIT
+  private String productId;
+
+  @Field(targetType = FieldType.DECIMAL128)
+  private BigDecimal delta;
+
+  private String transactionId;
+  private String status; // PENDING o DEAD
+  private Integer attempts;
+  private Instant nextAttemptAt;
+  private String lastError;
+  private Instant createdAt;
+  private Boolean projected; // el ledger ya lo sumo a la proyeccion local del producto
+}
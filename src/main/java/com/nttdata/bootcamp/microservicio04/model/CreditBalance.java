@@ -0,0 +1,29 @@
+package com.nttdata.bootcamp.microservicio04.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "credit_balance")
+public class CreditBalance {
+  @Id private String id; // creditId
+
+  // Decimal128 para poder aplicar $inc sobre el saldo
+  @Field(targetType = FieldType.DECIMAL128)
+  private BigDecimal balance;
+
+  private Long version;
+  private LocalDateTime updated;
+  private Boolean provisional; // solo movimientos locales, falta sumar el saldo remoto
+}
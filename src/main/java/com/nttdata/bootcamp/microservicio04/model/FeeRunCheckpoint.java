@@ -0,0 +1,26 @@
+package com.nttdata.bootcamp.microservicio04.model;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "fee_run_checkpoint")
+public class FeeRunCheckpoint {
+  @Id private String id; // periodo yyyy-MM
+  private Integer lastCompletedPage;
+  private String lastAccountId; // ultima cuenta de la ultima pagina procesada
+  private Long accountsScanned;
+  private Long feesCharged;
+  private Long feesSkipped;
+  private Boolean completed;
+  private LocalDateTime startedAt;
+  private LocalDateTime updatedAt;
+}
@@ -0,0 +1,24 @@
+package com.nttdata.bootcamp.microservicio04.model;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "idempotency_key")
+public class IdempotencyRecord {
+  @Id private String id; // valor del header Idempotency-Key
+  private String fingerprint;
+  private Boolean completed;
+  private Transaction response;
+  private Instant createdAt; // indice TTL
+  private String claimToken; // instancia y ejecucion que tienen la clave
+  private Instant claimExpiresAt; // renovado mientras la ejecucion sigue viva
+}
@@ -0,0 +1,20 @@
+package com.nttdata.bootcamp.microservicio04.model;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "outbox_lease")
+public class OutboxLease {
+  @Id private String id;
+  private String owner;
+  private Instant expiresAt;
+}
@@ -2,13 +2,15 @@ package com.nttdata.bootcamp.microservicio04.model;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.UUID;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 @Getter
 @Setter
@@ -16,13 +18,41 @@ import org.springframework.data.mongodb.core.mapping.Document;
 @NoArgsConstructor
 @Document(collection = "transaction")
 public class Transaction {
-  @Id private String id = UUID.randomUUID().toString();
+
+  // Claves cortas en disco; el JSON del API mantiene los nombres de las propiedades
+  public static final String AMOUNT_KEY = "amt";
+  public static final String CREATED_KEY = "cr";
+  public static final String TYPE_KEY = "tt";
+  public static final String ACCOUNT_ID_KEY = "acc";
+  public static final String DESTINATION_ACCOUNT_ID_KEY = "dst";
+  public static final String OWNER_KEY = "own";
+  public static final String CREDIT_ID_KEY = "crd";
+  public static final String ACTIVE_KEY = "act";
+
+  // Un id con formato ObjectId se guarda como ObjectId (12 bytes) en lugar de un String
+  @Id private String id = new ObjectId().toHexString();
+
+  @Field(name = AMOUNT_KEY, targetType = FieldType.DECIMAL128)
   private BigDecimal amount;
+
+  @Field(CREATED_KEY)
   private LocalDate created;
+
+  @Field(TYPE_KEY)
   private TransactionType transactionType;
+
+  @Field(ACCOUNT_ID_KEY)
   private String accountId;
+
+  @Field(DESTINATION_ACCOUNT_ID_KEY)
   private String destinationAccountId;
+
+  @Field(OWNER_KEY)
   private Boolean ownerTransaction;
+
+  @Field(CREDIT_ID_KEY)
   private String creditId;
+
+  @Field(ACTIVE_KEY)
   private Boolean active;
 }
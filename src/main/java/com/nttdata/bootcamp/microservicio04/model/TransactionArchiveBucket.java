@@ -0,0 +1,62 @@
+package com.nttdata.bootcamp.microservicio04.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+/**
+ * Transacciones archivadas de un producto en un mes, o en una parte del mes si no caben en un
+ * bucket. Las transacciones se guardan por columnas, de la mas reciente a la mas antigua; con
+ * compresion, las columnas van empaquetadas en packedColumns y columns queda null.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "transaction_archive")
+public class TransactionArchiveBucket {
+  public static final String ACCOUNT = "account";
+  public static final String CREDIT = "credit";
+
+  @Id private String id; // ownerType:ownerId:yyyy-MM:nnnn
+  private String ownerType; // account o credit
+  private String ownerId;
+  private String period;
+  private Long count;
+
+  // Agregados del mes para reconstruir saldos, contadores y resumenes sin leer las columnas
+  private Long ownerCount;
+
+  @Field(targetType = FieldType.DECIMAL128)
+  private BigDecimal netChange;
+
+  private Map<String, TransactionTypeTotal> totals; // por TransactionType
+
+  // Sin comprimir para poder buscar por id
+  private List<String> ids;
+  private TransactionColumns columns;
+  private byte[] packedColumns;
+
+  @Version private Long version;
+  private Instant archivedAt;
+
+  // Con periodo vacio es el prefijo de todos los buckets del producto
+  public static String bucketId(String ownerType, String ownerId, String period) {
+    return ownerType + ":" + ownerId + ":" + period;
+  }
+
+  // Parte n del mes; con ceros a la izquierda el orden de los _id sigue el de las partes
+  public static String partId(String bucketId, int part) {
+    return bucketId + ":" + String.format("%04d", part);
+  }
+}
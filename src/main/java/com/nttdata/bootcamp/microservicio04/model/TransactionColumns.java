@@ -0,0 +1,23 @@
+package com.nttdata.bootcamp.microservicio04.model;
+
+import java.time.LocalDate;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.bson.types.Decimal128;
+
+/** Columnas de un bucket de archivo; la posicion i de cada lista es la transaccion ids[i]. */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionColumns {
+  private List<Decimal128> amounts;
+  private List<LocalDate> created;
+  private List<TransactionType> types;
+  private List<String> destinationAccountIds;
+  private List<Boolean> ownerTransactions;
+  private List<Boolean> active;
+}
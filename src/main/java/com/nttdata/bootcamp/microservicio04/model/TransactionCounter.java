@@ -0,0 +1,20 @@
+package com.nttdata.bootcamp.microservicio04.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "transaction_counter")
+public class TransactionCounter {
+  @Id private String id; // accountId:yyyy-MM
+  private String accountId;
+  private String period;
+  private Long count;
+}
@@ -1,18 +1,29 @@
 package com.nttdata.bootcamp.microservicio04.model;
 
+import java.util.Arrays;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 @Getter
 @AllArgsConstructor
 public enum TransactionType {
-  WITHDRAWAL("001", "RETIRO"),
-  DEPOSIT("002", "DEPOSITO"),
-  BANK_TRANSFER("003", "TRANSFERENCIA BANCARIA"),
-  INTERBANK_TRANSFER("004", "TRANSFERENCIA INTERBANCARIA"),
-  OPENING_AMOUNT("004", "MONTO DE APERTURA"),
-  MAINTENANCE_PAYMENT("004", "PAGO DE MANTENIMIENTO");
+  WITHDRAWAL("001", "RETIRO", 1),
+  DEPOSIT("002", "DEPOSITO", 2),
+  BANK_TRANSFER("003", "TRANSFERENCIA BANCARIA", 3),
+  INTERBANK_TRANSFER("004", "TRANSFERENCIA INTERBANCARIA", 4),
+  OPENING_AMOUNT("004", "MONTO DE APERTURA", 5),
+  MAINTENANCE_PAYMENT("004", "PAGO DE MANTENIMIENTO", 6);
 
   private final String code;
   private final String description;
+  // Codigo persistido en Mongo: unico y estable, no depende del orden del enum
+  private final int storageCode;
+
+  public static TransactionType fromStorageCode(int storageCode) {
+    return Arrays.stream(values())
+        .filter(type -> type.storageCode == storageCode)
+        .findFirst()
+        .orElseThrow(
+            () -> new IllegalArgumentException("Unknown transaction type code " + storageCode));
+  }
 }
@@ -0,0 +1,21 @@
+package com.nttdata.bootcamp.microservicio04.model.dto;
+
+import com.nttdata.bootcamp.microservicio04.model.TransactionTypeTotal;
+import java.math.BigDecimal;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class MonthlyStatement {
+  private String accountId;
+  private String month;
+  private BigDecimal openingBalance;
+  private BigDecimal closingBalance;
+  private Map<String, TransactionTypeTotal> totals;
+}
@@ -0,0 +1,28 @@
+package com.nttdata.bootcamp.microservicio04.model.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionBatchResult {
+  private long index;
+  private String status;
+  private List<String> transactionIds;
+  private String errorCode;
+  private String errorMessage;
+
+  public static TransactionBatchResult created(long index, List<String> transactionIds) {
+    return new TransactionBatchResult(index, "CREATED", transactionIds, null, null);
+  }
+
+  public static TransactionBatchResult rejected(
+      long index, String errorCode, String errorMessage) {
+    return new TransactionBatchResult(index, "REJECTED", List.of(), errorCode, errorMessage);
+  }
+}
@@ -0,0 +1,17 @@
+package com.nttdata.bootcamp.microservicio04.model.dto;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionPage {
+  private List<Transaction> content;
+  private String nextCursor;
+}
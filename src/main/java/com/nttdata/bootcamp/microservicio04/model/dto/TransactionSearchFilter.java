@@ -0,0 +1,36 @@
+package com.nttdata.bootcamp.microservicio04.model.dto;
+
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionSearchFilter {
+  private String accountId;
+  private String creditId;
+
+  // Rango de fechas inclusivo
+  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+  private LocalDate from;
+
+  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+  private LocalDate to;
+
+  private List<TransactionType> types;
+  private BigDecimal minAmount;
+  private BigDecimal maxAmount;
+  private Boolean ownerTransaction;
+  private Boolean active;
+
+  // Campos de la respuesta; vacio devuelve la transaccion completa
+  private List<String> fields;
+}
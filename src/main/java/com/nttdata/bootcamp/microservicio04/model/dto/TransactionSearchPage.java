@@ -0,0 +1,19 @@
+package com.nttdata.bootcamp.microservicio04.model.dto;
+
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionSearchPage {
+  private List<Map<String, Object>> content;
+  private String nextCursor;
+  private String index; // indice elegido por el planificador
+  private List<String> warnings;
+}
@@ -1,18 +1,51 @@
 package com.nttdata.bootcamp.microservicio04.repository;
 
 import com.nttdata.bootcamp.microservicio04.model.Transaction;
-import java.time.LocalDateTime;
+import java.time.LocalDate;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
 @Repository
 public interface TransactionRepository extends ReactiveMongoRepository<Transaction, String> {
 
-  Mono<Long> countByCreatedBetweenAndOwnerTransactionIsTrue(LocalDateTime start, LocalDateTime end);
+  Flux<Transaction> findByAccountIdOrderByCreatedDescIdDesc(String accountId);
 
-  Flux<Transaction> findByAccountId(String id);
+  Flux<Transaction> findByCreditIdOrderByCreatedDescIdDesc(String creditId);
 
-  Flux<Transaction> findByCreditId(String id);
+  // Paginacion por cursor (created, _id), del mas reciente al mas antiguo. El tercer criterio
+  // cubre los ids String que siguen a un ObjectId en el mismo dia (ver PageCursor)
+
+  Flux<Transaction> findAllByOrderByCreatedDescIdDesc(Limit limit);
+
+  @Query(
+      value =
+          "{ $or: [ { 'created': { $lt: ?0 } }, { 'created': ?0, '_id': { $lt: ?1 } },"
+              + " { 'created': ?0, '_id': { $lt: ?2 } } ] }",
+      sort = "{ 'created': -1, '_id': -1 }")
+  Flux<Transaction> findAllBefore(LocalDate created, String id, String stringIdBound, Limit limit);
+
+  Flux<Transaction> findByAccountIdOrderByCreatedDescIdDesc(String accountId, Limit limit);
+
+  @Query(
+      value =
+          "{ 'accountId': ?0,"
+              + " $or: [ { 'created': { $lt: ?1 } }, { 'created': ?1, '_id': { $lt: ?2 } },"
+              + " { 'created': ?1, '_id': { $lt: ?3 } } ] }",
+      sort = "{ 'created': -1, '_id': -1 }")
+  Flux<Transaction> findByAccountIdBefore(
+      String accountId, LocalDate created, String id, String stringIdBound, Limit limit);
+
+  Flux<Transaction> findByCreditIdOrderByCreatedDescIdDesc(String creditId, Limit limit);
+
+  @Query(
+      value =
+          "{ 'creditId': ?0,"
+              + " $or: [ { 'created': { $lt: ?1 } }, { 'created': ?1, '_id': { $lt: ?2 } },"
+              + " { 'created': ?1, '_id': { $lt: ?3 } } ] }",
+      sort = "{ 'created': -1, '_id': -1 }")
+  Flux<Transaction> findByCreditIdBefore(
+      String creditId, LocalDate created, String id, String stringIdBound, Limit limit);
 }
@@ -0,0 +1,134 @@
+package com.nttdata.bootcamp.microservicio04.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.Credit;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.utils.ConsistentHashRing;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Reparte la propiedad de cuentas y creditos entre las instancias registradas en Eureka con un
+ * anillo de hash consistente. El anillo se reconstruye con cada refresco del registro; el peso de
+ * una instancia se puede ajustar con el metadato {@code affinity-weight}. Sin
+ * {@code application.affinity.peer-token} el reparto queda desactivado: el destino no podria
+ * distinguir un reenvio de una peticion externa.
+ */
+@Service
+@Slf4j
+public class AccountAffinityService {
+
+  private static final String WEIGHT_METADATA = "affinity-weight";
+  // Las tareas de mantenimiento globales corren en una sola instancia a la vez
+  private static final String MAINTENANCE_KEY = "maintenance";
+
+  private final DiscoveryClient discoveryClient;
+  private final ObjectProvider<Registration> registration;
+  private final AsyncCache<String, Account> accountCache;
+  private final AsyncCache<String, Credit> creditCache;
+  private final boolean enabled;
+  private final String serviceId;
+  private final int virtualNodes;
+
+  private volatile ConsistentHashRing<ServiceInstance> ring =
+      ConsistentHashRing.of(Map.of(), instance -> 0);
+  private volatile Map<String, ServiceInstance> members = Map.of();
+
+  public AccountAffinityService(
+      DiscoveryClient discoveryClient,
+      ObjectProvider<Registration> registration,
+      AsyncCache<String, Account> accountCache,
+      AsyncCache<String, Credit> creditCache,
+      @Value("${application.affinity.enabled:false}") boolean enabled,
+      @Value("${spring.application.name}") String serviceId,
+      @Value("${application.affinity.virtual-nodes:128}") int virtualNodes,
+      @Value("${application.affinity.peer-token:}") String peerToken) {
+    this.discoveryClient = discoveryClient;
+    this.registration = registration;
+    this.accountCache = accountCache;
+    this.creditCache = creditCache;
+    if (enabled && peerToken.isBlank()) {
+      log.warn("Account affinity disabled: application.affinity.peer-token is not set");
+    }
+    this.enabled = enabled && !peerToken.isBlank();
+    this.serviceId = serviceId;
+    this.virtualNodes = virtualNodes;
+  }
+
+  @EventListener({ApplicationReadyEvent.class, HeartbeatEvent.class})
+  public void refresh() {
+    if (!enabled) {
+      return;
+    }
+    Map<String, ServiceInstance> current =
+        discoveryClient.getInstances(serviceId).stream()
+            .collect(
+                Collectors.toMap(
+                    ServiceInstance::getInstanceId, Function.identity(), (a, b) -> a));
+    if (current.keySet().equals(members.keySet())) {
+      return;
+    }
+    log.info("Rebalancing account affinity over instances {}", current.keySet());
+    members = current;
+    ring = ConsistentHashRing.of(current, this::weight);
+    // Las cuentas que cambian de dueno pueden tener copias viejas en cache
+    accountCache.synchronous().invalidateAll();
+    creditCache.synchronous().invalidateAll();
+  }
+
+  /**
+   * Instancia duena del producto de la transaccion cuando no es esta; vacio si es local. Una
+   * transferencia la atiende el dueno de la cuenta origen: es la unica pierna que se valida, y el
+   * abono al destino es un incremento atomico del ledger que no necesita a su dueno.
+   */
+  public Optional<ServiceInstance> remoteOwner(Transaction transaction) {
+    return transaction.getAccountId() != null
+        ? remoteOwner("account:" + transaction.getAccountId())
+        : remoteOwner("credit:" + transaction.getCreditId());
+  }
+
+  /** Instancia duena de la cuenta cuando no es esta. */
+  public Optional<ServiceInstance> remoteAccountOwner(String accountId) {
+    return remoteOwner("account:" + accountId);
+  }
+
+  /** Instancia que ejecuta las reconstrucciones globales cuando no es esta. */
+  public Optional<ServiceInstance> remoteMaintenanceOwner() {
+    return remoteOwner(MAINTENANCE_KEY);
+  }
+
+  private Optional<ServiceInstance> remoteOwner(String key) {
+    if (!enabled) {
+      return Optional.empty();
+    }
+    Registration self = registration.getIfAvailable();
+    ServiceInstance owner = ring.owner(key);
+    if (self == null || owner == null || owner.getInstanceId().equals(self.getInstanceId())) {
+      return Optional.empty();
+    }
+    return Optional.of(owner);
+  }
+
+  private int weight(ServiceInstance instance) {
+    String weight = instance.getMetadata().get(WEIGHT_METADATA);
+    try {
+      return weight == null ? virtualNodes : virtualNodes * Integer.parseInt(weight);
+    } catch (NumberFormatException e) {
+      log.warn("Invalid {} metadata [{}] on {}", WEIGHT_METADATA, weight, instance.getInstanceId());
+      return virtualNodes;
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package com.nttdata.bootcamp.microservicio04.service;
+
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.AccountBalance;
+import java.math.BigDecimal;
+import reactor.core.publisher.Mono;
+
+public interface AccountBalanceService {
+
+  Mono<BigDecimal> findBalance(Account account);
+
+  Mono<AccountBalance> settled(String accountId);
+
+  Mono<AccountBalance> apply(String accountId, BigDecimal delta);
+
+  Mono<Long> rebuild();
+}
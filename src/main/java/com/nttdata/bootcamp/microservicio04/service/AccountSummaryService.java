@@ -0,0 +1,16 @@
+package com.nttdata.bootcamp.microservicio04.service;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.dto.MonthlyStatement;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import reactor.core.publisher.Mono;
+
+public interface AccountSummaryService {
+
+  Mono<Void> record(Transaction transaction, BigDecimal delta, BigDecimal openingBalance);
+
+  Mono<MonthlyStatement> findMonthlyStatement(String accountId, YearMonth month);
+
+  Mono<Long> rebuild(String accountId);
+}
@@ -0,0 +1,14 @@
+package com.nttdata.bootcamp.microservicio04.service;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import java.util.List;
+import reactor.core.publisher.Mono;
+
+public interface BalanceOutboxService {
+
+  Mono<Void> enqueue(List<Transaction> transactions);
+
+  Mono<Long> dispatch();
+
+  Mono<Long> replayDeadLetters();
+}
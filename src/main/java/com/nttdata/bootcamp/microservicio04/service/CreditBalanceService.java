@@ -0,0 +1,12 @@
+package com.nttdata.bootcamp.microservicio04.service;
+
+import com.nttdata.bootcamp.microservicio04.model.CreditBalance;
+import java.math.BigDecimal;
+import reactor.core.publisher.Mono;
+
+public interface CreditBalanceService {
+
+  Mono<CreditBalance> settled(String creditId);
+
+  Mono<CreditBalance> apply(String creditId, BigDecimal delta);
+}
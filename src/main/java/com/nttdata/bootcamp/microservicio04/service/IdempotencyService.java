@@ -0,0 +1,17 @@
+package com.nttdata.bootcamp.microservicio04.service;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
+
+public interface IdempotencyService {
+
+  Mono<Transaction> execute(
+      String idempotencyKey, Transaction request, Supplier<Mono<Transaction>> action);
+
+  /**
+   * Completa la clave de la ejecucion en curso, si la hay, con la respuesta. Se llama dentro de la
+   * transaccion del ledger para que la escritura y la respuesta guardada se confirmen juntas.
+   */
+  Mono<Void> complete(Transaction response);
+}
@@ -0,0 +1,239 @@
+package com.nttdata.bootcamp.microservicio04.service;
+
+import com.nttdata.bootcamp.microservicio04.client.AccountClient;
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.AccountType;
+import com.nttdata.bootcamp.microservicio04.model.FeeRunCheckpoint;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cobro de mantenimiento de fin de mes por paginas. Cada cobro tiene un id deterministico por
+ * cuenta y periodo, asi que reanudar desde el checkpoint nunca cobra dos veces una cuenta. Las
+ * paginas se recorren en orden para el checkpoint y los cobros de cada una se escriben en bloques
+ * en paralelo, con un limite configurable.
+ */
+@Service
+@Slf4j
+public class MaintenanceFeeBatchService {
+
+  private final AccountClient accountClient;
+  private final TransactionLedgerService transactionLedgerService;
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  // Periodos en curso en esta instancia: la reanudacion no lanza otra vez uno que sigue corriendo
+  private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+  @Value("${application.maintenance-fee.page-size:500}")
+  private int pageSize;
+
+  @Value("${application.maintenance-fee.chunk-size:50}")
+  private int chunkSize;
+
+  @Value("${application.maintenance-fee.concurrency:4}")
+  private int concurrency;
+
+  public MaintenanceFeeBatchService(
+      AccountClient accountClient,
+      TransactionLedgerService transactionLedgerService,
+      ReactiveMongoTemplate mongoTemplate) {
+    this.accountClient = accountClient;
+    this.transactionLedgerService = transactionLedgerService;
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  public Mono<FeeRunCheckpoint> run(YearMonth period) {
+    return Mono.defer(
+        () -> {
+          if (!running.add(period.toString())) {
+            log.info("Maintenance fee run {} is already in progress", period);
+            return Mono.empty();
+          }
+          return runPages(period).doFinally(signal -> running.remove(period.toString()));
+        });
+  }
+
+  // Termina los periodos que una caida dejo a medias: el cron de fin de mes no vuelve a lanzarlos
+  public Flux<FeeRunCheckpoint> resumeUnfinished() {
+    return mongoTemplate
+        .find(
+            Query.query(Criteria.where("completed").is(false)).with(Sort.by("_id")),
+            FeeRunCheckpoint.class)
+        .concatMap(checkpoint -> run(YearMonth.parse(checkpoint.getId())));
+  }
+
+  private Mono<FeeRunCheckpoint> runPages(YearMonth period) {
+    long start = System.nanoTime();
+    return loadCheckpoint(period)
+        .expand(
+            checkpoint ->
+                Boolean.TRUE.equals(checkpoint.getCompleted())
+                    ? Mono.empty()
+                    : processNextPage(period, checkpoint))
+        .last()
+        .doOnNext(
+            checkpoint -> logSummary(checkpoint, Duration.ofNanos(System.nanoTime() - start)));
+  }
+
+  private Mono<FeeRunCheckpoint> loadCheckpoint(YearMonth period) {
+    LocalDateTime now = LocalDateTime.now();
+    return mongoTemplate
+        .findById(period.toString(), FeeRunCheckpoint.class)
+        .doOnNext(
+            checkpoint ->
+                log.info(
+                    "Resuming maintenance fee run {} after page {}",
+                    period,
+                    checkpoint.getLastCompletedPage()))
+        .switchIfEmpty(
+            Mono.defer(
+                () ->
+                    mongoTemplate.save(
+                        new FeeRunCheckpoint(
+                            period.toString(), -1, null, 0L, 0L, 0L, false, now, now))));
+  }
+
+  private Mono<FeeRunCheckpoint> processNextPage(YearMonth period, FeeRunCheckpoint checkpoint) {
+    int page = checkpoint.getLastCompletedPage() + 1;
+    return accountClient
+        .findPage(page, pageSize)
+        .flatMap(
+            accounts -> {
+              // Si el servicio ignora el numero de pagina devuelve otra vez la misma: se termina
+              // en lugar de pedir paginas sin fin
+              if (repeats(checkpoint, accounts)) {
+                log.warn(
+                    "Account page {} repeats the previous one, ending fee run {}", page, period);
+                checkpoint.setCompleted(true);
+                checkpoint.setUpdatedAt(LocalDateTime.now());
+                return mongoTemplate.save(checkpoint);
+              }
+              return chargePage(period, accounts)
+                  .flatMap(
+                      result -> {
+                        checkpoint.setLastCompletedPage(page);
+                        checkpoint.setLastAccountId(
+                            accounts.isEmpty() ? null : accounts.get(accounts.size() - 1).getId());
+                        checkpoint.setAccountsScanned(
+                            checkpoint.getAccountsScanned() + accounts.size());
+                        checkpoint.setFeesCharged(checkpoint.getFeesCharged() + result.charged());
+                        checkpoint.setFeesSkipped(checkpoint.getFeesSkipped() + result.skipped());
+                        // Una pagina incompleta es la ultima; una mayor que el tamano pedido
+                        // indica que el servicio no pagina y ya se recibieron todas
+                        checkpoint.setCompleted(accounts.size() != pageSize);
+                        checkpoint.setUpdatedAt(LocalDateTime.now());
+                        return mongoTemplate.save(checkpoint);
+                      });
+            });
+  }
+
+  private static boolean repeats(FeeRunCheckpoint checkpoint, List<Account> accounts) {
+    return !accounts.isEmpty()
+        && checkpoint.getLastAccountId() != null
+        && checkpoint.getLastAccountId().equals(accounts.get(accounts.size() - 1).getId());
+  }
+
+  private Mono<PageResult> chargePage(YearMonth period, List<Account> accounts) {
+    List<Transaction> fees =
+        accounts.stream()
+            .filter(account -> AccountType.CURRENT.equals(account.getAccountType()))
+            .filter(account -> Boolean.TRUE.equals(account.getActive()))
+            .filter(account -> account.getCommissionRate() != null)
+            .map(account -> feeTransaction(period, account))
+            .toList();
+    if (fees.isEmpty()) {
+      return Mono.just(new PageResult(0, 0));
+    }
+    // El cargo en el servicio de cuentas lo envia el outbox que escribe el ledger. Cada cuenta
+    // aparece una sola vez por pagina, asi los bloques en paralelo nunca comparten saldo
+    return Flux.fromIterable(fees)
+        .buffer(chunkSize)
+        .flatMap(this::insertNewFees, concurrency)
+        .map(List::size)
+        .reduce(0, Integer::sum)
+        .map(inserted -> new PageResult(inserted, fees.size() - inserted));
+  }
+
+  // Devuelve solo los cobros que inserto esta ejecucion; los ya existentes se omiten
+  private Mono<List<Transaction>> insertNewFees(List<Transaction> fees) {
+    Set<String> ids = fees.stream().map(Transaction::getId).collect(Collectors.toSet());
+    Query existingQuery = Query.query(Criteria.where("_id").in(ids));
+    existingQuery.fields().include("_id");
+    return mongoTemplate
+        .find(existingQuery, Transaction.class)
+        .map(Transaction::getId)
+        .collect(Collectors.toSet())
+        .flatMap(
+            existing -> {
+              List<Transaction> pending =
+                  fees.stream().filter(fee -> !existing.contains(fee.getId())).toList();
+              if (pending.isEmpty()) {
+                return Mono.just(pending);
+              }
+              // El ledger tambien actualiza saldos locales y encola el cargo de cada cobro
+              return transactionLedgerService
+                  .record(pending)
+                  .collectList()
+                  // Otra instancia inserto parte del bloque: la transaccion del ledger descarto el
+                  // bloque entero, asi que se reintenta uno a uno y solo se omiten los duplicados
+                  .onErrorResume(DuplicateKeyException.class, e -> insertOneByOne(pending));
+            });
+  }
+
+  private Mono<List<Transaction>> insertOneByOne(List<Transaction> fees) {
+    return Flux.fromIterable(fees)
+        .concatMap(
+            fee ->
+                transactionLedgerService
+                    .record(List.of(fee))
+                    .onErrorResume(DuplicateKeyException.class, e -> Mono.empty()))
+        .collectList();
+  }
+
+  private Transaction feeTransaction(YearMonth period, Account account) {
+    Transaction transaction = new Transaction();
+    transaction.setId("fee-" + period + "-" + account.getId());
+    transaction.setAccountId(account.getId());
+    transaction.setTransactionType(TransactionType.MAINTENANCE_PAYMENT);
+    transaction.setAmount(account.getCommissionRate());
+    // Un periodo reanudado el mes siguiente se cobra con fecha de su ultimo dia
+    LocalDate today = LocalDate.now();
+    transaction.setCreated(today.isAfter(period.atEndOfMonth()) ? period.atEndOfMonth() : today);
+    transaction.setActive(true);
+    return transaction;
+  }
+
+  private void logSummary(FeeRunCheckpoint checkpoint, Duration elapsed) {
+    double seconds = Math.max(elapsed.toMillis(), 1) / 1000.0;
+    log.info(
+        "Maintenance fee run {} finished: {} pages, {} accounts scanned, {} charged,"
+            + " {} already charged in {} ms ({} accounts/s)",
+        checkpoint.getId(),
+        checkpoint.getLastCompletedPage() + 1,
+        checkpoint.getAccountsScanned(),
+        checkpoint.getFeesCharged(),
+        checkpoint.getFeesSkipped(),
+        elapsed.toMillis(),
+        String.format("%.1f", checkpoint.getAccountsScanned() / seconds));
+  }
+
+  private record PageResult(long charged, long skipped) {}
+}
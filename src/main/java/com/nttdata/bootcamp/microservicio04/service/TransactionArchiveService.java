@@ -0,0 +1,20 @@
+package com.nttdata.bootcamp.microservicio04.service;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.utils.PageCursor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface TransactionArchiveService {
+
+  Mono<Long> archive();
+
+  Mono<Transaction> findById(String transactionId);
+
+  Flux<Transaction> findAll();
+
+  // Del mas reciente al mas antiguo; con cursor, solo lo que va despues de el
+  Flux<Transaction> findByAccountId(String accountId, PageCursor after);
+
+  Flux<Transaction> findByCreditId(String creditId, PageCursor after);
+}
@@ -0,0 +1,13 @@
+package com.nttdata.bootcamp.microservicio04.service;
+
+import java.time.YearMonth;
+import reactor.core.publisher.Mono;
+
+public interface TransactionCounterService {
+
+  Mono<Long> countOwnerTransactions(String accountId, YearMonth period);
+
+  Mono<Long> increment(String accountId, YearMonth period);
+
+  Mono<Long> rebuild();
+}
@@ -0,0 +1,10 @@
+package com.nttdata.bootcamp.microservicio04.service;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import java.util.List;
+import reactor.core.publisher.Flux;
+
+public interface TransactionLedgerService {
+
+  Flux<Transaction> record(List<Transaction> transactions);
+}
@@ -0,0 +1,10 @@
+package com.nttdata.bootcamp.microservicio04.service;
+
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionSearchFilter;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionSearchPage;
+import reactor.core.publisher.Mono;
+
+public interface TransactionSearchService {
+
+  Mono<TransactionSearchPage> search(TransactionSearchFilter filter, String cursor, Integer limit);
+}
@@ -1,6 +1,8 @@
 package com.nttdata.bootcamp.microservicio04.service;
 
 import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionBatchResult;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionPage;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -8,6 +10,8 @@ public interface TransactionService {
 
   Mono<Transaction> create(Transaction transaction);
 
+  Flux<TransactionBatchResult> createBatch(Flux<Transaction> transactions);
+
   Mono<Transaction> findById(String transactionId);
 
   Flux<Transaction> findAll();
@@ -21,4 +25,10 @@ public interface TransactionService {
   Flux<Transaction> findByAccountId(String id);
 
   Flux<Transaction> findByCreditId(String id);
+
+  Mono<TransactionPage> findPage(String cursor, Integer limit);
+
+  Mono<TransactionPage> findPageByAccountId(String id, String cursor, Integer limit);
+
+  Mono<TransactionPage> findPageByCreditId(String id, String cursor, Integer limit);
 }
@@ -0,0 +1,8 @@
+package com.nttdata.bootcamp.microservicio04.service;
+
+import reactor.core.publisher.Mono;
+
+public interface TransactionStorageMigrationService {
+
+  Mono<Long> migrate();
+}
@@ -0,0 +1,145 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.nttdata.bootcamp.microservicio04.client.AccountClient;
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.AccountBalance;
+import com.nttdata.bootcamp.microservicio04.model.BalanceOutboxEntry;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.service.AccountBalanceService;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.aggregation.Fields;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Service
+@Slf4j
+public class AccountBalanceServiceImpl implements AccountBalanceService {
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final AccountClient accountClient;
+  private final BalanceProjection<AccountBalance> projection;
+
+  @Value("${application.balance.rebuild-concurrency:8}")
+  private int rebuildConcurrency;
+
+  @Value("${application.balance.rebuild-attempts:5}")
+  private int rebuildAttempts;
+
+  @Value("${application.balance.rebuild-retry-delay:PT0.5S}")
+  private Duration rebuildRetryDelay;
+
+  public AccountBalanceServiceImpl(
+      ReactiveMongoTemplate mongoTemplate, AccountClient accountClient) {
+    this.mongoTemplate = mongoTemplate;
+    this.accountClient = accountClient;
+    this.projection =
+        new BalanceProjection<>(
+            mongoTemplate,
+            AccountBalance.class,
+            balance -> Boolean.TRUE.equals(balance.getProvisional()));
+  }
+
+  // Las cuentas sin proyeccion, o con una provisional, se siembran con el saldo remoto sin cache
+  @Override
+  public Mono<BigDecimal> findBalance(Account account) {
+    return settled(account.getId()).map(AccountBalance::getBalance);
+  }
+
+  @Override
+  public Mono<AccountBalance> settled(String accountId) {
+    return projection.settled(
+        accountId,
+        () -> accountClient.findFreshById(accountId).map(Account::getAmountAvailable));
+  }
+
+  // Upsert dentro de la transaccion del ledger: un destino sin proyeccion queda provisional
+  @Override
+  public Mono<AccountBalance> apply(String accountId, BigDecimal delta) {
+    return projection.apply(accountId, delta);
+  }
+
+  // Vuelve a sembrar cada proyeccion definitiva con el saldo remoto, igual que en su primera
+  // lectura. Sin entregas pendientes en el outbox el saldo remoto ya incluye todos los movimientos
+  // locales; la version protege de los movimientos que llegan durante el rebuild. Las cuentas con
+  // entregas pendientes o conflictos se reintentan y, si no, se dejan como estaban
+  @Override
+  public Mono<Long> rebuild() {
+    log.info("Rebuilding account balances from the account service");
+    Query settled = Query.query(Criteria.where("provisional").ne(true));
+    settled.fields().include("_id");
+    return mongoTemplate
+        .find(settled, AccountBalance.class)
+        .flatMap(balance -> reseed(balance.getId()), rebuildConcurrency)
+        .filter(Boolean::booleanValue)
+        .count();
+  }
+
+  private Mono<Boolean> reseed(String accountId) {
+    return Mono.defer(() -> reseedAttempt(accountId))
+        .repeatWhenEmpty(rebuildAttempts, attempts -> attempts.delayElements(rebuildRetryDelay))
+        .onErrorResume(
+            e -> {
+              log.warn("Balance of account [{}] was not rebuilt: {}", accountId, e.getMessage());
+              return Mono.just(false);
+            });
+  }
+
+  // Vacio si hay que reintentar; false si la proyeccion ya no existe o volvio a ser provisional
+  private Mono<Boolean> reseedAttempt(String accountId) {
+    return mongoTemplate
+        .findById(accountId, AccountBalance.class)
+        .map(Optional::of)
+        .defaultIfEmpty(Optional.empty())
+        .flatMap(
+            current ->
+                current.isEmpty() || Boolean.TRUE.equals(current.get().getProvisional())
+                    ? Mono.just(false)
+                    : replace(accountId, current.get().getVersion()));
+  }
+
+  // La version se lee antes que el outbox: un movimiento posterior hace fallar el reemplazo
+  private Mono<Boolean> replace(String accountId, Long version) {
+    Query pendingDelivery =
+        Query.query(
+            Criteria.where("target").is(BalanceOutboxEntry.ACCOUNT).and("productId").is(accountId));
+    return mongoTemplate
+        .exists(pendingDelivery, BalanceOutboxEntry.class)
+        .filter(pending -> !pending)
+        .flatMap(ready -> accountClient.findFreshById(accountId))
+        .flatMap(
+            account -> projection.reseed(accountId, version, account.getAmountAvailable()))
+        .map(reseeded -> true);
+  }
+
+  public static BigDecimal signedAmount(Transaction transaction) {
+    // El pago de mantenimiento se guarda en positivo aunque es un cargo
+    return TransactionType.MAINTENANCE_PAYMENT.equals(transaction.getTransactionType())
+        ? transaction.getAmount().abs().negate()
+        : transaction.getAmount();
+  }
+
+  // Referencias por propiedad: la agregacion tipada las traduce a las claves cortas en disco
+  static ConditionalOperators.Cond signedAmountExpression() {
+    ConvertOperators.ToDecimal amount =
+        ConvertOperators.ToDecimal.toDecimal(Fields.field("amount"));
+    return ConditionalOperators.when(
+            ComparisonOperators.Eq.valueOf("transactionType")
+                .equalToValue(TransactionType.MAINTENANCE_PAYMENT.getStorageCode()))
+        .then(
+            ArithmeticOperators.Multiply.valueOf(ArithmeticOperators.Abs.absoluteValueOf(amount))
+                .multiplyBy(-1))
+        .otherwise(amount);
+  }
+}
@@ -0,0 +1,303 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.nttdata.bootcamp.microservicio04.model.AccountBalance;
+import com.nttdata.bootcamp.microservicio04.model.AccountMonthlySummary;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionArchiveBucket;
+import com.nttdata.bootcamp.microservicio04.model.TransactionTypeTotal;
+import com.nttdata.bootcamp.microservicio04.model.dto.MonthlyStatement;
+import com.nttdata.bootcamp.microservicio04.service.AccountBalanceService;
+import com.nttdata.bootcamp.microservicio04.service.AccountSummaryService;
+import com.nttdata.bootcamp.microservicio04.utils.converter.TransactionReadConverter;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Resumenes mensuales por cuenta mantenidos en cada insercion del ledger. Leer un estado de cuenta
+ * es una sola busqueda por _id; la agregacion sobre la coleccion transaction solo se usa para
+ * reconstruir los resumenes que faltan.
+ */
+@Service
+@Slf4j
+public class AccountSummaryServiceImpl implements AccountSummaryService {
+
+  // Mayor que cualquier periodo yyyy-MM
+  private static final String LAST_PERIOD = "\uffff";
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final AccountBalanceService accountBalanceService;
+
+  @Value("${application.summary.rebuild-attempts:5}")
+  private int rebuildAttempts;
+
+  @Value("${application.summary.rebuild-retry-delay:PT0.1S}")
+  private Duration rebuildRetryDelay;
+
+  public AccountSummaryServiceImpl(
+      ReactiveMongoTemplate mongoTemplate, AccountBalanceService accountBalanceService) {
+    this.mongoTemplate = mongoTemplate;
+    this.accountBalanceService = accountBalanceService;
+  }
+
+  @Override
+  public Mono<Void> record(Transaction transaction, BigDecimal delta, BigDecimal openingBalance) {
+    String period = YearMonth.from(transaction.getCreated()).toString();
+    String type = String.valueOf(transaction.getTransactionType());
+    Update update =
+        new Update()
+            .inc("netChange", new Decimal128(delta))
+            .inc("totals." + type + ".count", 1L)
+            .inc("totals." + type + ".amount", new Decimal128(delta))
+            .setOnInsert("accountId", transaction.getAccountId())
+            .setOnInsert("period", period)
+            .setOnInsert(
+                "openingBalance", openingBalance == null ? null : new Decimal128(openingBalance));
+    return mongoTemplate
+        .upsert(
+            Query.query(Criteria.where("_id").is(summaryId(transaction.getAccountId(), period))),
+            update,
+            AccountMonthlySummary.class)
+        .then();
+  }
+
+  @Override
+  public Mono<MonthlyStatement> findMonthlyStatement(String accountId, YearMonth month) {
+    // Un mes sin movimientos arrastra el cierre del ultimo resumen anterior
+    return latestSummary(accountId, month)
+        .filter(summary -> summary.getOpeningBalance() != null)
+        .switchIfEmpty(
+            Mono.defer(() -> rebuild(accountId).then(latestSummary(accountId, month))))
+        .map(summary -> toStatement(summary, month));
+  }
+
+  // Completa los resumenes sin tocar los vigentes: inserta los meses que faltan y solo fija el
+  // saldo de apertura donde aun no lo hay, asi un movimiento registrado a la vez no se pierde
+  @Override
+  public Mono<Long> rebuild(String accountId) {
+    log.info("Rebuilding monthly summaries for account {}", accountId);
+    return Mono.defer(() -> rebuildAttempt(accountId))
+        .repeatWhenEmpty(rebuildAttempts, attempts -> attempts.delayElements(rebuildRetryDelay))
+        .flatMapMany(Flux::fromIterable)
+        .concatMap(this::fill)
+        .filter(Boolean::booleanValue)
+        .count();
+  }
+
+  // Los saldos de apertura se calculan hacia atras desde el saldo definitivo y tienen que
+  // corresponder al mismo momento que los totales: vacio si un movimiento cambio la version de la
+  // proyeccion mientras se agregaba
+  private Mono<List<AccountMonthlySummary>> rebuildAttempt(String accountId) {
+    return accountBalanceService
+        .settled(accountId)
+        .map(Optional::of)
+        .defaultIfEmpty(Optional.empty())
+        .flatMap(
+            balance ->
+                periodTotals(accountId)
+                    .zipWith(currentVersion(accountId))
+                    .filter(
+                        tuple ->
+                            balance.isEmpty() || tuple.getT2() == versionOf(balance.get()))
+                    .map(
+                        tuple ->
+                            toSummaries(
+                                accountId,
+                                tuple.getT1(),
+                                balance.map(AccountBalance::getBalance))));
+  }
+
+  // Se lee despues de agregar: si coincide con la del saldo, ningun movimiento cayo entre medias
+  private Mono<Long> currentVersion(String accountId) {
+    return mongoTemplate
+        .findById(accountId, AccountBalance.class)
+        .map(AccountSummaryServiceImpl::versionOf)
+        .defaultIfEmpty(-1L);
+  }
+
+  private static long versionOf(AccountBalance balance) {
+    return balance.getVersion() == null ? -1L : balance.getVersion();
+  }
+
+  private Mono<List<PeriodTotal>> periodTotals(String accountId) {
+    TypedAggregation<Transaction> aggregation =
+        Aggregation.newAggregation(
+            Transaction.class,
+            Aggregation.match(
+                Criteria.where("accountId").is(accountId).and("created").ne(null)),
+            Aggregation.project("transactionType")
+                .and(DateOperators.dateOf("created").toString("%Y-%m"))
+                .as("period")
+                .and(AccountBalanceServiceImpl.signedAmountExpression())
+                .as("delta"),
+            Aggregation.group("period", "transactionType")
+                .count()
+                .as("count")
+                .sum("delta")
+                .as("amount"));
+
+    // Los meses archivados aportan sus totales ya agregados
+    String ownerType = TransactionArchiveBucket.ACCOUNT;
+    Query archived =
+        Query.query(
+            Criteria.where("_id")
+                .gte(TransactionArchiveBucket.bucketId(ownerType, accountId, ""))
+                .lte(TransactionArchiveBucket.bucketId(ownerType, accountId, LAST_PERIOD)));
+    archived.fields().include("period", "totals");
+
+    return mongoTemplate
+        .aggregate(aggregation, Document.class)
+        .map(this::toPeriodTotal)
+        .concatWith(
+            mongoTemplate
+                .find(archived, TransactionArchiveBucket.class)
+                .flatMapIterable(this::toPeriodTotals))
+        .collectList();
+  }
+
+  // true si inserto el mes o fijo su saldo de apertura; netChange y totals vigentes no se tocan
+  private Mono<Boolean> fill(AccountMonthlySummary summary) {
+    Query byId = Query.query(Criteria.where("_id").is(summary.getId()));
+    Update insert =
+        new Update()
+            .setOnInsert("accountId", summary.getAccountId())
+            .setOnInsert("period", summary.getPeriod())
+            .setOnInsert("openingBalance", new Decimal128(summary.getOpeningBalance()))
+            .setOnInsert("netChange", new Decimal128(summary.getNetChange()))
+            .setOnInsert("totals", summary.getTotals());
+    Query withoutOpening =
+        Query.query(Criteria.where("_id").is(summary.getId()).and("openingBalance").is(null));
+    return mongoTemplate
+        .upsert(byId, insert, AccountMonthlySummary.class)
+        .flatMap(
+            inserted ->
+                inserted.getUpsertedId() != null
+                    ? Mono.just(true)
+                    : mongoTemplate
+                        .updateFirst(
+                            withoutOpening,
+                            new Update()
+                                .set(
+                                    "openingBalance",
+                                    new Decimal128(summary.getOpeningBalance())),
+                            AccountMonthlySummary.class)
+                        .map(result -> result.getModifiedCount() > 0));
+  }
+
+  private PeriodTotal toPeriodTotal(Document result) {
+    Document group = result.get("_id", Document.class);
+    return new PeriodTotal(
+        group.getString("period"),
+        TransactionReadConverter.toTransactionType(group.get("transactionType")).name(),
+        new TransactionTypeTotal(
+            result.get("count", Number.class).longValue(),
+            result.get("amount", Decimal128.class).bigDecimalValue()));
+  }
+
+  private List<PeriodTotal> toPeriodTotals(TransactionArchiveBucket bucket) {
+    return bucket.getTotals().entrySet().stream()
+        .map(total -> new PeriodTotal(bucket.getPeriod(), total.getKey(), total.getValue()))
+        .toList();
+  }
+
+  private List<AccountMonthlySummary> toSummaries(
+      String accountId, List<PeriodTotal> periodTotals, Optional<BigDecimal> currentBalance) {
+    TreeMap<String, AccountMonthlySummary> byPeriod = new TreeMap<>();
+    for (PeriodTotal periodTotal : periodTotals) {
+      AccountMonthlySummary summary =
+          byPeriod.computeIfAbsent(
+              periodTotal.period(),
+              key ->
+                  new AccountMonthlySummary(
+                      summaryId(accountId, key),
+                      accountId,
+                      key,
+                      null,
+                      BigDecimal.ZERO,
+                      new HashMap<>()));
+      TransactionTypeTotal total = periodTotal.total();
+      summary.setNetChange(summary.getNetChange().add(total.getAmount()));
+      // Un mes puede estar a medio archivar: se suman ambas partes
+      summary
+          .getTotals()
+          .merge(
+              periodTotal.type(),
+              total,
+              (left, right) ->
+                  new TransactionTypeTotal(
+                      left.getCount() + right.getCount(), left.getAmount().add(right.getAmount())));
+    }
+
+    // Con proyeccion, los saldos se calculan hacia atras desde el saldo actual; sin ella, el
+    // historial se acumula desde cero
+    if (currentBalance.isPresent()) {
+      BigDecimal closing = currentBalance.get();
+      for (AccountMonthlySummary summary : byPeriod.descendingMap().values()) {
+        summary.setOpeningBalance(closing.subtract(summary.getNetChange()));
+        closing = summary.getOpeningBalance();
+      }
+    } else {
+      BigDecimal opening = BigDecimal.ZERO;
+      for (AccountMonthlySummary summary : byPeriod.values()) {
+        summary.setOpeningBalance(opening);
+        opening = opening.add(summary.getNetChange());
+      }
+    }
+    return new ArrayList<>(byPeriod.values());
+  }
+
+  private Mono<AccountMonthlySummary> latestSummary(String accountId, YearMonth month) {
+    Query query =
+        Query.query(
+                Criteria.where("_id")
+                    .gte(summaryId(accountId, ""))
+                    .lte(summaryId(accountId, month.toString())))
+            .with(Sort.by(Sort.Direction.DESC, "_id"))
+            .limit(1);
+    return mongoTemplate.findOne(query, AccountMonthlySummary.class);
+  }
+
+  private MonthlyStatement toStatement(AccountMonthlySummary summary, YearMonth month) {
+    BigDecimal closing =
+        summary.getOpeningBalance() == null
+            ? null
+            : summary.getOpeningBalance().add(summary.getNetChange());
+    if (!month.toString().equals(summary.getPeriod())) {
+      return new MonthlyStatement(
+          summary.getAccountId(), month.toString(), closing, closing, Map.of());
+    }
+    return new MonthlyStatement(
+        summary.getAccountId(),
+        month.toString(),
+        summary.getOpeningBalance(),
+        closing,
+        summary.getTotals());
+  }
+
+  private String summaryId(String accountId, String period) {
+    return accountId + ":" + period;
+  }
+
+  private record PeriodTotal(String period, String type, TransactionTypeTotal total) {}
+}
@@ -0,0 +1,364 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.nttdata.bootcamp.microservicio04.client.AccountClient;
+import com.nttdata.bootcamp.microservicio04.client.BalanceUpdateStage;
+import com.nttdata.bootcamp.microservicio04.client.CreditClient;
+import com.nttdata.bootcamp.microservicio04.model.BalanceOutboxEntry;
+import com.nttdata.bootcamp.microservicio04.model.OutboxLease;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.model.dto.AccountUpdateDto;
+import com.nttdata.bootcamp.microservicio04.model.dto.CreditUpdateDto;
+import com.nttdata.bootcamp.microservicio04.service.AccountBalanceService;
+import com.nttdata.bootcamp.microservicio04.service.BalanceOutboxService;
+import com.nttdata.bootcamp.microservicio04.service.CreditBalanceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Outbox de actualizaciones de saldo hacia los servicios de cuentas y creditos. Las entradas se
+ * escriben en la misma transaccion de Mongo que el ledger; un unico despachador, elegido con un
+ * lease que renueva antes de cada producto, las envia agrupadas por producto en orden de insercion.
+ * Se envia el saldo absoluto de la proyeccion local, asi una entrega repetida es inocua.
+ */
+@Service
+@Slf4j
+public class BalanceOutboxServiceImpl implements BalanceOutboxService {
+
+  private static final String LEASE_ID = "balance-outbox";
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final AccountClient accountClient;
+  private final CreditClient creditClient;
+  private final AccountBalanceService accountBalanceService;
+  private final CreditBalanceService creditBalanceService;
+  private final BalanceUpdateStage accountBalanceUpdateStage;
+  private final BalanceUpdateStage creditBalanceUpdateStage;
+  private final MeterRegistry meterRegistry;
+  private final String instanceId = UUID.randomUUID().toString();
+
+  @Value("${application.outbox.batch-size:500}")
+  private int batchSize;
+
+  @Value("${application.outbox.concurrency:16}")
+  private int concurrency;
+
+  @Value("${application.outbox.max-attempts:10}")
+  private int maxAttempts;
+
+  @Value("${application.outbox.backoff:PT1S}")
+  private Duration backoff;
+
+  @Value("${application.outbox.max-backoff:PT5M}")
+  private Duration maxBackoff;
+
+  @Value("${application.outbox.lease:PT30S}")
+  private Duration lease;
+
+  public BalanceOutboxServiceImpl(
+      ReactiveMongoTemplate mongoTemplate,
+      AccountClient accountClient,
+      CreditClient creditClient,
+      AccountBalanceService accountBalanceService,
+      CreditBalanceService creditBalanceService,
+      BalanceUpdateStage accountBalanceUpdateStage,
+      BalanceUpdateStage creditBalanceUpdateStage,
+      MeterRegistry meterRegistry) {
+    this.mongoTemplate = mongoTemplate;
+    this.accountClient = accountClient;
+    this.creditClient = creditClient;
+    this.accountBalanceService = accountBalanceService;
+    this.creditBalanceService = creditBalanceService;
+    this.accountBalanceUpdateStage = accountBalanceUpdateStage;
+    this.creditBalanceUpdateStage = creditBalanceUpdateStage;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public Mono<Void> enqueue(List<Transaction> transactions) {
+    Instant now = Instant.now();
+    List<BalanceOutboxEntry> entries = new ArrayList<>();
+    for (Transaction transaction : transactions) {
+      // El monto de apertura ya lo registro el servicio de cuentas al crear la cuenta
+      if (TransactionType.OPENING_AMOUNT.equals(transaction.getTransactionType())) {
+        continue;
+      }
+      if (transaction.getAccountId() != null) {
+        entries.add(
+            entry(
+                BalanceOutboxEntry.ACCOUNT,
+                transaction.getAccountId(),
+                AccountBalanceServiceImpl.signedAmount(transaction),
+                transaction,
+                now));
+      } else if (transaction.getCreditId() != null) {
+        entries.add(
+            entry(
+                BalanceOutboxEntry.CREDIT,
+                transaction.getCreditId(),
+                transaction.getAmount(),
+                transaction,
+                now));
+      }
+    }
+    return entries.isEmpty() ? Mono.empty() : mongoTemplate.insertAll(entries).then();
+  }
+
+  @Override
+  public Mono<Long> dispatch() {
+    return acquireLease().flatMap(leader -> leader ? dispatchBatch() : Mono.just(0L));
+  }
+
+  @Override
+  public Mono<Long> replayDeadLetters() {
+    Update update =
+        new Update()
+            .set("status", BalanceOutboxEntry.PENDING)
+            .set("attempts", 0)
+            .set("nextAttemptAt", Instant.now());
+    return mongoTemplate
+        .updateMulti(
+            Query.query(Criteria.where("status").is(BalanceOutboxEntry.DEAD)),
+            update,
+            BalanceOutboxEntry.class)
+        .map(result -> result.getModifiedCount());
+  }
+
+  private Mono<Long> dispatchBatch() {
+    Instant now = Instant.now();
+    Query ready =
+        Query.query(
+                Criteria.where("status")
+                    .is(BalanceOutboxEntry.PENDING)
+                    .and("nextAttemptAt")
+                    .lte(now))
+            .with(Sort.by(Sort.Direction.ASC, "_id"))
+            .limit(batchSize);
+    // Un producto con una entrada en espera de reintento no avanza, asi se conserva el orden
+    Query waiting =
+        Query.query(
+            Criteria.where("status").is(BalanceOutboxEntry.PENDING).and("nextAttemptAt").gt(now));
+    Mono<Set<String>> blocked =
+        mongoTemplate
+            .findDistinct(waiting, "productId", BalanceOutboxEntry.class, String.class)
+            .collect(Collectors.toSet());
+    return Mono.zip(mongoTemplate.find(ready, BalanceOutboxEntry.class).collectList(), blocked)
+        .flatMapMany(tuple -> Flux.fromIterable(groupByProduct(tuple.getT1(), tuple.getT2())))
+        .flatMap(this::deliver, concurrency)
+        .reduce(0L, Long::sum);
+  }
+
+  private Collection<List<BalanceOutboxEntry>> groupByProduct(
+      List<BalanceOutboxEntry> entries, Set<String> blocked) {
+    Map<String, List<BalanceOutboxEntry>> groups = new LinkedHashMap<>();
+    for (BalanceOutboxEntry entry : entries) {
+      if (!blocked.contains(entry.getProductId())) {
+        String key = entry.getTarget() + ":" + entry.getProductId();
+        groups.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+      }
+    }
+    return groups.values();
+  }
+
+  // Otra instancia pudo tomar el lease mientras esta entregaba los productos anteriores
+  private Mono<Long> deliver(List<BalanceOutboxEntry> group) {
+    return renewLease()
+        .flatMap(
+            held -> {
+              if (!held) {
+                log.warn("Balance outbox lease lost, skipping [{}]", group.get(0).getProductId());
+                return Mono.just(0L);
+              }
+              return send(group);
+            });
+  }
+
+  private Mono<Long> send(List<BalanceOutboxEntry> group) {
+    BalanceOutboxEntry first = group.get(0);
+    Mono<Void> call =
+        legacyDeltas(group)
+            .then(
+                group.stream().anyMatch(entry -> Boolean.TRUE.equals(entry.getProjected()))
+                    ? sendBalance(first.getTarget(), first.getProductId())
+                    : Mono.empty());
+    Query delivered = Query.query(Criteria.where("_id").in(ids(group)));
+    return call.then(mongoTemplate.remove(delivered, BalanceOutboxEntry.class))
+        .doOnSuccess(
+            result -> {
+              counter("balance.outbox.delivered", first.getTarget()).increment(group.size());
+              Timer.builder("balance.outbox.lag")
+                  .tag("target", first.getTarget())
+                  .publishPercentileHistogram()
+                  .register(meterRegistry)
+                  .record(Duration.between(first.getCreatedAt(), Instant.now()));
+            })
+        .thenReturn((long) group.size())
+        .onErrorResume(e -> fail(group, e).thenReturn(0L));
+  }
+
+  // Entradas anteriores a las proyecciones locales: el ledger no las sumo, se envia su delta y
+  // siempre antes de sembrar la proyeccion con el saldo remoto
+  private Mono<Void> legacyDeltas(List<BalanceOutboxEntry> group) {
+    BalanceOutboxEntry first = group.get(0);
+    return group.stream()
+        .filter(entry -> !Boolean.TRUE.equals(entry.getProjected()))
+        .map(BalanceOutboxEntry::getDelta)
+        .reduce(BigDecimal::add)
+        .map(
+            delta ->
+                BalanceOutboxEntry.ACCOUNT.equals(first.getTarget())
+                    ? accountBalanceUpdateStage.submit(first.getProductId(), delta)
+                    : creditBalanceUpdateStage.submit(first.getProductId(), delta))
+        .orElse(Mono.empty());
+  }
+
+  private Mono<Void> sendBalance(String target, String productId) {
+    return BalanceOutboxEntry.ACCOUNT.equals(target)
+        ? accountBalanceService
+            .settled(productId)
+            .flatMap(
+                balance ->
+                    accountClient.updateById(
+                        productId, new AccountUpdateDto(balance.getBalance())))
+            .then()
+        : creditBalanceService
+            .settled(productId)
+            .flatMap(
+                balance ->
+                    creditClient.updateById(productId, new CreditUpdateDto(balance.getBalance())))
+            .then();
+  }
+
+  private Mono<Void> fail(List<BalanceOutboxEntry> group, Throwable error) {
+    BalanceOutboxEntry first = group.get(0);
+    int attempts = group.stream().mapToInt(entry -> entry.getAttempts() + 1).max().orElse(1);
+    Query entries = Query.query(Criteria.where("_id").in(ids(group)));
+    if (attempts >= maxAttempts) {
+      log.error(
+          "Balance update for {} [{}] moved to dead letter after {} attempts",
+          first.getTarget(),
+          first.getProductId(),
+          attempts,
+          error);
+      counter("balance.outbox.dead", first.getTarget()).increment(group.size());
+      return mongoTemplate
+          .updateMulti(
+              entries,
+              new Update()
+                  .set("status", BalanceOutboxEntry.DEAD)
+                  .set("attempts", attempts)
+                  .set("lastError", String.valueOf(error.getMessage())),
+              BalanceOutboxEntry.class)
+          .then();
+    }
+    log.warn(
+        "Balance update for {} [{}] failed, attempt {}",
+        first.getTarget(),
+        first.getProductId(),
+        attempts,
+        error);
+    counter("balance.outbox.retried", first.getTarget()).increment(group.size());
+    long factor = 1L << Math.min(attempts - 1, 20);
+    Duration delay = backoff.multipliedBy(factor);
+    Instant nextAttemptAt =
+        Instant.now().plus(delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay);
+    // Se retrasan tambien las entradas posteriores del mismo producto
+    Query product =
+        Query.query(
+            Criteria.where("productId")
+                .is(first.getProductId())
+                .and("status")
+                .is(BalanceOutboxEntry.PENDING));
+    return mongoTemplate
+        .updateMulti(
+            entries,
+            new Update()
+                .set("attempts", attempts)
+                .set("lastError", String.valueOf(error.getMessage())),
+            BalanceOutboxEntry.class)
+        .then(
+            mongoTemplate.updateMulti(
+                product,
+                new Update().set("nextAttemptAt", nextAttemptAt),
+                BalanceOutboxEntry.class))
+        .then();
+  }
+
+  private Mono<Boolean> acquireLease() {
+    Instant now = Instant.now();
+    Query query =
+        Query.query(
+            Criteria.where("_id")
+                .is(LEASE_ID)
+                .orOperator(
+                    Criteria.where("expiresAt").lt(now), Criteria.where("owner").is(instanceId)));
+    Update update = new Update().set("owner", instanceId).set("expiresAt", now.plus(lease));
+    // Si otra instancia tiene el lease vigente el upsert choca con su _id
+    return mongoTemplate
+        .upsert(query, update, OutboxLease.class)
+        .thenReturn(true)
+        .onErrorResume(DuplicateKeyException.class, e -> Mono.just(false));
+  }
+
+  private Mono<Boolean> renewLease() {
+    Instant now = Instant.now();
+    Query query =
+        Query.query(
+            Criteria.where("_id")
+                .is(LEASE_ID)
+                .and("owner")
+                .is(instanceId)
+                .and("expiresAt")
+                .gt(now));
+    return mongoTemplate
+        .updateFirst(query, new Update().set("expiresAt", now.plus(lease)), OutboxLease.class)
+        .map(result -> result.getMatchedCount() > 0);
+  }
+
+  private Counter counter(String name, String target) {
+    return Counter.builder(name).tag("target", target).register(meterRegistry);
+  }
+
+  private static List<String> ids(List<BalanceOutboxEntry> group) {
+    return group.stream().map(BalanceOutboxEntry::getId).toList();
+  }
+
+  private static BalanceOutboxEntry entry(
+      String target, String productId, BigDecimal delta, Transaction transaction, Instant now) {
+    return new BalanceOutboxEntry(
+        null,
+        target,
+        productId,
+        delta,
+        transaction.getId(),
+        BalanceOutboxEntry.PENDING,
+        0,
+        now,
+        null,
+        now,
+        true);
+  }
+}
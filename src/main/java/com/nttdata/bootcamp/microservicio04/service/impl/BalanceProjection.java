@@ -0,0 +1,98 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+/**
+ * Proyeccion local del saldo de un producto (cuenta o credito). Cada movimiento del ledger la
+ * incrementa con upsert; si aun no existia queda provisional, con solo los movimientos locales,
+ * hasta sumarle el saldo remoto leido sin cache. El outbox no envia nada de un producto
+ * provisional antes de sembrarlo, asi el saldo remoto nunca incluye esos movimientos y no se
+ * cuentan dos veces.
+ */
+class BalanceProjection<T> {
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final Class<T> type;
+  private final Predicate<T> provisional;
+
+  BalanceProjection(ReactiveMongoTemplate mongoTemplate, Class<T> type, Predicate<T> provisional) {
+    this.mongoTemplate = mongoTemplate;
+    this.type = type;
+    this.provisional = provisional;
+  }
+
+  Mono<T> apply(String id, BigDecimal delta) {
+    Update update =
+        new Update()
+            .inc("balance", new Decimal128(delta))
+            .inc("version", 1L)
+            .set("updated", LocalDateTime.now())
+            .setOnInsert("provisional", true);
+    return mongoTemplate.findAndModify(
+        byId(id), update, FindAndModifyOptions.options().upsert(true).returnNew(true), type);
+  }
+
+  // Proyeccion definitiva; el saldo remoto solo se lee si falta o sigue provisional
+  Mono<T> settled(String id, Supplier<Mono<BigDecimal>> remoteBalance) {
+    return mongoTemplate
+        .findById(id, type)
+        .filter(projection -> !provisional.test(projection))
+        .switchIfEmpty(Mono.defer(() -> remoteBalance.get().flatMap(remote -> seed(id, remote))));
+  }
+
+  private Mono<T> seed(String id, BigDecimal remote) {
+    Query pending = Query.query(Criteria.where("_id").is(id).and("provisional").is(true));
+    Update settle =
+        new Update()
+            .inc("balance", new Decimal128(remote))
+            .unset("provisional")
+            .set("updated", LocalDateTime.now());
+    Update insert =
+        new Update()
+            .setOnInsert("balance", new Decimal128(remote))
+            .setOnInsert("version", 0L)
+            .setOnInsert("updated", LocalDateTime.now());
+    // Si un movimiento crea la proyeccion provisional entre ambos pasos, se vuelve a sembrar
+    return mongoTemplate
+        .findAndModify(pending, settle, FindAndModifyOptions.options().returnNew(true), type)
+        .switchIfEmpty(
+            Mono.defer(
+                () ->
+                    mongoTemplate.findAndModify(
+                        byId(id),
+                        insert,
+                        FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        type)))
+        .flatMap(
+            projection -> provisional.test(projection) ? seed(id, remote) : Mono.just(projection));
+  }
+
+  // Reemplaza una proyeccion definitiva por el saldo remoto solo si ningun movimiento la cambio
+  // desde que se leyo esa version; vacio si hubo un conflicto
+  Mono<T> reseed(String id, Long version, BigDecimal remote) {
+    Query unchanged =
+        Query.query(
+            Criteria.where("_id").is(id).and("version").is(version).and("provisional").ne(true));
+    Update update =
+        new Update()
+            .set("balance", new Decimal128(remote))
+            .inc("version", 1L)
+            .set("updated", LocalDateTime.now());
+    return mongoTemplate.findAndModify(
+        unchanged, update, FindAndModifyOptions.options().returnNew(true), type);
+  }
+
+  private static Query byId(String id) {
+    return Query.query(Criteria.where("_id").is(id));
+  }
+}
@@ -0,0 +1,41 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.nttdata.bootcamp.microservicio04.client.CreditClient;
+import com.nttdata.bootcamp.microservicio04.model.Credit;
+import com.nttdata.bootcamp.microservicio04.model.CreditBalance;
+import com.nttdata.bootcamp.microservicio04.service.CreditBalanceService;
+import java.math.BigDecimal;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Saldo local de cada credito, mantenido por el ledger. El outbox envia este saldo absoluto al
+ * servicio de creditos, asi reenviar una actualizacion no la aplica dos veces.
+ */
+@Service
+public class CreditBalanceServiceImpl implements CreditBalanceService {
+
+  private final CreditClient creditClient;
+  private final BalanceProjection<CreditBalance> projection;
+
+  public CreditBalanceServiceImpl(ReactiveMongoTemplate mongoTemplate, CreditClient creditClient) {
+    this.creditClient = creditClient;
+    this.projection =
+        new BalanceProjection<>(
+            mongoTemplate,
+            CreditBalance.class,
+            balance -> Boolean.TRUE.equals(balance.getProvisional()));
+  }
+
+  @Override
+  public Mono<CreditBalance> settled(String creditId) {
+    return projection.settled(
+        creditId, () -> creditClient.findFreshById(creditId).map(Credit::getAmountAvailable));
+  }
+
+  @Override
+  public Mono<CreditBalance> apply(String creditId, BigDecimal delta) {
+    return projection.apply(creditId, delta);
+  }
+}
@@ -0,0 +1,274 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.nttdata.bootcamp.microservicio04.model.IdempotencyRecord;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.service.IdempotencyService;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Deduplica la creacion de transacciones por Idempotency-Key. La primera peticion reclama la clave
+ * insertando un registro en curso; las repetidas devuelven la respuesta guardada. En la misma
+ * instancia los duplicados concurrentes comparten la ejecucion en curso a traves de la cache, y
+ * entre instancias esperan a que el registro se complete. La reclamacion tiene un plazo que el
+ * dueno renueva mientras ejecuta; si el dueno cae, otra peticion con la misma clave la retoma al
+ * vencer, y si la clave se libera tras un fallo se vuelve a reclamar. La respuesta se guarda en la
+ * misma transaccion que la escritura del ledger, asi una clave nunca queda libre ni a medias con la
+ * transaccion ya escrita.
+ */
+@Service
+@Slf4j
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+  // La reclamacion en curso viaja en el contexto de Reactor hasta la escritura del ledger
+  private static final String CLAIM_CONTEXT_KEY = IdempotencyRecord.class.getName();
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final AsyncCache<String, IdempotencyRecord> idempotencyCache;
+
+  @Value("${application.idempotency.in-flight-timeout:PT10S}")
+  private Duration inFlightTimeout;
+
+  @Value("${application.idempotency.poll-interval:PT0.1S}")
+  private Duration pollInterval;
+
+  @Value("${application.idempotency.claim-lease:PT5S}")
+  private Duration claimLease;
+
+  public IdempotencyServiceImpl(
+      ReactiveMongoTemplate mongoTemplate,
+      AsyncCache<String, IdempotencyRecord> idempotencyCache) {
+    this.mongoTemplate = mongoTemplate;
+    this.idempotencyCache = idempotencyCache;
+  }
+
+  @Override
+  public Mono<Transaction> execute(
+      String idempotencyKey, Transaction request, Supplier<Mono<Transaction>> action) {
+    // La huella se toma antes de ejecutar: la creacion modifica la transaccion recibida
+    String fingerprint = fingerprint(request);
+    return Mono.fromFuture(
+            () ->
+                idempotencyCache.get(
+                    idempotencyKey,
+                    (key, executor) -> resolve(key, fingerprint, action).toFuture()),
+            true)
+        .flatMap(
+            stored ->
+                fingerprint.equals(stored.getFingerprint())
+                    ? Mono.justOrEmpty(stored.getResponse())
+                    : error(ErrorCode.IDEMPOTENCY_KEY_REUSED));
+  }
+
+  // Cada intento emite el resultado final, o termina vacio para volver a consultar tras la espera.
+  // El limite de espera no corta una ejecucion propia ya en marcha
+  private Mono<IdempotencyRecord> resolve(
+      String key, String fingerprint, Supplier<Mono<Transaction>> action) {
+    Instant deadline = Instant.now().plus(inFlightTimeout);
+    return Mono.defer(() -> attempt(key, fingerprint, action, deadline))
+        .repeatWhenEmpty(attempts -> attempts.delayElements(pollInterval))
+        .flatMap(Mono::justOrEmpty);
+  }
+
+  private Mono<Optional<IdempotencyRecord>> attempt(
+      String key, String fingerprint, Supplier<Mono<Transaction>> action, Instant deadline) {
+    Instant now = Instant.now();
+    IdempotencyRecord claim =
+        new IdempotencyRecord(
+            key, fingerprint, false, null, now, newToken(), now.plus(claimLease));
+    return mongoTemplate
+        .insert(claim)
+        .flatMap(claimed -> run(claimed, action))
+        .onErrorResume(
+            DuplicateKeyException.class, e -> claimed(key, fingerprint, action, deadline));
+  }
+
+  // La clave ya existe: respuesta guardada, otra huella, reclamacion vencida o en curso
+  private Mono<Optional<IdempotencyRecord>> claimed(
+      String key, String fingerprint, Supplier<Mono<Transaction>> action, Instant deadline) {
+    return mongoTemplate
+        .findById(key, IdempotencyRecord.class)
+        .flatMap(
+            stored -> {
+              if (Boolean.TRUE.equals(stored.getCompleted())
+                  || !fingerprint.equals(stored.getFingerprint())) {
+                return Mono.just(Optional.of(stored));
+              }
+              if (expiresAt(stored).isBefore(Instant.now())) {
+                return takeOver(stored).flatMap(claim -> run(claim, action));
+              }
+              if (Instant.now().isAfter(deadline)) {
+                return error(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS);
+              }
+              log.debug("Waiting for the in-flight request with Idempotency-Key {}", key);
+              return Mono.empty();
+            });
+  }
+
+  // Solo una peticion retoma una reclamacion vencida: la que cambia el token
+  private Mono<IdempotencyRecord> takeOver(IdempotencyRecord stored) {
+    Instant now = Instant.now();
+    Criteria expired =
+        stored.getClaimExpiresAt() == null
+            ? Criteria.where("claimExpiresAt").exists(false)
+            : Criteria.where("claimExpiresAt").is(stored.getClaimExpiresAt());
+    Query query =
+        Query.query(
+            Criteria.where("id")
+                .is(stored.getId())
+                .and("completed")
+                .is(false)
+                .and("claimToken")
+                .is(stored.getClaimToken())
+                .andOperator(expired));
+    Update update =
+        new Update().set("claimToken", newToken()).set("claimExpiresAt", now.plus(claimLease));
+    return mongoTemplate
+        .findAndModify(
+            query, update, FindAndModifyOptions.options().returnNew(true), IdempotencyRecord.class)
+        .doOnNext(
+            claim -> log.warn("Took over the expired Idempotency-Key {}", claim.getId()));
+  }
+
+  private Mono<Optional<IdempotencyRecord>> run(
+      IdempotencyRecord claim, Supplier<Mono<Transaction>> action) {
+    return Mono.defer(
+            () -> {
+              Disposable heartbeat =
+                  Flux.interval(claimLease.dividedBy(3))
+                      .concatMap(tick -> renew(claim))
+                      .subscribe();
+              return Mono.defer(action).doFinally(signal -> heartbeat.dispose());
+            })
+        .contextWrite(context -> context.put(CLAIM_CONTEXT_KEY, claim))
+        // Si la creacion falla se libera la clave para que el reintento vuelva a ejecutarla; una
+        // clave ya completada en la transaccion del ledger no se libera
+        .onErrorResume(e -> release(claim).then(Mono.error(e)))
+        .flatMap(transaction -> completed(claim, transaction))
+        .map(Optional::of)
+        .switchIfEmpty(Mono.defer(() -> release(claim).thenReturn(Optional.empty())));
+  }
+
+  @Override
+  public Mono<Void> complete(Transaction response) {
+    return Mono.deferContextual(
+        context ->
+            context
+                .<IdempotencyRecord>getOrEmpty(CLAIM_CONTEXT_KEY)
+                .map(claim -> markCompleted(claim, response))
+                .orElse(Mono.empty()));
+  }
+
+  // Una reclamacion retomada por otra peticion hace fallar la escritura que la acompana
+  private Mono<Void> markCompleted(IdempotencyRecord claim, Transaction response) {
+    Update update = new Update().set("completed", true).set("response", response);
+    return mongoTemplate
+        .updateFirst(pending(claim), update, IdempotencyRecord.class)
+        .flatMap(
+            result -> {
+              if (result.getMatchedCount() == 0) {
+                log.warn("Idempotency-Key {} was taken over before completing", claim.getId());
+                return error(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS);
+              }
+              claim.setCompleted(true);
+              claim.setResponse(response);
+              return Mono.empty();
+            });
+  }
+
+  // Tras emitir la accion la clave ya no se libera: si no paso por el ledger se completa aqui
+  private Mono<IdempotencyRecord> completed(IdempotencyRecord claim, Transaction transaction) {
+    if (Boolean.TRUE.equals(claim.getCompleted())) {
+      return Mono.just(claim);
+    }
+    return markCompleted(claim, transaction)
+        .retryWhen(Retry.backoff(3, pollInterval).filter(e -> !isTakenOver(e)))
+        .thenReturn(claim);
+  }
+
+  private Mono<Void> renew(IdempotencyRecord claim) {
+    return mongoTemplate
+        .updateFirst(
+            ownedBy(claim),
+            new Update().set("claimExpiresAt", Instant.now().plus(claimLease)),
+            IdempotencyRecord.class)
+        .doOnError(e -> log.warn("Error renewing Idempotency-Key {}", claim.getId(), e))
+        .onErrorResume(e -> Mono.empty())
+        .then();
+  }
+
+  private Mono<Void> release(IdempotencyRecord claim) {
+    return mongoTemplate
+        .remove(pending(claim), IdempotencyRecord.class)
+        .doOnError(e -> log.error("Error releasing Idempotency-Key {}", claim.getId(), e))
+        .onErrorResume(e -> Mono.empty())
+        .then();
+  }
+
+  private Instant expiresAt(IdempotencyRecord stored) {
+    // Registros anteriores al plazo de reclamacion: vencen un plazo despues de crearse
+    return stored.getClaimExpiresAt() != null
+        ? stored.getClaimExpiresAt()
+        : stored.getCreatedAt().plus(claimLease);
+  }
+
+  private static Query ownedBy(IdempotencyRecord claim) {
+    return Query.query(
+        Criteria.where("id").is(claim.getId()).and("claimToken").is(claim.getClaimToken()));
+  }
+
+  private static Query pending(IdempotencyRecord claim) {
+    return Query.query(
+        Criteria.where("id")
+            .is(claim.getId())
+            .and("claimToken")
+            .is(claim.getClaimToken())
+            .and("completed")
+            .is(false));
+  }
+
+  private static boolean isTakenOver(Throwable error) {
+    return error instanceof OperationNoCompletedException ex
+        && ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS.equals(ex.getError());
+  }
+
+  private static String newToken() {
+    return UUID.randomUUID().toString();
+  }
+
+  private static String fingerprint(Transaction request) {
+    BigDecimal amount = request.getAmount();
+    return String.join(
+        "|",
+        Objects.toString(request.getTransactionType(), ""),
+        Objects.toString(request.getAccountId(), ""),
+        Objects.toString(request.getDestinationAccountId(), ""),
+        Objects.toString(request.getCreditId(), ""),
+        amount == null ? "" : amount.stripTrailingZeros().toPlainString());
+  }
+
+  private static <T> Mono<T> error(ErrorCode errorCode) {
+    return Mono.error(new OperationNoCompletedException(errorCode));
+  }
+}
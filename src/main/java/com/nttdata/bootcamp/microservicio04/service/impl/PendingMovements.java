@@ -0,0 +1,61 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Movimientos de lotes ya validados que aun no estan en el ledger. La validacion de los siguientes
+ * movimientos de la misma cuenta los suma al saldo y al contador del mes. Solo cuentan los cargos:
+ * un abono pendiente puede fallar al escribirse y no debe habilitar otro cargo. Entre la escritura
+ * del bloque y su retirada de aqui un cargo cuenta dos veces, lo que solo puede rechazar de mas.
+ */
+final class PendingMovements {
+
+  private final Map<String, BigDecimal> debits = new ConcurrentHashMap<>();
+  private final Map<String, Long> ownerTransactions = new ConcurrentHashMap<>();
+
+  static PendingMovements none() {
+    return new PendingMovements();
+  }
+
+  BigDecimal debits(String accountId) {
+    return debits.getOrDefault(accountId, BigDecimal.ZERO);
+  }
+
+  long ownerTransactions(String accountId) {
+    return ownerTransactions.getOrDefault(accountId, 0L);
+  }
+
+  void add(List<Transaction> transactions) {
+    transactions.forEach(transaction -> track(transaction, 1));
+  }
+
+  // Tras escribir el bloque (o al fallar) el ledger ya refleja, o descarta, estos movimientos
+  void remove(List<Transaction> transactions) {
+    transactions.forEach(transaction -> track(transaction, -1));
+  }
+
+  // Las cuentas sin pendientes salen del mapa
+  private static BigDecimal sum(BigDecimal current, BigDecimal change) {
+    BigDecimal result = current.add(change);
+    return result.signum() == 0 ? null : result;
+  }
+
+  private void track(Transaction transaction, int sign) {
+    String accountId = transaction.getAccountId();
+    if (accountId == null) {
+      return;
+    }
+    BigDecimal delta = AccountBalanceServiceImpl.signedAmount(transaction);
+    if (delta.signum() < 0) {
+      BigDecimal change = sign > 0 ? delta : delta.negate();
+      debits.merge(accountId, change, PendingMovements::sum);
+    }
+    if (Boolean.TRUE.equals(transaction.getOwnerTransaction())) {
+      ownerTransactions.merge(accountId, (long) sign, (a, b) -> a + b == 0 ? null : a + b);
+    }
+  }
+}
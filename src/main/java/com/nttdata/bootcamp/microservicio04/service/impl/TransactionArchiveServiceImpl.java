@@ -0,0 +1,381 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.nttdata.bootcamp.microservicio04.config.MongoTransactions;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionArchiveBucket;
+import com.nttdata.bootcamp.microservicio04.model.TransactionColumns;
+import com.nttdata.bootcamp.microservicio04.model.TransactionTypeTotal;
+import com.nttdata.bootcamp.microservicio04.service.TransactionArchiveService;
+import com.nttdata.bootcamp.microservicio04.utils.PageCursor;
+import com.nttdata.bootcamp.microservicio04.utils.TransactionOrder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Archivo de transacciones antiguas en buckets por producto y mes. Un mes con muchos movimientos
+ * se reparte en varios buckets de como mucho max-bucket-size transacciones, lejos del limite de
+ * 16MB de un documento. La coleccion transaction conserva solo los meses recientes; las lecturas
+ * por cuenta o credito combinan ambas fuentes en el orden del historial.
+ */
+@Service
+@Slf4j
+public class TransactionArchiveServiceImpl implements TransactionArchiveService {
+
+  // Mayor que cualquier periodo yyyy-MM
+  private static final String LAST_PERIOD = "\uffff";
+  // Los buckets pueden ser grandes: se piden de pocos en pocos
+  private static final int BUCKET_BATCH_SIZE = 2;
+  private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final MongoTransactions mongoTransactions;
+
+  @Value("${application.archive.min-age-months:12}")
+  private int minAgeMonths;
+
+  @Value("${application.archive.buckets-per-run:500}")
+  private int bucketsPerRun;
+
+  @Value("${application.archive.compression:false}")
+  private boolean compression;
+
+  @Value("${application.archive.max-bucket-size:10000}")
+  private int maxBucketSize;
+
+  public TransactionArchiveServiceImpl(
+      ReactiveMongoTemplate mongoTemplate, MongoTransactions mongoTransactions) {
+    this.mongoTemplate = mongoTemplate;
+    this.mongoTransactions = mongoTransactions;
+  }
+
+  // Cada ronda archiva como mucho buckets-per-run meses completos anteriores al corte. Si el
+  // proceso se corta entre escribir un bucket y borrar sus transacciones, la siguiente ronda las
+  // vuelve a fusionar y el id evita duplicados
+  @Override
+  public Mono<Long> archive() {
+    LocalDate cutoff = YearMonth.now().minusMonths(minAgeMonths).atDay(1);
+    TypedAggregation<Transaction> pending =
+        Aggregation.newAggregation(
+            Transaction.class,
+            Aggregation.match(
+                Criteria.where("created")
+                    .lt(cutoff)
+                    .orOperator(
+                        Criteria.where("accountId").ne(null), Criteria.where("creditId").ne(null))),
+            Aggregation.project("accountId", "creditId")
+                .and(
+                    DateOperators.dateOf("created")
+                        .withTimezone(DateOperators.Timezone.fromZone(ZoneId.systemDefault()))
+                        .toString("%Y-%m"))
+                .as("period"),
+            Aggregation.group("accountId", "creditId", "period"),
+            Aggregation.limit(bucketsPerRun));
+    return mongoTemplate
+        .aggregate(pending, Document.class)
+        .map(result -> result.get("_id", Document.class))
+        .concatMap(this::archiveBucket)
+        .reduce(0L, Long::sum)
+        .doOnNext(archived -> log.info("Archived {} transactions older than {}", archived, cutoff));
+  }
+
+  @Override
+  public Mono<Transaction> findById(String transactionId) {
+    Query query = Query.query(Criteria.where("ids").is(transactionId));
+    return mongoTemplate
+        .findOne(query, TransactionArchiveBucket.class)
+        .flatMapIterable(this::entries)
+        .filter(transaction -> transactionId.equals(transaction.getId()))
+        .next();
+  }
+
+  @Override
+  public Flux<Transaction> findAll() {
+    Query query = new Query().cursorBatchSize(BUCKET_BATCH_SIZE);
+    return mongoTemplate.find(query, TransactionArchiveBucket.class).flatMapIterable(this::entries);
+  }
+
+  @Override
+  public Flux<Transaction> findByAccountId(String accountId, PageCursor after) {
+    return findByOwner(TransactionArchiveBucket.ACCOUNT, accountId, after);
+  }
+
+  @Override
+  public Flux<Transaction> findByCreditId(String creditId, PageCursor after) {
+    return findByOwner(TransactionArchiveBucket.CREDIT, creditId, after);
+  }
+
+  // El _id empieza por el producto y sigue con el periodo y la parte: un rango sobre _id en orden
+  // descendente recorre los meses, y las partes de cada mes, de la mas reciente a la mas antigua
+  private Flux<Transaction> findByOwner(String ownerType, String ownerId, PageCursor after) {
+    String lastPeriod = after == null ? LAST_PERIOD : YearMonth.from(after.created()).toString();
+    Query query =
+        Query.query(
+                Criteria.where("_id")
+                    .gte(TransactionArchiveBucket.bucketId(ownerType, ownerId, ""))
+                    .lte(
+                        TransactionArchiveBucket.bucketId(ownerType, ownerId, lastPeriod)
+                            + LAST_PERIOD))
+            .with(Sort.by(Sort.Direction.DESC, "_id"))
+            .cursorBatchSize(BUCKET_BATCH_SIZE);
+    Flux<Transaction> transactions =
+        mongoTemplate.find(query, TransactionArchiveBucket.class).flatMapIterable(this::entries);
+    return after == null ? transactions : transactions.filter(after::precedes);
+  }
+
+  private Mono<Long> archiveBucket(Document group) {
+    String accountId = group.getString("accountId");
+    String ownerType =
+        accountId != null ? TransactionArchiveBucket.ACCOUNT : TransactionArchiveBucket.CREDIT;
+    String ownerId = accountId != null ? accountId : group.getString("creditId");
+    YearMonth period = YearMonth.parse(group.getString("period"));
+    String monthId = TransactionArchiveBucket.bucketId(ownerType, ownerId, period.toString());
+    Query hot =
+        Query.query(
+            Criteria.where(accountId != null ? "accountId" : "creditId")
+                .is(ownerId)
+                .and("created")
+                .gte(period.atDay(1))
+                .lt(period.plusMonths(1).atDay(1)));
+    // Todas las partes del mes, y el bucket sin parte de versiones anteriores
+    Query archived = Query.query(Criteria.where("_id").gte(monthId).lte(monthId + LAST_PERIOD));
+
+    Mono<Long> move =
+        mongoTemplate
+            .find(hot, Transaction.class)
+            .collectList()
+            .filter(transactions -> !transactions.isEmpty())
+            .flatMap(
+                transactions ->
+                    mongoTemplate
+                        .find(archived, TransactionArchiveBucket.class)
+                        .collectList()
+                        .flatMap(
+                            existing ->
+                                saveMonth(
+                                    existing,
+                                    transactions,
+                                    newBucket(monthId, ownerType, ownerId, period)))
+                        .then(
+                            mongoTemplate.remove(
+                                Query.query(Criteria.where("_id").in(ids(transactions))),
+                                Transaction.class))
+                        .thenReturn((long) transactions.size()))
+            .defaultIfEmpty(0L);
+
+    // Otra instancia archivo el mismo mes a la vez; se reintenta en la siguiente ronda
+    return mongoTransactions
+        .inTransaction(move)
+        .onErrorResume(
+            error ->
+                error instanceof OptimisticLockingFailureException
+                    || error instanceof DuplicateKeyException,
+            error -> {
+              log.warn("Bucket {} changed while archiving, retrying later", monthId);
+              return Mono.just(0L);
+            });
+  }
+
+  // Vuelve a repartir el mes completo, de la parte 0 (lo mas antiguo) en adelante. Las partes
+  // existentes conservan su version; las que sobran, como el bucket sin parte, se borran
+  private Mono<Void> saveMonth(
+      List<TransactionArchiveBucket> existing,
+      List<Transaction> transactions,
+      TransactionArchiveBucket template) {
+    Map<String, Transaction> byId = new LinkedHashMap<>();
+    existing.forEach(bucket -> entries(bucket).forEach(t -> byId.put(t.getId(), t)));
+    transactions.forEach(transaction -> byId.put(transaction.getId(), transaction));
+    List<Transaction> merged = new ArrayList<>(byId.values());
+    merged.sort(TransactionOrder.NEWEST_FIRST.reversed());
+
+    Map<String, TransactionArchiveBucket> existingById = new HashMap<>();
+    existing.forEach(bucket -> existingById.put(bucket.getId(), bucket));
+    List<TransactionArchiveBucket> parts = new ArrayList<>();
+    for (int from = 0, part = 0; from < merged.size(); from += maxBucketSize, part++) {
+      String partId = TransactionArchiveBucket.partId(template.getId(), part);
+      TransactionArchiveBucket bucket =
+          existingById.getOrDefault(partId, newPart(template, partId));
+      parts.add(fill(bucket, merged.subList(from, Math.min(from + maxBucketSize, merged.size()))));
+    }
+    List<String> partIds = parts.stream().map(TransactionArchiveBucket::getId).toList();
+    List<String> stale =
+        existing.stream()
+            .map(TransactionArchiveBucket::getId)
+            .filter(id -> !partIds.contains(id))
+            .toList();
+    return Flux.fromIterable(parts)
+        .concatMap(mongoTemplate::save)
+        .then(
+            stale.isEmpty()
+                ? Mono.empty()
+                : mongoTemplate
+                    .remove(
+                        Query.query(Criteria.where("_id").in(stale)),
+                        TransactionArchiveBucket.class)
+                    .then());
+  }
+
+  private TransactionArchiveBucket newBucket(
+      String bucketId, String ownerType, String ownerId, YearMonth period) {
+    TransactionArchiveBucket bucket = new TransactionArchiveBucket();
+    bucket.setId(bucketId);
+    bucket.setOwnerType(ownerType);
+    bucket.setOwnerId(ownerId);
+    bucket.setPeriod(period.toString());
+    return bucket;
+  }
+
+  private TransactionArchiveBucket newPart(TransactionArchiveBucket template, String partId) {
+    return newBucket(
+        partId,
+        template.getOwnerType(),
+        template.getOwnerId(),
+        YearMonth.parse(template.getPeriod()));
+  }
+
+  private TransactionArchiveBucket fill(
+      TransactionArchiveBucket bucket, List<Transaction> transactions) {
+    List<Transaction> merged = new ArrayList<>(transactions);
+    merged.sort(TransactionOrder.NEWEST_FIRST);
+
+    BigDecimal netChange = BigDecimal.ZERO;
+    Map<String, TransactionTypeTotal> totals = new HashMap<>();
+    for (Transaction transaction : merged) {
+      if (transaction.getAmount() == null) {
+        continue;
+      }
+      BigDecimal delta = AccountBalanceServiceImpl.signedAmount(transaction);
+      netChange = netChange.add(delta);
+      TransactionTypeTotal total =
+          totals.computeIfAbsent(
+              String.valueOf(transaction.getTransactionType()),
+              type -> new TransactionTypeTotal(0L, BigDecimal.ZERO));
+      total.setCount(total.getCount() + 1);
+      total.setAmount(total.getAmount().add(delta));
+    }
+
+    TransactionColumns columns =
+        new TransactionColumns(
+            column(merged, transaction -> toDecimal128(transaction.getAmount())),
+            column(merged, Transaction::getCreated),
+            column(merged, Transaction::getTransactionType),
+            column(merged, Transaction::getDestinationAccountId),
+            column(merged, Transaction::getOwnerTransaction),
+            column(merged, Transaction::getActive));
+    bucket.setIds(ids(merged));
+    bucket.setCount((long) merged.size());
+    bucket.setOwnerCount(
+        merged.stream()
+            .filter(transaction -> Boolean.TRUE.equals(transaction.getOwnerTransaction()))
+            .count());
+    bucket.setNetChange(netChange);
+    bucket.setTotals(totals);
+    bucket.setColumns(compression ? null : columns);
+    bucket.setPackedColumns(compression ? pack(columns) : null);
+    bucket.setArchivedAt(Instant.now());
+    return bucket;
+  }
+
+  private List<Transaction> entries(TransactionArchiveBucket bucket) {
+    if (bucket.getIds() == null) {
+      return List.of();
+    }
+    TransactionColumns columns =
+        bucket.getPackedColumns() != null ? unpack(bucket.getPackedColumns()) : bucket.getColumns();
+    boolean account = TransactionArchiveBucket.ACCOUNT.equals(bucket.getOwnerType());
+    List<Transaction> transactions = new ArrayList<>(bucket.getIds().size());
+    for (int i = 0; i < bucket.getIds().size(); i++) {
+      Decimal128 amount = columns.getAmounts().get(i);
+      transactions.add(
+          new Transaction(
+              bucket.getIds().get(i),
+              amount == null ? null : amount.bigDecimalValue(),
+              columns.getCreated().get(i),
+              columns.getTypes().get(i),
+              account ? bucket.getOwnerId() : null,
+              columns.getDestinationAccountIds().get(i),
+              columns.getOwnerTransactions().get(i),
+              account ? null : bucket.getOwnerId(),
+              columns.getActive().get(i)));
+    }
+    return transactions;
+  }
+
+  // Columnas como BSON comprimido con deflate
+  private byte[] pack(TransactionColumns columns) {
+    Document document = new Document();
+    mongoTemplate.getConverter().write(columns, document);
+    BasicOutputBuffer bson = new BasicOutputBuffer();
+    DOCUMENT_CODEC.encode(new BsonBinaryWriter(bson), document, EncoderContext.builder().build());
+    ByteArrayOutputStream packed = new ByteArrayOutputStream();
+    try (DeflaterOutputStream deflater = new DeflaterOutputStream(packed)) {
+      bson.pipe(deflater);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return packed.toByteArray();
+  }
+
+  private TransactionColumns unpack(byte[] packed) {
+    try (InflaterInputStream inflater =
+        new InflaterInputStream(new ByteArrayInputStream(packed))) {
+      Document document =
+          DOCUMENT_CODEC.decode(
+              new BsonBinaryReader(ByteBuffer.wrap(inflater.readAllBytes())),
+              DecoderContext.builder().build());
+      return mongoTemplate.getConverter().read(TransactionColumns.class, document);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static <T> List<T> column(
+      List<Transaction> transactions, Function<Transaction, T> value) {
+    return transactions.stream().map(value).toList();
+  }
+
+  private static List<String> ids(List<Transaction> transactions) {
+    return column(transactions, Transaction::getId);
+  }
+
+  private static Decimal128 toDecimal128(BigDecimal amount) {
+    return amount == null ? null : new Decimal128(amount);
+  }
+}
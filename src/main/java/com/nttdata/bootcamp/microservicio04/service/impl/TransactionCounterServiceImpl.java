@@ -0,0 +1,126 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.mongodb.client.result.UpdateResult;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionArchiveBucket;
+import com.nttdata.bootcamp.microservicio04.model.TransactionCounter;
+import com.nttdata.bootcamp.microservicio04.service.TransactionCounterService;
+import com.nttdata.bootcamp.microservicio04.utils.StagedCollection;
+import java.time.YearMonth;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Service
+@Slf4j
+public class TransactionCounterServiceImpl implements TransactionCounterService {
+
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  public TransactionCounterServiceImpl(ReactiveMongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public Mono<Long> countOwnerTransactions(String accountId, YearMonth period) {
+    return mongoTemplate
+        .findById(counterId(accountId, period), TransactionCounter.class)
+        .map(TransactionCounter::getCount)
+        .defaultIfEmpty(0L);
+  }
+
+  @Override
+  public Mono<Long> increment(String accountId, YearMonth period) {
+    Query query = Query.query(Criteria.where("_id").is(counterId(accountId, period)));
+    Update update =
+        new Update()
+            .inc("count", 1L)
+            .setOnInsert("accountId", accountId)
+            .setOnInsert("period", period.toString());
+    return mongoTemplate
+        .findAndModify(
+            query,
+            update,
+            FindAndModifyOptions.options().upsert(true).returnNew(true),
+            TransactionCounter.class)
+        .map(TransactionCounter::getCount);
+  }
+
+  // Recalcula los contadores desde la coleccion transaction en una coleccion auxiliar que luego
+  // reemplaza a la vigente; los limites siguen leyendo los contadores anteriores mientras tanto.
+  // Ejecutar con poco trafico, los incrementos concurrentes durante el rebuild pueden perderse.
+  @Override
+  public Mono<Long> rebuild() {
+    log.info("Rebuilding transaction counters from the transaction collection");
+    TypedAggregation<Transaction> aggregation =
+        Aggregation.newAggregation(
+            Transaction.class,
+            Aggregation.match(
+                Criteria.where("ownerTransaction").is(true).and("accountId").ne(null)),
+            Aggregation.project("accountId")
+                .and(DateOperators.dateOf("created").toString("%Y-%m"))
+                .as("period"),
+            Aggregation.group("accountId", "period").count().as("count"));
+
+    StagedCollection staged = StagedCollection.of(mongoTemplate, TransactionCounter.class);
+    return staged
+        .reset(mongoTemplate)
+        .thenMany(mongoTemplate.aggregate(aggregation, Document.class))
+        .map(this::toCounter)
+        .buffer(500)
+        .concatMap(counters -> mongoTemplate.insert(counters, staged.name()))
+        .count()
+        .flatMap(hot -> addArchivedCounts(staged).map(archived -> hot + archived))
+        .flatMap(total -> staged.swap(mongoTemplate).thenReturn(total));
+  }
+
+  // Cada bucket de archivo es un mes de una cuenta; devuelve los contadores nuevos
+  private Mono<Long> addArchivedCounts(StagedCollection staged) {
+    Query archived =
+        Query.query(
+            Criteria.where("ownerType")
+                .is(TransactionArchiveBucket.ACCOUNT)
+                .and("ownerCount")
+                .gt(0));
+    archived.fields().include("ownerId", "period", "ownerCount");
+    return mongoTemplate
+        .find(archived, TransactionArchiveBucket.class)
+        .concatMap(bucket -> addArchivedCount(bucket, staged))
+        .filter(result -> result.getUpsertedId() != null)
+        .count();
+  }
+
+  private Mono<UpdateResult> addArchivedCount(
+      TransactionArchiveBucket bucket, StagedCollection staged) {
+    String counterId = counterId(bucket.getOwnerId(), YearMonth.parse(bucket.getPeriod()));
+    return mongoTemplate.upsert(
+        Query.query(Criteria.where("_id").is(counterId)),
+        new Update()
+            .inc("count", bucket.getOwnerCount())
+            .setOnInsert("accountId", bucket.getOwnerId())
+            .setOnInsert("period", bucket.getPeriod()),
+        TransactionCounter.class,
+        staged.name());
+  }
+
+  private TransactionCounter toCounter(Document result) {
+    Document group = result.get("_id", Document.class);
+    String accountId = group.getString("accountId");
+    String period = group.getString("period");
+    long count = result.get("count", Number.class).longValue();
+    return new TransactionCounter(accountId + ":" + period, accountId, period, count);
+  }
+
+  private String counterId(String accountId, YearMonth period) {
+    return accountId + ":" + period;
+  }
+}
@@ -0,0 +1,123 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.nttdata.bootcamp.microservicio04.config.MongoTransactions;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.repository.TransactionRepository;
+import com.nttdata.bootcamp.microservicio04.service.AccountBalanceService;
+import com.nttdata.bootcamp.microservicio04.service.AccountSummaryService;
+import com.nttdata.bootcamp.microservicio04.service.BalanceOutboxService;
+import com.nttdata.bootcamp.microservicio04.service.CreditBalanceService;
+import com.nttdata.bootcamp.microservicio04.service.IdempotencyService;
+import com.nttdata.bootcamp.microservicio04.service.TransactionCounterService;
+import com.nttdata.bootcamp.microservicio04.service.TransactionLedgerService;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Escritura del ledger: inserta las transacciones, actualiza contadores, saldos locales de cuentas
+ * y creditos y resumenes mensuales, encola los saldos pendientes para los servicios externos y
+ * guarda la respuesta de la Idempotency-Key en curso, todo en una misma transaccion de Mongo.
+ */
+@Service
+public class TransactionLedgerServiceImpl implements TransactionLedgerService {
+
+  private final TransactionRepository transactionRepository;
+  private final TransactionCounterService transactionCounterService;
+  private final AccountBalanceService accountBalanceService;
+  private final CreditBalanceService creditBalanceService;
+  private final AccountSummaryService accountSummaryService;
+  private final BalanceOutboxService balanceOutboxService;
+  private final IdempotencyService idempotencyService;
+  private final MongoTransactions mongoTransactions;
+
+  public TransactionLedgerServiceImpl(
+      TransactionRepository transactionRepository,
+      TransactionCounterService transactionCounterService,
+      AccountBalanceService accountBalanceService,
+      CreditBalanceService creditBalanceService,
+      AccountSummaryService accountSummaryService,
+      BalanceOutboxService balanceOutboxService,
+      IdempotencyService idempotencyService,
+      MongoTransactions mongoTransactions) {
+    this.transactionRepository = transactionRepository;
+    this.transactionCounterService = transactionCounterService;
+    this.accountBalanceService = accountBalanceService;
+    this.creditBalanceService = creditBalanceService;
+    this.accountSummaryService = accountSummaryService;
+    this.balanceOutboxService = balanceOutboxService;
+    this.idempotencyService = idempotencyService;
+    this.mongoTransactions = mongoTransactions;
+  }
+
+  @Override
+  public Flux<Transaction> record(List<Transaction> transactions) {
+    if (transactions.isEmpty()) {
+      return Flux.empty();
+    }
+    // Sin transacciones un insertMany a medias dejaria movimientos sin saldo ni outbox: cada uno se
+    // escribe con todos sus efectos antes del siguiente
+    Flux<Transaction> written =
+        mongoTransactions.isEnabled()
+            ? write(transactions)
+            : Flux.fromIterable(transactions).concatMap(transaction -> write(List.of(transaction)));
+    return mongoTransactions.inTransaction(
+        Flux.defer(
+            () ->
+                written
+                    .collectList()
+                    // La respuesta de una creacion es su primera transaccion
+                    .flatMapMany(
+                        saved ->
+                            idempotencyService
+                                .complete(saved.get(0))
+                                .thenMany(Flux.fromIterable(saved)))));
+  }
+
+  private Flux<Transaction> write(List<Transaction> transactions) {
+    return transactionRepository
+        .insert(transactions)
+        .concatMap(this::incrementOwnerCounter)
+        .concatMap(this::applyBalance)
+        .collectList()
+        .flatMapMany(
+            saved -> balanceOutboxService.enqueue(saved).thenMany(Flux.fromIterable(saved)));
+  }
+
+  private Mono<Transaction> incrementOwnerCounter(Transaction saved) {
+    if (!Boolean.TRUE.equals(saved.getOwnerTransaction()) || saved.getAccountId() == null) {
+      return Mono.just(saved);
+    }
+    return transactionCounterService
+        .increment(saved.getAccountId(), YearMonth.from(saved.getCreated()))
+        .thenReturn(saved);
+  }
+
+  private Mono<Transaction> applyBalance(Transaction saved) {
+    if (saved.getAccountId() == null) {
+      return saved.getCreditId() == null
+          ? Mono.just(saved)
+          : creditBalanceService.apply(saved.getCreditId(), saved.getAmount()).thenReturn(saved);
+    }
+    BigDecimal delta = AccountBalanceServiceImpl.signedAmount(saved);
+    // El saldo remoto ya incluye el monto de apertura, por eso el outbox no lo envia: sumarlo a la
+    // proyeccion lo contaria dos veces al sembrarla
+    if (TransactionType.OPENING_AMOUNT.equals(saved.getTransactionType())) {
+      return accountSummaryService.record(saved, delta, null).thenReturn(saved);
+    }
+    // El saldo de apertura del mes es el de la proyeccion antes de este movimiento; una proyeccion
+    // provisional aun no lo conoce
+    return accountBalanceService
+        .apply(saved.getAccountId(), delta)
+        .filter(balance -> !Boolean.TRUE.equals(balance.getProvisional()))
+        .map(balance -> Optional.of(balance.getBalance().subtract(delta)))
+        .defaultIfEmpty(Optional.empty())
+        .flatMap(opening -> accountSummaryService.record(saved, delta, opening.orElse(null)))
+        .thenReturn(saved);
+  }
+}
@@ -0,0 +1,110 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.nttdata.bootcamp.microservicio04.model.AccountType;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TransactionMetrics {
+
+  private static final String NONE = "NONE";
+  private static final String SUCCESS = "SUCCESS";
+  private static final String CANCELLED = "CANCELLED";
+
+  private final MeterRegistry meterRegistry;
+  // Los meters se registran una vez por combinacion de tags, no en cada peticion
+  private final Map<MeterKey, Meters> meters = new ConcurrentHashMap<>();
+
+  public TransactionMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  public CreateSample startCreate(Transaction transaction) {
+    String transactionType =
+        transaction.getTransactionType() == null ? NONE : transaction.getTransactionType().name();
+    return new CreateSample(Timer.start(meterRegistry), transactionType);
+  }
+
+  private Meters meters(MeterKey key) {
+    return meters.computeIfAbsent(
+        key,
+        k ->
+            new Meters(
+                Timer.builder("transaction.create")
+                    .tag("transactionType", k.transactionType())
+                    .tag("accountType", k.productType())
+                    .tag("outcome", k.outcome())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry),
+                Counter.builder("transaction.create.outcome")
+                    .tag("transactionType", k.transactionType())
+                    .tag("accountType", k.productType())
+                    .tag("outcome", k.outcome())
+                    .register(meterRegistry)));
+  }
+
+  public final class CreateSample {
+
+    private final Timer.Sample sample;
+    private final String transactionType;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private volatile String productType = NONE;
+
+    private CreateSample(Timer.Sample sample, String transactionType) {
+      this.sample = sample;
+      this.transactionType = transactionType;
+    }
+
+    public void accountType(AccountType accountType) {
+      this.productType = accountType == null ? NONE : accountType.name();
+    }
+
+    public void credit() {
+      this.productType = "CREDIT";
+    }
+
+    public void success(Transaction created) {
+      stop(created == null ? ErrorCode.TRANSACTION_NO_CREATED.name() : SUCCESS);
+    }
+
+    public void error(Throwable error) {
+      stop(outcome(error));
+    }
+
+    // El cliente corto la conexion antes de la respuesta
+    public void cancel() {
+      stop(CANCELLED);
+    }
+
+    private void stop(String outcome) {
+      if (!stopped.compareAndSet(false, true)) {
+        return;
+      }
+      Meters stopMeters = meters(new MeterKey(transactionType, productType, outcome));
+      sample.stop(stopMeters.timer());
+      stopMeters.counter().increment();
+    }
+  }
+
+  private static String outcome(Throwable error) {
+    if (error instanceof OperationNoCompletedException ex) {
+      return ex.getError().name();
+    }
+    if (error instanceof IllegalArgumentException) {
+      return ErrorCode.INVALID_REQUEST.name();
+    }
+    return ErrorCode.INTERNAL_SERVER_ERROR.name();
+  }
+
+  private record MeterKey(String transactionType, String productType, String outcome) {}
+
+  private record Meters(Timer timer, Counter counter) {}
+}
@@ -0,0 +1,28 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.AccountType;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import java.util.function.BiPredicate;
+import reactor.core.publisher.Mono;
+
+/**
+ * Regla de validacion de una transaccion de cuenta. {@code check} emite el ErrorCode del rechazo o
+ * termina vacio si la transaccion pasa; recibe tambien los movimientos del lote aun no escritos.
+ */
+record TransactionRule(
+    String name, Cost cost, BiPredicate<AccountType, TransactionType> appliesTo, Check check) {
+
+  @FunctionalInterface
+  interface Check {
+    Mono<ErrorCode> apply(Account account, Transaction transaction, PendingMovements pending);
+  }
+
+  // Las reglas en memoria se evaluan antes que las que consultan Mongo
+  enum Cost {
+    IN_MEMORY,
+    IO
+  }
+}
@@ -0,0 +1,144 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.nttdata.bootcamp.microservicio04.config.MongoIndexInitializer;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionSearchFilter;
+import com.nttdata.bootcamp.microservicio04.utils.TransactionFields;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+/**
+ * Traduce un filtro de busqueda a un unico Criteria y elige el indice que lo resuelve. Los
+ * indices empiezan por accountId, creditId o created; sin ninguno de esos filtros la busqueda
+ * recorreria la coleccion entera y se rechaza. El resto de filtros se evalua sobre los documentos
+ * que devuelve el indice, y se avisa cuando ese recorrido no esta acotado por un producto.
+ */
+final class TransactionSearchPlanner {
+
+  private final long maxScanDays;
+
+  TransactionSearchPlanner(long maxScanDays) {
+    this.maxScanDays = maxScanDays;
+  }
+
+  SearchPlan plan(TransactionSearchFilter filter) {
+    validate(filter);
+    List<String> warnings = new ArrayList<>();
+    Criteria criteria;
+    String index;
+    if (filter.getAccountId() != null) {
+      criteria = Criteria.where("accountId").is(filter.getAccountId());
+      index = MongoIndexInitializer.ACCOUNT_HISTORY_INDEX;
+    } else if (filter.getCreditId() != null) {
+      criteria = Criteria.where("creditId").is(filter.getCreditId());
+      index = MongoIndexInitializer.CREDIT_HISTORY_INDEX;
+    } else if (filter.getFrom() != null || filter.getTo() != null) {
+      criteria = new Criteria();
+      index = MongoIndexInitializer.CREATED_INDEX;
+      if (filter.getFrom() == null || filter.getTo() == null) {
+        warnings.add("Open date range: the scan on " + index + " is bounded only by the limit");
+      } else if (ChronoUnit.DAYS.between(filter.getFrom(), filter.getTo()) > maxScanDays) {
+        warnings.add(
+            "Date range longer than " + maxScanDays + " days without accountId or creditId");
+      }
+      if (hasResidualFilters(filter)) {
+        warnings.add(
+            "types, amount, ownerTransaction and active are checked on every document of the date"
+                + " range; add accountId or creditId to narrow the scan");
+      }
+      warnings.add("Archived months are only searched with accountId or creditId");
+    } else {
+      throw error(ErrorCode.SEARCH_NOT_INDEXED);
+    }
+
+    if (filter.getFrom() != null || filter.getTo() != null) {
+      Criteria created = criteria.and("created");
+      if (filter.getFrom() != null) {
+        created.gte(filter.getFrom());
+      }
+      if (filter.getTo() != null) {
+        created.lt(filter.getTo().plusDays(1));
+      }
+    }
+    if (filter.getTypes() != null && !filter.getTypes().isEmpty()) {
+      criteria.and("transactionType").in(filter.getTypes());
+    }
+    if (filter.getMinAmount() != null || filter.getMaxAmount() != null) {
+      Criteria amount = criteria.and("amount");
+      if (filter.getMinAmount() != null) {
+        amount.gte(new Decimal128(filter.getMinAmount()));
+      }
+      if (filter.getMaxAmount() != null) {
+        amount.lte(new Decimal128(filter.getMaxAmount()));
+      }
+    }
+    if (filter.getOwnerTransaction() != null) {
+      criteria.and("ownerTransaction").is(filter.getOwnerTransaction());
+    }
+    if (filter.getActive() != null) {
+      criteria.and("active").is(filter.getActive());
+    }
+    return new SearchPlan(criteria, index, warnings, matcher(filter));
+  }
+
+  // El mismo filtro en memoria, para las transacciones archivadas
+  private Predicate<Transaction> matcher(TransactionSearchFilter filter) {
+    return transaction ->
+        (filter.getFrom() == null
+                || transaction.getCreated() != null
+                    && !transaction.getCreated().isBefore(filter.getFrom()))
+            && (filter.getTo() == null
+                || transaction.getCreated() != null
+                    && !transaction.getCreated().isAfter(filter.getTo()))
+            && (filter.getTypes() == null
+                || filter.getTypes().isEmpty()
+                || filter.getTypes().contains(transaction.getTransactionType()))
+            && (filter.getMinAmount() == null
+                || transaction.getAmount() != null
+                    && transaction.getAmount().compareTo(filter.getMinAmount()) >= 0)
+            && (filter.getMaxAmount() == null
+                || transaction.getAmount() != null
+                    && transaction.getAmount().compareTo(filter.getMaxAmount()) <= 0)
+            && (filter.getOwnerTransaction() == null
+                || filter.getOwnerTransaction().equals(transaction.getOwnerTransaction()))
+            && (filter.getActive() == null || filter.getActive().equals(transaction.getActive()));
+  }
+
+  private void validate(TransactionSearchFilter filter) {
+    boolean invalid =
+        filter.getAccountId() != null && filter.getCreditId() != null
+            || filter.getFrom() != null
+                && filter.getTo() != null
+                && filter.getFrom().isAfter(filter.getTo())
+            || filter.getMinAmount() != null
+                && filter.getMaxAmount() != null
+                && filter.getMinAmount().compareTo(filter.getMaxAmount()) > 0
+            || filter.getFields() != null
+                && !filter.getFields().stream().allMatch(TransactionFields::isField);
+    if (invalid) {
+      throw error(ErrorCode.INVALID_REQUEST);
+    }
+  }
+
+  private boolean hasResidualFilters(TransactionSearchFilter filter) {
+    return filter.getTypes() != null && !filter.getTypes().isEmpty()
+        || filter.getMinAmount() != null
+        || filter.getMaxAmount() != null
+        || Objects.nonNull(filter.getOwnerTransaction())
+        || Objects.nonNull(filter.getActive());
+  }
+
+  private static OperationNoCompletedException error(ErrorCode errorCode) {
+    return new OperationNoCompletedException(errorCode);
+  }
+
+  record SearchPlan(
+      Criteria criteria, String index, List<String> warnings, Predicate<Transaction> matcher) {}
+}
@@ -0,0 +1,152 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionSearchFilter;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionSearchPage;
+import com.nttdata.bootcamp.microservicio04.service.TransactionArchiveService;
+import com.nttdata.bootcamp.microservicio04.service.TransactionSearchService;
+import com.nttdata.bootcamp.microservicio04.utils.PageCursor;
+import com.nttdata.bootcamp.microservicio04.utils.TransactionFields;
+import com.nttdata.bootcamp.microservicio04.utils.TransactionOrder;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Busqueda filtrada del historial. El planificador fija el indice de cada busqueda y la consulta
+ * lo usa como hint, asi un filtro que no cubre ningun indice se rechaza en vez de recorrer la
+ * coleccion. Las busquedas por cuenta o credito incluyen los meses archivados.
+ */
+@Service
+@Slf4j
+public class TransactionSearchServiceImpl implements TransactionSearchService {
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final TransactionArchiveService transactionArchiveService;
+  private final TransactionSearchPlanner planner;
+
+  @Value("${application.pagination.default-size:50}")
+  private int defaultPageSize;
+
+  @Value("${application.pagination.max-size:500}")
+  private int maxPageSize;
+
+  public TransactionSearchServiceImpl(
+      ReactiveMongoTemplate mongoTemplate,
+      TransactionArchiveService transactionArchiveService,
+      @Value("${application.search.max-scan-days:366}") long maxScanDays) {
+    this.mongoTemplate = mongoTemplate;
+    this.transactionArchiveService = transactionArchiveService;
+    this.planner = new TransactionSearchPlanner(maxScanDays);
+  }
+
+  @Override
+  public Mono<TransactionSearchPage> search(
+      TransactionSearchFilter filter, String cursor, Integer limit) {
+    return Mono.fromCallable(() -> planner.plan(filter))
+        .flatMap(
+            plan -> {
+              if (!plan.warnings().isEmpty()) {
+                log.warn("Search on index {}: {}", plan.index(), plan.warnings());
+              }
+              int pageSize =
+                  limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+              PageCursor after =
+                  cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor);
+              Set<String> fields =
+                  filter.getFields() == null ? Set.of() : Set.copyOf(filter.getFields());
+              // Se pide un elemento extra para saber si existe una pagina siguiente
+              return withArchive(filter, plan, after, find(plan, after, fields, pageSize + 1))
+                  .take(pageSize + 1)
+                  .collectList()
+                  .map(content -> toPage(content, pageSize, fields, plan));
+            });
+  }
+
+  private Flux<Transaction> find(
+      TransactionSearchPlanner.SearchPlan plan, PageCursor after, Set<String> fields, int limit) {
+    Criteria criteria = plan.criteria();
+    if (after != null) {
+      criteria =
+          new Criteria()
+              .andOperator(
+                  criteria,
+                  new Criteria()
+                      .orOperator(
+                          Criteria.where("created").lt(after.created()),
+                          Criteria.where("created").is(after.created()).and("id").lt(after.id()),
+                          Criteria.where("created")
+                              .is(after.created())
+                              .and("id")
+                              .lt(after.stringIdBound())));
+    }
+    Query query =
+        Query.query(criteria)
+            .with(Sort.by(Sort.Direction.DESC, "created", "id"))
+            .limit(limit)
+            .withHint(plan.index());
+    if (!fields.isEmpty()) {
+      // created forma parte de la clave de orden del cursor
+      query.fields().include("created");
+      fields.forEach(field -> query.fields().include(field));
+    }
+    return mongoTemplate.find(query, Transaction.class);
+  }
+
+  private Flux<Transaction> withArchive(
+      TransactionSearchFilter filter,
+      TransactionSearchPlanner.SearchPlan plan,
+      PageCursor after,
+      Flux<Transaction> hot) {
+    // El archivo no tiene indice por fecha: se empieza tras el fin del rango y se corta al pasar
+    // el inicio
+    PageCursor start =
+        after == null && filter.getTo() != null
+            ? new PageCursor(filter.getTo().plusDays(1), "")
+            : after;
+    Flux<Transaction> archived;
+    if (filter.getAccountId() != null) {
+      archived = transactionArchiveService.findByAccountId(filter.getAccountId(), start);
+    } else if (filter.getCreditId() != null) {
+      archived = transactionArchiveService.findByCreditId(filter.getCreditId(), start);
+    } else {
+      return hot;
+    }
+    archived =
+        archived
+            .takeWhile(
+                transaction ->
+                    filter.getFrom() == null
+                        || transaction.getCreated() != null
+                            && !transaction.getCreated().isBefore(filter.getFrom()))
+            .filter(plan.matcher());
+    return Flux.mergeComparing(TransactionOrder.NEWEST_FIRST, hot, archived)
+        .distinctUntilChanged(Transaction::getId);
+  }
+
+  private TransactionSearchPage toPage(
+      List<Transaction> content,
+      int pageSize,
+      Set<String> fields,
+      TransactionSearchPlanner.SearchPlan plan) {
+    String nextCursor = null;
+    if (content.size() > pageSize) {
+      content = content.subList(0, pageSize);
+      nextCursor = PageCursor.of(content.get(pageSize - 1)).encode();
+    }
+    List<Map<String, Object>> projected =
+        content.stream()
+            .map(transaction -> TransactionFields.project(transaction, fields))
+            .toList();
+    return new TransactionSearchPage(projected, nextCursor, plan.index(), plan.warnings());
+  }
+}
@@ -1,30 +1,34 @@
 package com.nttdata.bootcamp.microservicio04.service.impl;
 
+import com.nttdata.bootcamp.microservicio04.client.AccountClient;
+import com.nttdata.bootcamp.microservicio04.client.CreditClient;
 import com.nttdata.bootcamp.microservicio04.model.Account;
-import com.nttdata.bootcamp.microservicio04.model.AccountType;
-import com.nttdata.bootcamp.microservicio04.model.Credit;
 import com.nttdata.bootcamp.microservicio04.model.Transaction;
 import com.nttdata.bootcamp.microservicio04.model.TransactionType;
-import com.nttdata.bootcamp.microservicio04.model.dto.AccountUpdateDto;
-import com.nttdata.bootcamp.microservicio04.model.dto.CreditUpdateDto;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionBatchResult;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionPage;
 import com.nttdata.bootcamp.microservicio04.repository.TransactionRepository;
+import com.nttdata.bootcamp.microservicio04.service.TransactionArchiveService;
+import com.nttdata.bootcamp.microservicio04.service.TransactionLedgerService;
 import com.nttdata.bootcamp.microservicio04.service.TransactionService;
+import com.nttdata.bootcamp.microservicio04.utils.KeyedSequencer;
+import com.nttdata.bootcamp.microservicio04.utils.PageCursor;
+import com.nttdata.bootcamp.microservicio04.utils.TransactionFields;
+import com.nttdata.bootcamp.microservicio04.utils.TransactionOrder;
 import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
 import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
-import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.YearMonth;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.util.ReflectionUtils;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -33,195 +37,225 @@ import reactor.core.publisher.Mono;
 public class TransactionServiceImpl implements TransactionService {
 
   private TransactionRepository transactionRepository;
-  private WebClient webClientAccount;
-  private WebClient webClientCredit;
+  private TransactionValidationPipeline transactionValidationPipeline;
+  private TransactionLedgerService transactionLedgerService;
+  private AccountClient accountClient;
+  private CreditClient creditClient;
+  private TransactionMetrics transactionMetrics;
+  private KeyedSequencer writeSequencer;
+  private TransactionArchiveService transactionArchiveService;
+  // Cargos de lotes validados que aun esperan su bloque; toda validacion de la cuenta los cuenta
+  private final PendingMovements pendingMovements = new PendingMovements();
+
+  @Value("${application.batch.concurrency:32}")
+  private int batchConcurrency;
+
+  @Value("${application.batch.chunk-size:500}")
+  private int batchChunkSize;
+
+  @Value("${application.pagination.default-size:50}")
+  private int defaultPageSize;
+
+  @Value("${application.pagination.max-size:500}")
+  private int maxPageSize;
 
   public TransactionServiceImpl(
       TransactionRepository transactionRepository,
-      WebClient webClientAccount,
-      WebClient webClientCredit) {
+      TransactionValidationPipeline transactionValidationPipeline,
+      TransactionLedgerService transactionLedgerService,
+      AccountClient accountClient,
+      CreditClient creditClient,
+      TransactionMetrics transactionMetrics,
+      KeyedSequencer writeSequencer,
+      TransactionArchiveService transactionArchiveService) {
     this.transactionRepository = transactionRepository;
-    this.webClientAccount = webClientAccount;
-    this.webClientCredit = webClientCredit;
+    this.transactionValidationPipeline = transactionValidationPipeline;
+    this.transactionLedgerService = transactionLedgerService;
+    this.accountClient = accountClient;
+    this.creditClient = creditClient;
+    this.transactionMetrics = transactionMetrics;
+    this.writeSequencer = writeSequencer;
+    this.transactionArchiveService = transactionArchiveService;
   }
 
   @Override
   public Mono<Transaction> create(Transaction transaction) {
+    return Mono.defer(
+        () -> {
+          TransactionMetrics.CreateSample sample = transactionMetrics.startCreate(transaction);
+          // Validacion de saldo y escritura en el ledger no se intercalan para una misma cuenta;
+          // los PATCH a cuentas y creditos los envia despues el despachador del outbox
+          return sequenced(
+                  transaction,
+                  () ->
+                      prepareTransaction(transaction, sample, pendingMovements)
+                          .collectList()
+                          .flatMapMany(this::insertTransactions)
+                          .next())
+              .doOnSuccess(sample::success)
+              .doOnError(sample::error)
+              .doOnCancel(sample::cancel);
+        });
+  }
 
+  @Override
+  public Flux<TransactionBatchResult> createBatch(Flux<Transaction> transactions) {
+    // Las validaciones corren en paralelo acotado; las inserciones se agrupan por bloques. Los
+    // movimientos validados que esperan su bloque cuentan en toda validacion posterior de la misma
+    // cuenta, de este lote, de otro o de una creacion individual, porque la cuenta ya no esta
+    // secuenciada cuando se escribe el bloque
+    return transactions
+        .index()
+        .flatMapSequential(
+            indexed -> prepareBatchItem(indexed.getT1(), indexed.getT2()), batchConcurrency)
+        .buffer(batchChunkSize)
+        .concatMap(this::insertBatchChunk);
+  }
+
+  private Mono<PreparedItem> prepareBatchItem(long index, Transaction transaction) {
+    return Mono.defer(
+        () -> {
+          // En lote el timer cubre la validacion; la insercion se hace por bloques
+          TransactionMetrics.CreateSample sample = transactionMetrics.startCreate(transaction);
+          return sequenced(
+                  transaction,
+                  () ->
+                      prepareTransaction(transaction, sample, pendingMovements)
+                          .collectList()
+                          .doOnNext(pendingMovements::add))
+              .doOnNext(prepared -> sample.success(prepared.isEmpty() ? null : prepared.get(0)))
+              .doOnError(sample::error)
+              .doOnCancel(sample::cancel)
+              .map(prepared -> new PreparedItem(index, prepared, null))
+              .onErrorResume(e -> Mono.just(new PreparedItem(index, List.of(), e)));
+        });
+  }
+
+  private Flux<TransactionBatchResult> insertBatchChunk(List<PreparedItem> items) {
+    List<Transaction> accepted =
+        items.stream().flatMap(item -> item.transactions().stream()).toList();
+    return insertTransactions(accepted)
+        .doFinally(signal -> pendingMovements.remove(accepted))
+        .then(Mono.just(items.stream().map(PreparedItem::toResult).toList()))
+        .onErrorResume(
+            e -> {
+              log.error("Error inserting a batch chunk of {} transactions", accepted.size(), e);
+              return Mono.just(
+                  items.stream()
+                      .map(item -> item.error() != null ? item : item.withError(e))
+                      .map(PreparedItem::toResult)
+                      .toList());
+            })
+        .flatMapIterable(results -> results);
+  }
+
+  private <T> Mono<T> sequenced(Transaction transaction, Supplier<Mono<T>> action) {
+    if (transaction.getAccountId() != null) {
+      return writeSequencer.run("account:" + transaction.getAccountId(), action);
+    }
+    if (transaction.getCreditId() != null) {
+      return writeSequencer.run("credit:" + transaction.getCreditId(), action);
+    }
+    return Mono.defer(action);
+  }
+
+  private Flux<Transaction> prepareTransaction(
+      Transaction transaction, TransactionMetrics.CreateSample sample, PendingMovements pending) {
     if (transaction.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-      return transactionNotAllowed(ErrorCode.TRANSACTION_AMOUNT_NOT_ALLOWED);
+      return transactionNotAllowed(ErrorCode.TRANSACTION_AMOUNT_NOT_ALLOWED).flux();
     }
 
-    Map<String, Function<Transaction, Flux<Transaction>>> productProcessors =
-        Map.of(
-            "accountId",
-            tx -> createTransactionAccount(tx),
-            "creditId",
-            tx -> createTransactionCredit(tx));
-    List<Map.Entry<String, Function<Transaction, Flux<Transaction>>>> validProducts =
-        productProcessors.entrySet().stream()
-            .filter(entry -> isFieldNonNull(transaction, entry.getKey()))
-            .toList();
-
-    if (validProducts.size() != 1) {
-      return Mono.error(new IllegalArgumentException("Exactly one product must be non-null"));
+    // Debe venir exactamente un producto: cuenta o credito
+    boolean hasAccount = transaction.getAccountId() != null;
+    boolean hasCredit = transaction.getCreditId() != null;
+    if (hasAccount == hasCredit) {
+      return Flux.error(new IllegalArgumentException("Exactly one product must be non-null"));
     }
 
-    return validProducts.get(0).getValue().apply(transaction).next();
+    return hasAccount
+        ? createTransactionAccount(transaction, sample, pending)
+        : createTransactionCredit(transaction, sample);
   }
 
-  private Flux<Transaction> createTransactionAccount(Transaction transaction) {
-    return findAccount(transaction.getAccountId())
-        .flatMap(account -> handleTransactionByType(transaction, account))
+  private Flux<Transaction> createTransactionAccount(
+      Transaction transaction, TransactionMetrics.CreateSample sample, PendingMovements pending) {
+    if (TransactionType.BANK_TRANSFER.equals(transaction.getTransactionType())) {
+      // Origen y destino se consultan en paralelo
+      return Mono.zip(
+              accountClient.findById(transaction.getAccountId()),
+              accountClient.findById(transaction.getDestinationAccountId()))
+          .doOnNext(accounts -> sample.accountType(accounts.getT1().getAccountType()))
+          .flatMapMany(
+              accounts -> {
+                setDefaultTransactionProperties(transaction, accounts.getT1());
+                return handleBankTransfer(
+                    transaction, accounts.getT1(), accounts.getT2(), pending);
+              })
+          .doOnError(e -> log.error("Error creating transaction: ", e));
+    }
+    return accountClient
+        .findById(transaction.getAccountId())
+        .doOnNext(account -> sample.accountType(account.getAccountType()))
+        .flatMapMany(account -> handleTransactionByType(transaction, account, pending))
         .doOnError(e -> log.error("Error creating transaction: ", e));
   }
 
-  private Flux<Transaction> handleTransactionByType(Transaction transaction, Account account) {
+  private Flux<Transaction> handleTransactionByType(
+      Transaction transaction, Account account, PendingMovements pending) {
     setDefaultTransactionProperties(transaction, account);
 
-    if (TransactionType.BANK_TRANSFER.equals(transaction.getTransactionType())) {
-      return handleBankTransfer(transaction, account);
-    }
     if (TransactionType.OPENING_AMOUNT.equals(transaction.getTransactionType())) {
       transaction.setOwnerTransaction(false);
-      return transactionRepository.insert(transaction).flux();
+      return Flux.just(transaction);
     }
     if (TransactionType.WITHDRAWAL.equals(transaction.getTransactionType())) {
       transaction.setAmount(transaction.getAmount().negate());
     }
 
-
-    return validateTransactionWithAccount(account, transaction).flux();
+    return transactionValidationPipeline.validate(account, transaction, pending).flux();
   }
 
-  private Flux<Transaction> handleBankTransfer(Transaction transaction, Account originAccount) {
+  private Flux<Transaction> handleBankTransfer(
+      Transaction transaction,
+      Account originAccount,
+      Account destinationAccount,
+      PendingMovements pending) {
 
     transaction.setAmount(transaction.getAmount().negate());
-    Mono<Transaction> originValidation = validateTransactionWithAccount(originAccount, transaction);
+    Transaction destinationTransaction = createDestinationTransaction(transaction);
 
-    return findAccount(transaction.getDestinationAccountId())
-        .flatMap(
-            destinationAccount -> {
-              Transaction destinationTransaction = createDestinationTransaction(transaction);
-              updateAccountAmount(
-                  destinationAccount.getId(),
-                  destinationAccount.getAmountAvailable().add(destinationTransaction.getAmount()));
-              Mono<Transaction> destinationValidation =
-                  transactionRepository.insert(destinationTransaction);
-
-              return Flux.zip(originValidation, destinationValidation)
-                  .flatMap(tuple -> Flux.just(transaction, destinationTransaction))
-                  .switchIfEmpty(transactionNotAllowed(ErrorCode.TRANSACTION_TYPE_NO_ALLOWED));
-            });
+    // Las dos piernas y sus saldos pendientes se escriben juntos en la transaccion del ledger
+    return transactionValidationPipeline
+        .validate(originAccount, transaction, pending)
+        .flatMapMany(origin -> Flux.just(transaction, destinationTransaction))
+        .switchIfEmpty(transactionNotAllowed(ErrorCode.TRANSACTION_TYPE_NO_ALLOWED));
   }
 
   private Mono<Transaction> transactionNotAllowed(ErrorCode errorCode) {
     log.warn("Account type not allowed for this customer");
     return Mono.error(
-        new OperationNoCompletedException(errorCode.getCode(), errorCode.getMessage()));
+        new OperationNoCompletedException(errorCode));
   }
 
-  private Flux<Transaction> createTransactionCredit(Transaction transaction) {
-    return findCredit(transaction.getCreditId())
-        .flatMap(
-            credit -> {
-              updateCreditAmount(
-                  credit.getId(), credit.getAmountAvailable().add(transaction.getAmount()));
-              return transactionRepository.insert(transaction);
-            })
+  private Flux<Transaction> createTransactionCredit(
+      Transaction transaction, TransactionMetrics.CreateSample sample) {
+    sample.credit();
+    return creditClient
+        .findById(transaction.getCreditId())
+        .map(credit -> transaction)
+        .flux()
         // .switchIfEmpty(findByCreditIdService(creditID));
         .doOnError(e -> log.error("Error creating transaction: ", e));
   }
 
-  private Mono<Boolean> isTransactionAccountAvailable(Integer transactionLimit) {
-    YearMonth mesAnioActual = YearMonth.now();
-
-    // Definir el rango para el primer y último día del mes actual
-    LocalDateTime start = mesAnioActual.atDay(1).atStartOfDay();
-    LocalDateTime end = mesAnioActual.atEndOfMonth().atTime(23, 59, 59);
-
-    // Contar documentos en el rango del mes y año actuales y que se dueño de la transaccion
-    return transactionRepository
-        .countByCreatedBetweenAndOwnerTransactionIsTrue(start, end)
-        .map(count -> transactionLimit > count);
-  }
-
-  private Mono<Boolean> isDateTransactionAccountAvailable(Integer dateAllowedTransaction) {
-    LocalDate dateCompletedNow = LocalDate.now();
-    return Mono.just(dateCompletedNow.getDayOfMonth() == dateAllowedTransaction);
-  }
-
-  private Mono<Transaction> validateTransactionWithAccount(
-      Account account, Transaction transaction) {
-    if (!account.getActive()) {
-      log.warn("Account is not active");
-      return Mono.empty();
-    }
-
-    if (!isTransactionAmountValid(account, transaction)) {
-      log.warn("Insufficient funds for transaction");
-      return Mono.empty();
-    }
-
-    if (AccountType.SAVING.equals(account.getAccountType())) {
-      return validateSavingAccount(account, transaction);
-    } else if (AccountType.CURRENT
-        .equals(account.getAccountType())) {
-      return processTransaction(account, transaction);
-    } else {
-      return validateOtherAccountTypes(account, transaction);
-    }
-  }
-
-  private boolean isTransactionAmountValid(Account account, Transaction transaction) {
-    return account.getAmountAvailable().add(transaction.getAmount()).compareTo(BigDecimal.ZERO)
-        >= 0;
-  }
-
-  private Mono<Transaction> validateSavingAccount(Account account, Transaction transaction) {
-    return isTransactionAccountAvailable(account.getTransactionLimit())
-        .flatMap(
-            allowed -> {
-              if (allowed) {
-                return processTransaction(account, transaction);
-              } else {
-                log.error("The transaction limit per month was exceeded");
-                return transactionNotAllowed(ErrorCode.TRANSACTION_LIMIT_EXCEEDED);
-              }
-            });
-  }
-
-  private Mono<Transaction> validateOtherAccountTypes(Account account, Transaction transaction) {
-    return isTransactionAccountAvailable(1)
-        .flatMap(
-            allowed -> {
-              if (!allowed) {
-                log.warn("Transaction not allowed for this account");
-                return transactionNotAllowed(ErrorCode.TRANSACTION_TYPE_NO_ALLOWED);
-              }
-
-              return isDateTransactionAccountAvailable(account.getDateAllowedTransaction())
-                  .flatMap(
-                      allowedDate -> {
-                        if (!allowedDate) {
-                          log.warn("Transaction not allowed due to date restrictions");
-                          return transactionNotAllowed(ErrorCode.TRANSACTION_NO_COMPLETED);
-                        }
-
-                        return processTransaction(account, transaction);
-                      });
-            });
-  }
-
-  private Mono<Transaction> processTransaction(Account account, Transaction transaction) {
-    updateAccountAmount(account.getId(), account.getAmountAvailable().add(transaction.getAmount()));
-    return transactionRepository.insert(transaction);
+  private Flux<Transaction> insertTransactions(List<Transaction> transactions) {
+    return transactionLedgerService.record(transactions);
   }
 
   private Transaction createDestinationTransaction(Transaction transaction) {
     Transaction destinationTransaction = new Transaction();
     BeanUtils.copyProperties(transaction, destinationTransaction);
-    destinationTransaction.setId(UUID.randomUUID().toString());
+    destinationTransaction.setId(new ObjectId().toHexString());
     destinationTransaction.setAccountId(transaction.getDestinationAccountId());
     destinationTransaction.setAmount(transaction.getAmount().abs());
     destinationTransaction.setDestinationAccountId(transaction.getAccountId());
@@ -229,18 +263,6 @@ public class TransactionServiceImpl implements TransactionService {
     return destinationTransaction;
   }
 
-  public void updateAccountAmount(String accountId, BigDecimal ammount) {
-    AccountUpdateDto accountUpdateDto = new AccountUpdateDto();
-    accountUpdateDto.setAmountAvailable(ammount);
-    updateByAccountId(accountId, accountUpdateDto).subscribe();
-  }
-
-  public void updateCreditAmount(String creditId, BigDecimal ammount) {
-    CreditUpdateDto creditUpdateDto = new CreditUpdateDto();
-    creditUpdateDto.setAmountAvailable(ammount);
-    updateByCreditId(creditId, creditUpdateDto).subscribe();
-  }
-
   private void setDefaultTransactionProperties(Transaction transaction, Account account) {
     transaction.setOwnerTransaction(true);
     transaction.setCreated(LocalDate.now());
@@ -249,19 +271,20 @@ public class TransactionServiceImpl implements TransactionService {
 
   @Override
   public Mono<Transaction> findById(String transactionId) {
-    return transactionRepository.findById(transactionId);
+    return transactionRepository
+        .findById(transactionId)
+        .switchIfEmpty(Mono.defer(() -> transactionArchiveService.findById(transactionId)));
   }
 
   @Override
   public Flux<Transaction> findAll() {
-    return transactionRepository.findAll();
+    return Flux.concat(transactionRepository.findAll(), transactionArchiveService.findAll());
   }
 
   @Override
   public Mono<Transaction> update(Transaction transaction, String transactionId) {
     log.info("Update a account in the service.");
-    return transactionRepository
-        .findById(transactionId)
+    return modifiable(transactionId, transaction, false)
         .flatMap(
             customerDB -> {
               transaction.setId(customerDB.getId());
@@ -269,105 +292,180 @@ public class TransactionServiceImpl implements TransactionService {
             })
         .switchIfEmpty(
             Mono.error(
-                new OperationNoCompletedException(
-                    ErrorCode.TRANSACTION_NO_UPDATE.getCode(),
-                    ErrorCode.TRANSACTION_NO_UPDATE.getMessage())));
+                new OperationNoCompletedException(ErrorCode.TRANSACTION_NO_UPDATE)));
   }
 
   @Override
   public Mono<Transaction> change(Transaction transaction, String transactionId) {
-    return transactionRepository
-        .findById(transactionId)
+    return modifiable(transactionId, transaction, true)
         .flatMap(
             entidadExistente -> {
-              // Iterar sobre los campos del objeto entidadExistente
-              Field[] fields = transaction.getClass().getDeclaredFields();
-              for (Field field : fields) {
-                if ("id".equals(field.getName())) {
-                  continue; // Saltar el campo 'id'
-                }
-                field.setAccessible(true); // Para acceder a campos privados
-                try {
-                  // Verificar si el valor del campo en entidadParcial no es null
-                  Object value = field.get(transaction);
-                  if (value != null) {
-                    // Actualizar el campo correspondiente en entidadExistente
-                    ReflectionUtils.setField(field, entidadExistente, value);
-                  }
-                } catch (IllegalAccessException e) {
-                  e.printStackTrace(); // Manejo de errores si hay problemas con la reflexión
-                }
-              }
+              // Copiar los campos no nulos del parcial, sin tocar el id
+              TransactionFields.copyNonNullFields(transaction, entidadExistente);
               // Guardar la entidad modificada
               return transactionRepository.save(entidadExistente);
             })
         .switchIfEmpty(
             Mono.error(
-                new OperationNoCompletedException(
-                    ErrorCode.TRANSACTION_NO_UPDATE.getCode(),
-                    ErrorCode.TRANSACTION_NO_UPDATE.getMessage())));
+                new OperationNoCompletedException(ErrorCode.TRANSACTION_NO_UPDATE)));
   }
 
+  // Borrar un movimiento ya registrado descuadraria los saldos y resumenes que lo incluyen
   @Override
   public Mono<Transaction> remove(String transactionId) {
+    return findById(transactionId)
+        .flatMap(
+            stored ->
+                Mono.error(
+                    new OperationNoCompletedException(
+                        ErrorCode.TRANSACTION_LEDGER_FIELDS_LOCKED)));
+  }
+
+  // Los campos del ledger no cambian: saldos, contadores, resumenes y outbox ya los aplicaron. Una
+  // transaccion archivada se resuelve como en findById pero no se modifica, su bucket guarda los
+  // totales del mes
+  private Mono<Transaction> modifiable(String transactionId, Transaction request, boolean partial) {
     return transactionRepository
         .findById(transactionId)
-        .flatMap(p -> transactionRepository.deleteById(p.getId()).thenReturn(p));
+        .switchIfEmpty(
+            Mono.defer(
+                () ->
+                    transactionArchiveService
+                        .findById(transactionId)
+                        .flatMap(
+                            archived ->
+                                Mono.error(
+                                    new OperationNoCompletedException(
+                                        ErrorCode.TRANSACTION_ARCHIVED)))))
+        .flatMap(
+            stored ->
+                TransactionFields.changesLedgerFields(request, stored, partial)
+                    ? Mono.error(
+                        new OperationNoCompletedException(
+                            ErrorCode.TRANSACTION_LEDGER_FIELDS_LOCKED))
+                    : Mono.just(stored));
   }
 
   @Override
   public Flux<Transaction> findByAccountId(String id) {
-    return transactionRepository.findByAccountId(id);
+    return withArchive(
+        transactionRepository.findByAccountIdOrderByCreatedDescIdDesc(id),
+        transactionArchiveService.findByAccountId(id, null));
   }
 
   @Override
   public Flux<Transaction> findByCreditId(String id) {
-    return transactionRepository.findByCreditId(id);
+    return withArchive(
+        transactionRepository.findByCreditIdOrderByCreatedDescIdDesc(id),
+        transactionArchiveService.findByCreditId(id, null));
   }
 
-  private boolean isFieldNonNull(Transaction transaction, String fieldName) {
-    try {
-      Field field = Transaction.class.getDeclaredField(fieldName);
-      field.setAccessible(true);
-      return field.get(transaction) != null;
-    } catch (NoSuchFieldException | IllegalAccessException e) {
-      throw new RuntimeException("Error accessing field: " + fieldName, e);
-    }
+  @Override
+  public Mono<TransactionPage> findPage(String cursor, Integer limit) {
+    return findPage(
+        cursor,
+        limit,
+        transactionRepository::findAllByOrderByCreatedDescIdDesc,
+        (after, pageLimit) ->
+            transactionRepository.findAllBefore(
+                after.created(), after.id(), after.stringIdBound(), pageLimit));
   }
 
-  public Flux<Account> findAccount(String id) {
-    return this.webClientAccount
-        .get()
-        .uri(uriBuilder -> uriBuilder.path("v1/accounts/" + id).build())
-        .retrieve()
-        .bodyToFlux(Account.class);
+  @Override
+  public Mono<TransactionPage> findPageByAccountId(String id, String cursor, Integer limit) {
+    return findPage(
+        cursor,
+        limit,
+        pageLimit ->
+            withArchive(
+                    transactionRepository.findByAccountIdOrderByCreatedDescIdDesc(id, pageLimit),
+                    transactionArchiveService.findByAccountId(id, null))
+                .take(pageLimit.max()),
+        (after, pageLimit) ->
+            withArchive(
+                    transactionRepository.findByAccountIdBefore(
+                        id, after.created(), after.id(), after.stringIdBound(), pageLimit),
+                    transactionArchiveService.findByAccountId(id, after))
+                .take(pageLimit.max()));
   }
 
-  public Flux<Credit> findCredit(String id) {
-    return this.webClientCredit
-        .get()
-        .uri(uriBuilder -> uriBuilder.path("v1/credits/" + id).build())
-        .retrieve()
-        .bodyToFlux(Credit.class);
+  @Override
+  public Mono<TransactionPage> findPageByCreditId(String id, String cursor, Integer limit) {
+    return findPage(
+        cursor,
+        limit,
+        pageLimit ->
+            withArchive(
+                    transactionRepository.findByCreditIdOrderByCreatedDescIdDesc(id, pageLimit),
+                    transactionArchiveService.findByCreditId(id, null))
+                .take(pageLimit.max()),
+        (after, pageLimit) ->
+            withArchive(
+                    transactionRepository.findByCreditIdBefore(
+                        id, after.created(), after.id(), after.stringIdBound(), pageLimit),
+                    transactionArchiveService.findByCreditId(id, after))
+                .take(pageLimit.max()));
   }
 
-  public Mono<Account> updateByAccountId(String id, AccountUpdateDto accountUpdateDto) {
-    log.info("Update account with id: [{}]", id);
-    return this.webClientAccount
-        .patch()
-        .uri(uriBuilder -> uriBuilder.path("v1/accounts/" + id).build())
-        .bodyValue(accountUpdateDto)
-        .retrieve()
-        .bodyToMono(Account.class);
+  // Intercala las transacciones archivadas en el orden del historial; un id repetido solo aparece
+  // si el archivado se corto entre escribir un bucket y borrar sus transacciones
+  private Flux<Transaction> withArchive(Flux<Transaction> hot, Flux<Transaction> archived) {
+    return Flux.mergeComparing(TransactionOrder.NEWEST_FIRST, hot, archived)
+        .distinctUntilChanged(Transaction::getId);
+  }
+
+  private Mono<TransactionPage> findPage(
+      String cursor,
+      Integer limit,
+      Function<Limit, Flux<Transaction>> firstPage,
+      BiFunction<PageCursor, Limit, Flux<Transaction>> nextPage) {
+    int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+    // Se pide un elemento extra para saber si existe una pagina siguiente
+    Limit fetchLimit = Limit.of(pageSize + 1);
+    Flux<Transaction> page =
+        cursor == null || cursor.isBlank()
+            ? firstPage.apply(fetchLimit)
+            : nextPage.apply(PageCursor.decode(cursor), fetchLimit);
+    return page.collectList()
+        .map(
+            content -> {
+              if (content.size() <= pageSize) {
+                return new TransactionPage(content, null);
+              }
+              List<Transaction> pageContent = content.subList(0, pageSize);
+              return new TransactionPage(
+                  pageContent, PageCursor.of(pageContent.get(pageSize - 1)).encode());
+            });
   }
 
-  public Mono<Credit> updateByCreditId(String id, CreditUpdateDto creditUpdateDto) {
-    log.info("Update account with id: [{}]", id);
-    return this.webClientCredit
-        .patch()
-        .uri(uriBuilder -> uriBuilder.path("v1/credits/" + id).build())
-        .bodyValue(creditUpdateDto)
-        .retrieve()
-        .bodyToMono(Credit.class);
+  private record PreparedItem(long index, List<Transaction> transactions, Throwable error) {
+
+    PreparedItem withError(Throwable error) {
+      return new PreparedItem(index, List.of(), error);
+    }
+
+    TransactionBatchResult toResult() {
+      if (error == null && transactions.isEmpty()) {
+        return TransactionBatchResult.rejected(
+            index,
+            ErrorCode.TRANSACTION_NO_CREATED.getCode(),
+            ErrorCode.TRANSACTION_NO_CREATED.getMessage());
+      }
+      if (error instanceof OperationNoCompletedException ex) {
+        return TransactionBatchResult.rejected(index, ex.getErrorCode(), ex.getErrorMessage());
+      }
+      if (error instanceof IllegalArgumentException) {
+        return TransactionBatchResult.rejected(
+            index, ErrorCode.INVALID_REQUEST.getCode(), error.getMessage());
+      }
+      if (error != null) {
+        return TransactionBatchResult.rejected(
+            index,
+            ErrorCode.INTERNAL_SERVER_ERROR.getCode(),
+            ErrorCode.INTERNAL_SERVER_ERROR.getMessage());
+      }
+      return TransactionBatchResult.created(
+          index, transactions.stream().map(Transaction::getId).toList());
+    }
   }
 }
@@ -0,0 +1,71 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.service.TransactionStorageMigrationService;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reescribe en el formato compacto las transacciones guardadas con claves largas. Recorre la
+ * coleccion con un cursor y reemplaza por lotes, sin cargarla en memoria; los documentos se
+ * siguen leyendo en ambos formatos mientras dura la migracion.
+ */
+@Service
+@Slf4j
+public class TransactionStorageMigrationServiceImpl implements TransactionStorageMigrationService {
+
+  private static final Bson LEGACY_DOCUMENT =
+      Filters.or(Filters.exists("amount"), Filters.exists("_class"));
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final int batchSize;
+
+  public TransactionStorageMigrationServiceImpl(
+      ReactiveMongoTemplate mongoTemplate,
+      @Value("${application.storage-migration.batch-size:500}") int batchSize) {
+    this.mongoTemplate = mongoTemplate;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public Mono<Long> migrate() {
+    log.info("Migrating transaction documents to the compact encoding");
+    return mongoTemplate
+        .getCollection(mongoTemplate.getCollectionName(Transaction.class))
+        .flatMap(
+            collection ->
+                Flux.from(collection.find(LEGACY_DOCUMENT).batchSize(batchSize))
+                    .map(this::toCompact)
+                    .buffer(batchSize)
+                    .concatMap(
+                        replacements ->
+                            Mono.from(
+                                collection.bulkWrite(
+                                    replacements, new BulkWriteOptions().ordered(false))))
+                    .map(BulkWriteResult::getModifiedCount)
+                    .reduce(0L, Long::sum))
+        .doOnNext(migrated -> log.info("Migrated {} transaction documents", migrated));
+  }
+
+  private ReplaceOneModel<Document> toCompact(Document legacy) {
+    Transaction transaction = mongoTemplate.getConverter().read(Transaction.class, legacy);
+    Document compact = new Document();
+    mongoTemplate.getConverter().write(transaction, compact);
+    // El _id no cambia de tipo: los ids antiguos siguen siendo los que conoce el API
+    compact.put("_id", legacy.get("_id"));
+    // Solo si sigue en el formato anterior, por si otro proceso ya lo reescribio
+    return new ReplaceOneModel<>(
+        Filters.and(Filters.eq("_id", legacy.get("_id")), LEGACY_DOCUMENT), compact);
+  }
+
+}
@@ -0,0 +1,229 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import com.nttdata.bootcamp.microservicio04.config.TransactionRuleProperties;
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.AccountType;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.service.AccountBalanceService;
+import com.nttdata.bootcamp.microservicio04.service.TransactionCounterService;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Validacion de las transacciones de cuenta como una cadena de reglas por tipo de cuenta y de
+ * transaccion. Las cadenas se arman una sola vez al arrancar, con las reglas en memoria delante de
+ * las que consultan Mongo; la primera regla que rechaza corta la cadena. Los limites se leen en
+ * cada evaluacion desde {@link TransactionRuleProperties}.
+ *
+ * <p>Se conservan las respuestas anteriores a la cadena: cuenta inactiva y saldo insuficiente
+ * terminan vacios, sin error (una transferencia vacia se responde con TRANSACTION_TYPE_NO_ALLOWED),
+ * y el resto de reglas falla con su ErrorCode. Cambian dos casos: en un plazo fijo el dia permitido
+ * se comprueba antes que el limite mensual, asi que si fallan ambos se responde
+ * TRANSACTION_NO_COMPLETED en lugar de TRANSACTION_TYPE_NO_ALLOWED; y un deposito ya no se rechaza
+ * por un saldo previo negativo.
+ */
+@Component
+@Slf4j
+@EnableConfigurationProperties(TransactionRuleProperties.class)
+public class TransactionValidationPipeline {
+
+  private static final String PASSED = "PASSED";
+  private static final String ERROR = "ERROR";
+  // Rechazo que no es un error: la validacion termina vacia y la transaccion no se crea
+  private static final ErrorCode NOT_CREATED = ErrorCode.TRANSACTION_NO_CREATED;
+  // Un plazo fijo admite un movimiento al mes salvo que la configuracion diga otra cosa
+  private static final int FIXED_TERM_MONTHLY_TRANSACTIONS = 1;
+
+  private final TransactionCounterService transactionCounterService;
+  private final AccountBalanceService accountBalanceService;
+  private final TransactionRuleProperties ruleProperties;
+  private final MeterRegistry meterRegistry;
+  private final Map<AccountType, Map<TransactionType, List<TransactionRule>>> chains;
+
+  public TransactionValidationPipeline(
+      TransactionCounterService transactionCounterService,
+      AccountBalanceService accountBalanceService,
+      TransactionRuleProperties ruleProperties,
+      MeterRegistry meterRegistry) {
+    this.transactionCounterService = transactionCounterService;
+    this.accountBalanceService = accountBalanceService;
+    this.ruleProperties = ruleProperties;
+    this.meterRegistry = meterRegistry;
+    this.chains = compile(rules());
+  }
+
+  public Mono<Transaction> validate(Account account, Transaction transaction) {
+    return validate(account, transaction, PendingMovements.none());
+  }
+
+  Mono<Transaction> validate(Account account, Transaction transaction, PendingMovements pending) {
+    if (account.getAccountType() == null || transaction.getTransactionType() == null) {
+      return Mono.error(
+          new IllegalArgumentException("accountType and transactionType are required"));
+    }
+    return Flux.fromIterable(chain(account.getAccountType(), transaction.getTransactionType()))
+        .concatMap(rule -> evaluate(rule, account, transaction, pending))
+        .next()
+        .map(Optional::of)
+        .defaultIfEmpty(Optional.empty())
+        .flatMap(
+            rejection ->
+                rejection.isEmpty() ? Mono.just(transaction) : reject(rejection.get()));
+  }
+
+  List<TransactionRule> chain(AccountType accountType, TransactionType transactionType) {
+    return chains.get(accountType).get(transactionType);
+  }
+
+  private List<TransactionRule> rules() {
+    return List.of(
+        new TransactionRule(
+            "active-account",
+            TransactionRule.Cost.IN_MEMORY,
+            (accountType, transactionType) -> true,
+            (account, transaction, pending) ->
+                Boolean.TRUE.equals(account.getActive())
+                    ? Mono.empty()
+                    : Mono.just(NOT_CREATED)),
+        new TransactionRule(
+            "allowed-day",
+            TransactionRule.Cost.IN_MEMORY,
+            (accountType, transactionType) -> AccountType.FIXED_TERM.equals(accountType),
+            (account, transaction, pending) -> {
+              Integer allowedDay =
+                  Optional.ofNullable(
+                          ruleProperties.limits(account.getAccountType()).getAllowedDay())
+                      .orElse(account.getDateAllowedTransaction());
+              return allowedDay != null && LocalDate.now().getDayOfMonth() == allowedDay
+                  ? Mono.empty()
+                  : Mono.just(ErrorCode.TRANSACTION_NO_COMPLETED);
+            }),
+        new TransactionRule(
+            "sufficient-balance",
+            TransactionRule.Cost.IO,
+            // Un abono no puede dejar el saldo en negativo
+            (accountType, transactionType) -> !TransactionType.DEPOSIT.equals(transactionType),
+            (account, transaction, pending) ->
+                accountBalanceService
+                    .findBalance(account)
+                    .map(balance -> balance.add(pending.debits(account.getId())))
+                    .filter(
+                        balance ->
+                            balance.add(transaction.getAmount()).compareTo(BigDecimal.ZERO) < 0)
+                    .map(balance -> NOT_CREATED)),
+        new TransactionRule(
+            "monthly-transactions",
+            TransactionRule.Cost.IO,
+            (accountType, transactionType) -> !AccountType.CURRENT.equals(accountType),
+            (account, transaction, pending) -> {
+              Integer limit = monthlyTransactions(account);
+              if (limit == null) {
+                return Mono.empty();
+              }
+              // Leer el contador del mes actual de la cuenta en lugar de contar documentos
+              return transactionCounterService
+                  .countOwnerTransactions(account.getId(), YearMonth.now())
+                  .map(count -> count + pending.ownerTransactions(account.getId()))
+                  .filter(count -> count >= limit)
+                  .map(
+                      count ->
+                          AccountType.SAVING.equals(account.getAccountType())
+                              ? ErrorCode.TRANSACTION_LIMIT_EXCEEDED
+                              : ErrorCode.TRANSACTION_TYPE_NO_ALLOWED);
+            }));
+  }
+
+  private Integer monthlyTransactions(Account account) {
+    Integer configured = ruleProperties.limits(account.getAccountType()).getMonthlyTransactions();
+    if (configured != null) {
+      return configured;
+    }
+    return AccountType.FIXED_TERM.equals(account.getAccountType())
+        ? FIXED_TERM_MONTHLY_TRANSACTIONS
+        : account.getTransactionLimit();
+  }
+
+  private static Map<AccountType, Map<TransactionType, List<TransactionRule>>> compile(
+      List<TransactionRule> rules) {
+    Map<AccountType, Map<TransactionType, List<TransactionRule>>> chains =
+        new EnumMap<>(AccountType.class);
+    for (AccountType accountType : AccountType.values()) {
+      Map<TransactionType, List<TransactionRule>> byTransactionType =
+          new EnumMap<>(TransactionType.class);
+      for (TransactionType transactionType : TransactionType.values()) {
+        byTransactionType.put(
+            transactionType,
+            rules.stream()
+                .filter(rule -> rule.appliesTo().test(accountType, transactionType))
+                .sorted(Comparator.comparing(TransactionRule::cost))
+                .toList());
+      }
+      chains.put(accountType, byTransactionType);
+    }
+    return chains;
+  }
+
+  private Mono<Rejection> evaluate(
+      TransactionRule rule, Account account, Transaction transaction, PendingMovements pending) {
+    return Mono.defer(
+        () -> {
+          Timer.Sample sample = Timer.start(meterRegistry);
+          return rule.check()
+              .apply(account, transaction, pending)
+              .doOnNext(
+                  errorCode -> {
+                    stop(sample, rule, account, errorCode.name());
+                    Counter.builder("transaction.validation.rejections")
+                        .tag("rule", rule.name())
+                        .tag("accountType", account.getAccountType().name())
+                        .tag("transactionType", transaction.getTransactionType().name())
+                        .tag("reason", errorCode.name())
+                        .register(meterRegistry)
+                        .increment();
+                  })
+              .map(errorCode -> new Rejection(rule, errorCode))
+              .doOnError(e -> stop(sample, rule, account, ERROR))
+              .switchIfEmpty(Mono.fromRunnable(() -> stop(sample, rule, account, PASSED)));
+        });
+  }
+
+  private Mono<Transaction> reject(Rejection rejection) {
+    log.warn(
+        "Transaction rejected by rule {}: {}",
+        rejection.rule().name(),
+        rejection.errorCode().getMessage());
+    if (NOT_CREATED.equals(rejection.errorCode())) {
+      return Mono.empty();
+    }
+    return Mono.error(
+        new OperationNoCompletedException(rejection.errorCode()));
+  }
+
+  private void stop(Timer.Sample sample, TransactionRule rule, Account account, String outcome) {
+    sample.stop(
+        Timer.builder("transaction.validation.rule")
+            .tag("rule", rule.name())
+            .tag("accountType", account.getAccountType().name())
+            .tag("outcome", outcome)
+            .register(meterRegistry));
+  }
+
+  private record Rejection(TransactionRule rule, ErrorCode errorCode) {}
+}
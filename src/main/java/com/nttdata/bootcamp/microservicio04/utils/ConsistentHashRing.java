@@ -0,0 +1,59 @@
+package com.nttdata.bootcamp.microservicio04.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Anillo de hash consistente inmutable. Cada nodo aporta varios puntos virtuales, asi al entrar o
+ * salir un nodo solo cambian de dueno las claves de sus tramos.
+ */
+public final class ConsistentHashRing<T> {
+
+  private final NavigableMap<Long, T> ring;
+
+  private ConsistentHashRing(NavigableMap<Long, T> ring) {
+    this.ring = ring;
+  }
+
+  /** Construye el anillo con {@code virtualNodes} puntos por cada id de nodo. */
+  public static <T> ConsistentHashRing<T> of(
+      Map<String, T> nodes, ToIntFunction<T> virtualNodes) {
+    NavigableMap<Long, T> ring = new TreeMap<>();
+    nodes.forEach(
+        (id, node) -> {
+          int points = Math.max(1, virtualNodes.applyAsInt(node));
+          for (int i = 0; i < points; i++) {
+            ring.put(hash(id + "#" + i), node);
+          }
+        });
+    return new ConsistentHashRing<>(ring);
+  }
+
+  public boolean isEmpty() {
+    return ring.isEmpty();
+  }
+
+  public T owner(String key) {
+    if (ring.isEmpty()) {
+      return null;
+    }
+    Map.Entry<Long, T> entry = ring.ceilingEntry(hash(key));
+    return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+  }
+
+  private static long hash(String value) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+      return ByteBuffer.wrap(digest).getLong();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("MD5 is not available", e);
+    }
+  }
+}
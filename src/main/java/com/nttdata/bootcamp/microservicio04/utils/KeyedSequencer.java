@@ -0,0 +1,126 @@
+package com.nttdata.bootcamp.microservicio04.utils;
+
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.ContextView;
+
+/**
+ * Serializa sin bloquear las operaciones que comparten clave. Cada clave con trabajo pendiente
+ * tiene su propia cola: la siguiente tarea empieza cuando termina la anterior y claves distintas
+ * nunca se esperan entre si. Una tarea que supera el plazo falla con SERVICE_UNAVAILABLE y libera
+ * la clave, asi una llamada colgada no retiene las escrituras siguientes de esa cuenta.
+ */
+@Slf4j
+public class KeyedSequencer {
+
+  // Una clave esta en el mapa mientras tiene una tarea en curso; la cola guarda las que esperan
+  private final Map<String, Queue<Task<?>>> queues = new ConcurrentHashMap<>();
+  private final AtomicInteger queueDepth = new AtomicInteger();
+  private final Timer waitTimer;
+  private final Duration timeout;
+
+  public KeyedSequencer(String name, Duration timeout, MeterRegistry meterRegistry) {
+    Gauge.builder("write.sequencer.queue.depth", queueDepth, AtomicInteger::get)
+        .tag("sequencer", name)
+        .register(meterRegistry);
+    this.waitTimer =
+        Timer.builder("write.sequencer.wait")
+            .tag("sequencer", name)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    this.timeout = timeout;
+  }
+
+  /**
+   * Ejecuta la accion cuando terminan las anteriores de su clave, con el contexto de Reactor del
+   * llamador. Si el llamador cancela, la accion ya encolada se ejecuta igual para no dejar una
+   * escritura a medias.
+   */
+  public <T> Mono<T> run(String key, Supplier<Mono<T>> action) {
+    return Mono.deferContextual(
+        context -> {
+          Task<T> task = new Task<>(key, action, context, System.nanoTime());
+          queueDepth.incrementAndGet();
+          if (enqueue(task)) {
+            task.execute();
+          }
+          return task.result.asMono();
+        });
+  }
+
+  // Devuelve true si la clave estaba libre y la tarea debe empezar ya
+  private boolean enqueue(Task<?> task) {
+    boolean[] idle = {false};
+    queues.compute(
+        task.key,
+        (key, waiting) -> {
+          if (waiting == null) {
+            idle[0] = true;
+            return new ArrayDeque<>();
+          }
+          waiting.add(task);
+          return waiting;
+        });
+    return idle[0];
+  }
+
+  // Sin tareas en espera la clave sale del mapa
+  private void next(String key) {
+    Task<?>[] next = new Task<?>[1];
+    queues.computeIfPresent(
+        key,
+        (k, waiting) -> {
+          next[0] = waiting.poll();
+          return next[0] == null ? null : waiting;
+        });
+    if (next[0] != null) {
+      next[0].execute();
+    }
+  }
+
+  private final class Task<T> {
+    private final String key;
+    private final Supplier<Mono<T>> action;
+    private final ContextView context;
+    private final long enqueuedAt;
+    private final Sinks.One<T> result = Sinks.one();
+
+    private Task(String key, Supplier<Mono<T>> action, ContextView context, long enqueuedAt) {
+      this.key = key;
+      this.action = action;
+      this.context = context;
+      this.enqueuedAt = enqueuedAt;
+    }
+
+    private void execute() {
+      queueDepth.decrementAndGet();
+      waitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+      Mono.defer(action)
+          .timeout(
+              timeout,
+              Mono.defer(
+                  () -> {
+                    log.warn("Sequenced write for [{}] timed out after {}", key, timeout);
+                    return Mono.error(
+                        new OperationNoCompletedException(ErrorCode.SERVICE_UNAVAILABLE));
+                  }))
+          .contextWrite(context)
+          .doFinally(signal -> next(key))
+          .subscribe(result::tryEmitValue, result::tryEmitError, result::tryEmitEmpty);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.nttdata.bootcamp.microservicio04.utils;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import org.bson.types.ObjectId;
+
+/** Cursor opaco de paginacion: la clave (created, id) del ultimo elemento de la pagina. */
+public record PageCursor(LocalDate created, String id) {
+
+  private static final String SEPARATOR = "|";
+  // Mayor que cualquier id String ASCII
+  private static final String MAX_STRING_ID = "\uffff";
+
+  public static PageCursor of(Transaction transaction) {
+    return new PageCursor(transaction.getCreated(), transaction.getId());
+  }
+
+  public static PageCursor decode(String token) {
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      int separator = value.indexOf(SEPARATOR);
+      if (separator < 0) {
+        throw invalidCursor();
+      }
+      return new PageCursor(
+          LocalDate.parse(value.substring(0, separator)), value.substring(separator + 1));
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      throw invalidCursor();
+    }
+  }
+
+  // Conviven ids ObjectId y String; Mongo ordena todo String antes que cualquier ObjectId pero
+  // $lt solo compara valores del mismo tipo, asi que tras un ObjectId siguen todos los String
+  public String stringIdBound() {
+    return ObjectId.isValid(id) ? MAX_STRING_ID : id;
+  }
+
+  // true si la transaccion va despues del cursor en el orden de las paginas
+  public boolean precedes(Transaction transaction) {
+    return TransactionOrder.compare(created, id, transaction.getCreated(), transaction.getId()) < 0;
+  }
+
+  public String encode() {
+    String value = created + SEPARATOR + id;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static OperationNoCompletedException invalidCursor() {
+    return new OperationNoCompletedException(ErrorCode.INVALID_REQUEST);
+  }
+}
@@ -0,0 +1,37 @@
+package com.nttdata.bootcamp.microservicio04.utils;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.RenameCollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+/**
+ * Coleccion auxiliar donde se reconstruye una proyeccion sin tocar la vigente. Al terminar se
+ * renombra sobre la original de forma atomica, asi los lectores nunca ven la proyeccion vacia o a
+ * medio llenar.
+ */
+public record StagedCollection(String name, String target) {
+
+  public static StagedCollection of(ReactiveMongoTemplate mongoTemplate, Class<?> entityClass) {
+    String target = mongoTemplate.getCollectionName(entityClass);
+    return new StagedCollection(target + "_rebuild", target);
+  }
+
+  // Descarta restos de una reconstruccion interrumpida
+  public Mono<Void> reset(ReactiveMongoTemplate mongoTemplate) {
+    return mongoTemplate.dropCollection(name).then(mongoTemplate.createCollection(name)).then();
+  }
+
+  public Mono<Void> swap(ReactiveMongoTemplate mongoTemplate) {
+    return mongoTemplate
+        .getMongoDatabase()
+        .flatMap(
+            database ->
+                Mono.from(
+                    database
+                        .getCollection(name)
+                        .renameCollection(
+                            new MongoNamespace(database.getName(), target),
+                            new RenameCollectionOptions().dropTarget(true))));
+  }
+}
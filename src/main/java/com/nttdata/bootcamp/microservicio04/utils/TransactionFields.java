@@ -0,0 +1,126 @@
+package com.nttdata.bootcamp.microservicio04.utils;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Tabla fija de accesores de {@link Transaction} para las actualizaciones parciales y las
+ * proyecciones de la busqueda, sin reflexion en cada peticion. La tabla se contrasta una sola vez
+ * con los campos declarados al cargar la clase, asi un campo nuevo sin accesor falla al arrancar y
+ * no se ignora en silencio.
+ */
+public final class TransactionFields {
+
+  private static final List<FieldAccessor<?>> UPDATABLE_FIELDS =
+      List.of(
+          new FieldAccessor<>("amount", Transaction::getAmount, Transaction::setAmount),
+          new FieldAccessor<>("created", Transaction::getCreated, Transaction::setCreated),
+          new FieldAccessor<>(
+              "transactionType", Transaction::getTransactionType, Transaction::setTransactionType),
+          new FieldAccessor<>("accountId", Transaction::getAccountId, Transaction::setAccountId),
+          new FieldAccessor<>(
+              "destinationAccountId",
+              Transaction::getDestinationAccountId,
+              Transaction::setDestinationAccountId),
+          new FieldAccessor<>(
+              "ownerTransaction",
+              Transaction::getOwnerTransaction,
+              Transaction::setOwnerTransaction),
+          new FieldAccessor<>("creditId", Transaction::getCreditId, Transaction::setCreditId),
+          new FieldAccessor<>("active", Transaction::getActive, Transaction::setActive));
+
+  // Campos que el ledger ya aplico a saldos, contadores, resumenes y outbox
+  private static final Set<String> LEDGER_FIELDS =
+      Set.of(
+          "amount",
+          "created",
+          "transactionType",
+          "accountId",
+          "destinationAccountId",
+          "ownerTransaction",
+          "creditId");
+
+  static {
+    Set<String> declared =
+        Arrays.stream(Transaction.class.getDeclaredFields())
+            .filter(field -> !Modifier.isStatic(field.getModifiers()))
+            .map(Field::getName)
+            .filter(name -> !"id".equals(name))
+            .collect(Collectors.toSet());
+    Set<String> mapped =
+        UPDATABLE_FIELDS.stream().map(FieldAccessor::name).collect(Collectors.toSet());
+    if (!declared.equals(mapped)) {
+      throw new IllegalStateException(
+          "Transaction fields " + declared + " do not match the accessor table " + mapped);
+    }
+  }
+
+  private TransactionFields() {}
+
+  // Copia en target los campos no nulos de source, excepto el id
+  public static void copyNonNullFields(Transaction source, Transaction target) {
+    for (FieldAccessor<?> accessor : UPDATABLE_FIELDS) {
+      accessor.copyIfNonNull(source, target);
+    }
+  }
+
+  // True si source cambia algun campo del ledger de target; en un parcial un nulo no cambia nada
+  public static boolean changesLedgerFields(
+      Transaction source, Transaction target, boolean partial) {
+    for (FieldAccessor<?> accessor : UPDATABLE_FIELDS) {
+      if (!LEDGER_FIELDS.contains(accessor.name())) {
+        continue;
+      }
+      Object requested = accessor.getter().apply(source);
+      if ((requested != null || !partial)
+          && !sameValue(requested, accessor.getter().apply(target))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean sameValue(Object requested, Object stored) {
+    return requested instanceof BigDecimal amount && stored instanceof BigDecimal current
+        ? amount.compareTo(current) == 0
+        : Objects.equals(requested, stored);
+  }
+
+  public static boolean isField(String name) {
+    return UPDATABLE_FIELDS.stream().anyMatch(accessor -> accessor.name().equals(name));
+  }
+
+  // El id y los campos pedidos, en el orden de la tabla; sin campos pedidos van todos
+  public static Map<String, Object> project(Transaction transaction, Set<String> fields) {
+    Map<String, Object> projected = new LinkedHashMap<>();
+    projected.put("id", transaction.getId());
+    for (FieldAccessor<?> accessor : UPDATABLE_FIELDS) {
+      if (fields.isEmpty() || fields.contains(accessor.name())) {
+        projected.put(accessor.name(), accessor.getter().apply(transaction));
+      }
+    }
+    return projected;
+  }
+
+  private record FieldAccessor<T>(
+      String name, Function<Transaction, T> getter, BiConsumer<Transaction, T> setter) {
+
+    void copyIfNonNull(Transaction source, Transaction target) {
+      T value = getter.apply(source);
+      if (value != null) {
+        setter.accept(target, value);
+      }
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.nttdata.bootcamp.microservicio04.utils;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import java.time.LocalDate;
+import java.util.Comparator;
+import org.bson.types.ObjectId;
+
+/** Orden del historial: (created, _id) descendente, el mismo que siguen los indices en Mongo. */
+public final class TransactionOrder {
+
+  public static final Comparator<Transaction> NEWEST_FIRST =
+      (left, right) -> compare(left.getCreated(), left.getId(), right.getCreated(), right.getId());
+
+  private static final Comparator<LocalDate> CREATED_ASCENDING =
+      Comparator.nullsFirst(Comparator.naturalOrder());
+
+  private TransactionOrder() {}
+
+  // Negativo si la clave izquierda es mas reciente; Mongo deja las fechas nulas al final
+  public static int compare(
+      LocalDate leftCreated, String leftId, LocalDate rightCreated, String rightId) {
+    int byCreated = CREATED_ASCENDING.compare(rightCreated, leftCreated);
+    return byCreated != 0 ? byCreated : compareIds(rightId, leftId);
+  }
+
+  // Mongo ordena cualquier String antes que cualquier ObjectId; el hex en minusculas conserva el
+  // orden de los bytes
+  private static int compareIds(String left, String right) {
+    int byType = Boolean.compare(ObjectId.isValid(left), ObjectId.isValid(right));
+    return byType != 0 ? byType : left.compareTo(right);
+  }
+}
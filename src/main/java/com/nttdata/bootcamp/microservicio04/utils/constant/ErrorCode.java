@@ -16,6 +16,12 @@ public enum ErrorCode {
   TRANSACTION_TYPE_NO_ALLOWED("404", "Account type not allowed for this customer"),
   TRANSACTION_AMOUNT_NOT_ALLOWED("404", "The transaction amount must be greater than 0"),
   TRANSACTION_LIMIT_EXCEEDED("404", "The transaction limit per month was exceeded"),
+  IDEMPOTENCY_KEY_IN_PROGRESS("409", "A request with this Idempotency-Key is still in progress"),
+  IDEMPOTENCY_KEY_REUSED("422", "The Idempotency-Key was already used for a different request"),
+  SEARCH_NOT_INDEXED("400", "The search needs an accountId, a creditId or a date range"),
+  TRANSACTION_LEDGER_FIELDS_LOCKED(
+      "409", "The amount, type, date and products of a recorded transaction cannot change"),
+  TRANSACTION_ARCHIVED("409", "An archived transaction cannot be modified"),
 
   INTERNAL_SERVER_ERROR("500", "Internal server error"),
   SERVICE_UNAVAILABLE("503", "Service unavailable");
@@ -0,0 +1,71 @@
+package com.nttdata.bootcamp.microservicio04.utils.converter;
+
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+
+/**
+ * Lee transacciones en el formato compacto y en el formato anterior (claves largas, monto como
+ * String y tipo por nombre), para que los documentos sigan siendo legibles mientras se migran.
+ */
+@ReadingConverter
+public class TransactionReadConverter implements Converter<Document, Transaction> {
+
+  @Override
+  public Transaction convert(Document source) {
+    Transaction transaction = new Transaction();
+    Object id = source.get("_id");
+    transaction.setId(id instanceof ObjectId objectId ? objectId.toHexString() : (String) id);
+    transaction.setAmount(toAmount(value(source, Transaction.AMOUNT_KEY, "amount")));
+    transaction.setCreated(toLocalDate(value(source, Transaction.CREATED_KEY, "created")));
+    transaction.setTransactionType(
+        toTransactionType(value(source, Transaction.TYPE_KEY, "transactionType")));
+    transaction.setAccountId((String) value(source, Transaction.ACCOUNT_ID_KEY, "accountId"));
+    transaction.setDestinationAccountId(
+        (String) value(source, Transaction.DESTINATION_ACCOUNT_ID_KEY, "destinationAccountId"));
+    transaction.setOwnerTransaction(
+        (Boolean) value(source, Transaction.OWNER_KEY, "ownerTransaction"));
+    transaction.setCreditId((String) value(source, Transaction.CREDIT_ID_KEY, "creditId"));
+    transaction.setActive((Boolean) value(source, Transaction.ACTIVE_KEY, "active"));
+    return transaction;
+  }
+
+  public static TransactionType toTransactionType(Object value) {
+    if (value == null) {
+      return null;
+    }
+    return value instanceof Number code
+        ? TransactionType.fromStorageCode(code.intValue())
+        : TransactionType.valueOf(value.toString());
+  }
+
+  private static Object value(Document source, String key, String legacyKey) {
+    Object value = source.get(key);
+    return value != null ? value : source.get(legacyKey);
+  }
+
+  private static BigDecimal toAmount(Object value) {
+    if (value == null) {
+      return null;
+    }
+    if (value instanceof Decimal128 decimal) {
+      return decimal.bigDecimalValue();
+    }
+    return new BigDecimal(value.toString());
+  }
+
+  // Spring guarda LocalDate como inicio del dia en la zona por defecto
+  private static LocalDate toLocalDate(Object value) {
+    return value == null
+        ? null
+        : ((Date) value).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+  }
+}
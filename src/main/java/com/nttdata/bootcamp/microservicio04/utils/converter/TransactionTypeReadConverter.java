@@ -0,0 +1,14 @@
+package com.nttdata.bootcamp.microservicio04.utils.converter;
+
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+
+@ReadingConverter
+public class TransactionTypeReadConverter implements Converter<Integer, TransactionType> {
+
+  @Override
+  public TransactionType convert(Integer source) {
+    return TransactionType.fromStorageCode(source);
+  }
+}
@@ -0,0 +1,14 @@
+package com.nttdata.bootcamp.microservicio04.utils.converter;
+
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.WritingConverter;
+
+@WritingConverter
+public class TransactionTypeWriteConverter implements Converter<TransactionType, Integer> {
+
+  @Override
+  public Integer convert(TransactionType source) {
+    return source.getStorageCode();
+  }
+}
@@ -1,12 +1,23 @@
 package com.nttdata.bootcamp.microservicio04.utils.exception;
 
-import lombok.AllArgsConstructor;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
 import lombok.Getter;
 
 @Getter
-@AllArgsConstructor
 public class OperationNoCompletedException extends RuntimeException {
 
-  private final String errorCode;
-  private final String errorMessage;
+  private final ErrorCode error;
+
+  public OperationNoCompletedException(ErrorCode error) {
+    super(error.getMessage());
+    this.error = error;
+  }
+
+  public String getErrorCode() {
+    return error.getCode();
+  }
+
+  public String getErrorMessage() {
+    return error.getMessage();
+  }
 }
@@ -0,0 +1,85 @@
+package com.nttdata.bootcamp.microservicio04.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class BalanceUpdateStageTest {
+
+  private BalanceUpdateStage stage;
+
+  @AfterEach
+  void tearDown() {
+    stage.close();
+  }
+
+  @Test
+  void emptyResponseFailsTheUpdate() {
+    stage = stage((key, delta) -> Mono.empty());
+
+    StepVerifier.create(stage.submit("a-1", BigDecimal.ONE))
+        .expectError(OperationNoCompletedException.class)
+        .verify(Duration.ofSeconds(2));
+  }
+
+  @Test
+  void slowKeyDoesNotHoldTheOthers() {
+    stage =
+        stage(
+            (key, delta) ->
+                "slow".equals(key)
+                    ? Mono.just(delta).delayElement(Duration.ofSeconds(2))
+                    : Mono.just(delta));
+    stage.submit("slow", BigDecimal.ONE).subscribe();
+
+    Mono<Void> fast = Mono.delay(Duration.ofMillis(50)).then(stage.submit("fast", BigDecimal.ONE));
+
+    StepVerifier.create(fast)
+        .expectComplete()
+        .verify(Duration.ofMillis(500));
+  }
+
+  @Test
+  void deltasArrivingDuringAPatchAreSentTogetherAfterIt() {
+    List<BigDecimal> applied = new CopyOnWriteArrayList<>();
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    stage =
+        stage(
+            (key, delta) ->
+                Mono.just(delta)
+                    .delayElement(Duration.ofMillis(200))
+                    .doOnSubscribe(
+                        subscription ->
+                            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                    .doOnNext(applied::add)
+                    .doOnTerminate(inFlight::decrementAndGet));
+    stage.submit("a-1", new BigDecimal("1")).subscribe();
+    Mono<Void> later =
+        Mono.delay(Duration.ofMillis(50))
+            .then(
+                Mono.when(
+                    stage.submit("a-1", new BigDecimal("2")),
+                    stage.submit("a-1", new BigDecimal("3"))));
+
+    StepVerifier.create(later).expectComplete().verify(Duration.ofSeconds(2));
+    assertThat(applied).containsExactly(new BigDecimal("1"), new BigDecimal("5"));
+    assertThat(maxInFlight).hasValue(1);
+  }
+
+  private static BalanceUpdateStage stage(BiFunction<String, BigDecimal, Mono<?>> applyDelta) {
+    return new BalanceUpdateStage(
+        "test", applyDelta, 100, Duration.ofMillis(20), 4, new SimpleMeterRegistry());
+  }
+}
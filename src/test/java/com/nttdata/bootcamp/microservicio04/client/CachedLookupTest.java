@@ -0,0 +1,57 @@
+package com.nttdata.bootcamp.microservicio04.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class CachedLookupTest {
+
+  private final AsyncCache<String, String> cache = Caffeine.newBuilder().buildAsync();
+  private final AtomicReference<String> remote = new AtomicReference<>("v1");
+  private final AtomicInteger fetches = new AtomicInteger();
+  private final CachedLookup<String> lookup =
+      new CachedLookup<>(
+          cache,
+          id ->
+              Mono.fromSupplier(
+                  () -> {
+                    fetches.incrementAndGet();
+                    return remote.get();
+                  }),
+          (id, value) -> true);
+
+  @Test
+  void concurrentReadsShareTheCachedValue() {
+    assertThat(lookup.find("id").block()).isEqualTo("v1");
+    assertThat(lookup.find("id").block()).isEqualTo("v1");
+    assertThat(fetches).hasValue(1);
+  }
+
+  @Test
+  void readersDoNotSeeTheSnapshotFromBeforeAnInFlightWrite() {
+    assertThat(lookup.find("id").block()).isEqualTo("v1");
+    Sinks.One<String> response = Sinks.one();
+    lookup.write("id", response.asMono()).subscribe();
+
+    // El servicio ya aplico la escritura pero la respuesta aun no llega
+    remote.set("v2");
+    assertThat(lookup.find("id").block()).isEqualTo("v2");
+
+    response.tryEmitValue("v2");
+    assertThat(lookup.find("id").block()).isEqualTo("v2");
+  }
+
+  @Test
+  void failedWriteDropsTheEntry() {
+    assertThat(lookup.find("id").block()).isEqualTo("v1");
+    lookup.write("id", Mono.error(new IllegalStateException("down"))).onErrorComplete().block();
+
+    assertThat(cache.getIfPresent("id")).isNull();
+  }
+}
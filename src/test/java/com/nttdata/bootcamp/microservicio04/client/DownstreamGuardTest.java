@@ -0,0 +1,153 @@
+package com.nttdata.bootcamp.microservicio04.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.nttdata.bootcamp.microservicio04.config.ResilienceProperties;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class DownstreamGuardTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("test");
+
+  @Test
+  void slowReadIsHedgedAndTheFastestAnswerWins() {
+    DownstreamGuard guard = guard(8);
+    AtomicInteger subscriptions = new AtomicInteger();
+    Mono<String> read =
+        Mono.defer(
+            () ->
+                subscriptions.incrementAndGet() == 1
+                    ? Mono.just("slow").delayElement(Duration.ofSeconds(2))
+                    : Mono.just("fast"));
+
+    StepVerifier.create(guard.hedgedCall(read)).expectNext("fast").verifyComplete();
+    assertThat(hedged()).isEqualTo(1);
+  }
+
+  @Test
+  void emptyAnswerWinsTheRace() {
+    DownstreamGuard guard = guard(8);
+
+    StepVerifier.create(guard.hedgedCall(Mono.<String>empty())).verifyComplete();
+    assertThat(hedged()).isZero();
+  }
+
+  @Test
+  void hedgeIsSkippedWhenTheBulkheadIsFull() {
+    DownstreamGuard guard = guard(1);
+    Mono<String> read = Mono.just("slow").delayElement(Duration.ofMillis(300));
+
+    StepVerifier.create(guard.hedgedCall(read)).expectNext("slow").verifyComplete();
+    assertThat(hedged()).isZero();
+  }
+
+  @Test
+  void hedgeIsSkippedWhenTheCircuitIsNotClosed() {
+    DownstreamGuard guard = guard(8);
+    circuitBreaker.transitionToOpenState();
+    circuitBreaker.transitionToHalfOpenState();
+    Mono<String> read = Mono.just("slow").delayElement(Duration.ofMillis(300));
+
+    StepVerifier.create(guard.hedgedCall(read)).expectNext("slow").verifyComplete();
+    assertThat(hedged()).isZero();
+  }
+
+  @Test
+  void failedAttemptsSurfaceThePrimaryError() {
+    DownstreamGuard guard = guard(8);
+    AtomicInteger subscriptions = new AtomicInteger();
+    Mono<String> read =
+        Mono.defer(
+            () -> {
+              int attempt = subscriptions.incrementAndGet();
+              return Mono.error(new IllegalStateException("attempt " + attempt));
+            });
+
+    StepVerifier.create(guard.hedgedCall(read))
+        .expectErrorMessage("attempt 1")
+        .verify(Duration.ofSeconds(2));
+  }
+
+  @Test
+  void fastClientErrorIsSurfacedWithoutHedging() {
+    DownstreamGuard guard = guard(8);
+    AtomicInteger subscriptions = new AtomicInteger();
+    Mono<String> read =
+        Mono.defer(
+            () -> {
+              subscriptions.incrementAndGet();
+              return Mono.error(
+                  WebClientResponseException.create(404, "Not Found", null, null, null));
+            });
+
+    StepVerifier.create(guard.hedgedCall(read))
+        .expectError(WebClientResponseException.NotFound.class)
+        .verify(Duration.ofSeconds(2));
+    // La espera del segundo intento se cancelo con el error
+    StepVerifier.create(Mono.delay(Duration.ofMillis(100))).expectNextCount(1).verifyComplete();
+    assertThat(subscriptions).hasValue(1);
+    assertThat(hedged()).isZero();
+  }
+
+  @Test
+  void transientErrorLetsTheHedgeInFlightAnswer() {
+    DownstreamGuard guard = guard(8);
+    AtomicInteger subscriptions = new AtomicInteger();
+    Mono<String> read =
+        Mono.defer(
+            () ->
+                subscriptions.incrementAndGet() == 1
+                    ? Mono.<String>error(
+                            WebClientResponseException.create(
+                                503, "Service Unavailable", null, null, null))
+                        .delaySubscription(Duration.ofMillis(100))
+                    : Mono.just("hedge").delayElement(Duration.ofMillis(100)));
+
+    StepVerifier.create(guard.hedgedCall(read)).expectNext("hedge").verifyComplete();
+    assertThat(hedged()).isEqualTo(1);
+  }
+
+  @Test
+  void openCircuitIsReportedAsServiceUnavailable() {
+    DownstreamGuard guard = guard(8);
+    circuitBreaker.transitionToOpenState();
+
+    StepVerifier.create(guard.call(Mono.just("value")))
+        .expectErrorSatisfies(
+            e ->
+                assertThat(((OperationNoCompletedException) e).getError())
+                    .isEqualTo(ErrorCode.SERVICE_UNAVAILABLE))
+        .verify();
+  }
+
+  private DownstreamGuard guard(int maxConcurrentCalls) {
+    ResilienceProperties.Hedge hedge = new ResilienceProperties.Hedge();
+    hedge.setEnabled(true);
+    hedge.setMinDelay(Duration.ofMillis(50));
+    hedge.setMaxDelay(Duration.ofMillis(50));
+    Bulkhead bulkhead =
+        Bulkhead.of(
+            "test",
+            BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+    return new DownstreamGuard("test", circuitBreaker, bulkhead, hedge, meterRegistry);
+  }
+
+  private double hedged() {
+    return meterRegistry.get("downstream.client.hedged").counter().count();
+  }
+}
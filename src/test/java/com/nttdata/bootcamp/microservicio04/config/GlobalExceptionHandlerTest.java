@@ -0,0 +1,40 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+class GlobalExceptionHandlerTest {
+
+  private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+  @ParameterizedTest
+  @EnumSource(
+      value = ErrorCode.class,
+      names = {"SEARCH_NOT_INDEXED", "INVALID_REQUEST"})
+  void rejectedSearchesAreBadRequests(ErrorCode error) {
+    ResponseEntity<Map<String, String>> response =
+        handler.handleCustomException(new OperationNoCompletedException(error)).block();
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    assertThat(response.getBody())
+        .containsEntry("error", error.name())
+        .containsEntry("errorCode", "400");
+  }
+
+  @Test
+  void everyErrorCodeMapsToItsOwnStatus() {
+    for (ErrorCode error : ErrorCode.values()) {
+      assertThat(GlobalExceptionHandler.status(error).value())
+          .as(error.name())
+          .isEqualTo(Integer.parseInt(error.getCode()));
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.nttdata.bootcamp.microservicio04.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class MongoTransactionsTest {
+
+  private final ReactiveMongoDatabaseFactory databaseFactory =
+      mock(ReactiveMongoDatabaseFactory.class);
+  private final MongoDatabase database = mock(MongoDatabase.class);
+
+  @Test
+  void standaloneServerStopsTheStartup() {
+    hello(Mono.just(new Document("isWritablePrimary", true)));
+
+    assertThatThrownBy(() -> new MongoTransactions(databaseFactory, "auto"))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  void failedDetectionIsRetriedAndNeverWritesWithoutTransaction() {
+    hello(Mono.error(new MongoTimeoutException("no server")));
+    MongoTransactions transactions = new MongoTransactions(databaseFactory, "auto");
+    AtomicBoolean written = new AtomicBoolean();
+
+    for (int attempt = 0; attempt < 2; attempt++) {
+      StepVerifier.create(transactions.inTransaction(Mono.fromRunnable(() -> written.set(true))))
+          .expectError(MongoTimeoutException.class)
+          .verify();
+    }
+
+    assertThat(written).isFalse();
+    assertThat(transactions.isEnabled()).isTrue();
+    // Una al arrancar y una por cada escritura
+    verify(database, times(3)).runCommand(any(Bson.class));
+  }
+
+  @Test
+  void explicitOptOutSkipsTheDetection() {
+    MongoTransactions transactions = new MongoTransactions(databaseFactory, "false");
+
+    StepVerifier.create(transactions.inTransaction(Mono.just("written")))
+        .expectNext("written")
+        .verifyComplete();
+    assertThat(transactions.isEnabled()).isFalse();
+  }
+
+  private void hello(Mono<Document> response) {
+    when(databaseFactory.getMongoDatabase()).thenReturn(Mono.just(database));
+    when(database.runCommand(any(Bson.class))).thenReturn(response);
+  }
+}
@@ -0,0 +1,248 @@
+package com.nttdata.bootcamp.microservicio04.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.nttdata.bootcamp.microservicio04.config.MongoConversionConfig;
+import com.nttdata.bootcamp.microservicio04.config.MongoIndexInitializer;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.service.impl.TransactionCounterServiceImpl;
+import com.nttdata.bootcamp.microservicio04.utils.PageCursor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+
+@Testcontainers
+@DataMongoTest(properties = "spring.cloud.config.enabled=false")
+@Import({
+  MongoIndexInitializer.class,
+  MongoConversionConfig.class,
+  TransactionCounterServiceImpl.class,
+  TransactionRepositoryIndexTest.CommandCaptureConfig.class
+})
+class TransactionRepositoryIndexTest {
+
+  private static final Limit PAGE = Limit.of(51);
+
+  @Container @ServiceConnection
+  static MongoDBContainer mongoDbContainer = new MongoDBContainer("mongo:7.0");
+
+  @Autowired private TransactionRepository transactionRepository;
+
+  @Autowired private ReactiveMongoTemplate mongoTemplate;
+
+  @Autowired private MongoIndexInitializer mongoIndexInitializer;
+
+  @Autowired private TransactionCounterServiceImpl transactionCounterService;
+
+  @Autowired private CommandCapture commandCapture;
+
+  @BeforeEach
+  void setUp() {
+    transactionRepository.deleteAll().block();
+    mongoIndexInitializer.ensureIndexes().block();
+    transactionRepository
+        .insert(IntStream.range(0, 50).mapToObj(this::transaction).toList())
+        .blockLast();
+  }
+
+  @Test
+  void findByAccountIdUsesIndex() {
+    assertUsesIndex(() -> transactionRepository.findByAccountIdOrderByCreatedDescIdDesc("acc-2"));
+  }
+
+  @Test
+  void findByCreditIdUsesIndex() {
+    assertUsesIndex(() -> transactionRepository.findByCreditIdOrderByCreatedDescIdDesc("cred-1"));
+  }
+
+  @Test
+  void accountPagesUseIndex() {
+    PageCursor after = new PageCursor(LocalDate.now(), new ObjectId().toHexString());
+    assertUsesIndex(
+        () -> transactionRepository.findByAccountIdOrderByCreatedDescIdDesc("acc-2", PAGE));
+    assertUsesIndex(
+        () ->
+            transactionRepository.findByAccountIdBefore(
+                "acc-2", after.created(), after.id(), after.stringIdBound(), PAGE));
+  }
+
+  @Test
+  void creditPagesUseIndex() {
+    PageCursor after = new PageCursor(LocalDate.now(), "legacy-id");
+    assertUsesIndex(
+        () -> transactionRepository.findByCreditIdOrderByCreatedDescIdDesc("cred-1", PAGE));
+    assertUsesIndex(
+        () ->
+            transactionRepository.findByCreditIdBefore(
+                "cred-1", after.created(), after.id(), after.stringIdBound(), PAGE));
+  }
+
+  @Test
+  void globalPagesUseIndex() {
+    PageCursor after = new PageCursor(LocalDate.now(), new ObjectId().toHexString());
+    assertUsesIndex(() -> transactionRepository.findAllByOrderByCreatedDescIdDesc(PAGE));
+    assertUsesIndex(
+        () ->
+            transactionRepository.findAllBefore(
+                after.created(), after.id(), after.stringIdBound(), PAGE));
+  }
+
+  @Test
+  void counterRebuildUsesIndex() {
+    assertUsesIndex(() -> transactionCounterService.rebuild());
+  }
+
+  @Test
+  void supersededIndexesAreDropped() {
+    mongoTemplate
+        .indexOps(Transaction.class)
+        .ensureIndex(new Index().on(Transaction.CREATED_KEY, Sort.Direction.ASC).named("cr_own"))
+        .block();
+
+    mongoIndexInitializer.ensureIndexes().block();
+
+    List<String> names =
+        mongoTemplate
+            .indexOps(Transaction.class)
+            .getIndexInfo()
+            .map(IndexInfo::getName)
+            .collectList()
+            .block();
+    assertThat(names)
+        .doesNotContain("cr_own")
+        .contains(MongoIndexInitializer.OWNER_COUNTER_INDEX);
+  }
+
+  // Ejecuta la consulta del repositorio y pide a Mongo el plan del comando que envio el driver
+  private void assertUsesIndex(Supplier<Publisher<?>> query) {
+    commandCapture.clear();
+    Flux.from(query.get()).blockLast();
+    Document command = commandCapture.lastQuery();
+    Document explain =
+        mongoTemplate
+            .executeCommand(new Document("explain", command).append("verbosity", "queryPlanner"))
+            .block();
+    assertThat(explain).isNotNull();
+    List<String> winningPlans = new ArrayList<>();
+    collectWinningPlans(explain, winningPlans);
+    assertThat(winningPlans)
+        .as("winning plans of %s", command.toJson())
+        .isNotEmpty()
+        .allSatisfy(plan -> assertThat(plan).contains("IXSCAN").doesNotContain("COLLSCAN"));
+  }
+
+  // Un find trae el plan en queryPlanner; un aggregate puede traerlo dentro de sus etapas
+  private static void collectWinningPlans(Object node, List<String> plans) {
+    if (node instanceof Document document) {
+      document.forEach(
+          (key, value) -> {
+            if ("winningPlan".equals(key) && value instanceof Document plan) {
+              plans.add(plan.toJson());
+            } else {
+              collectWinningPlans(value, plans);
+            }
+          });
+    } else if (node instanceof List<?> list) {
+      list.forEach(item -> collectWinningPlans(item, plans));
+    }
+  }
+
+  private Transaction transaction(int index) {
+    Transaction transaction = new Transaction();
+    transaction.setAmount(BigDecimal.TEN);
+    transaction.setCreated(LocalDate.now().minusDays(index % 40));
+    transaction.setTransactionType(TransactionType.DEPOSIT);
+    if (index % 2 == 0) {
+      transaction.setAccountId("acc-" + index % 5);
+      transaction.setOwnerTransaction(index % 4 == 0);
+    } else {
+      transaction.setCreditId("cred-" + index % 5);
+    }
+    transaction.setActive(true);
+    return transaction;
+  }
+
+  @TestConfiguration
+  static class CommandCaptureConfig {
+
+    @Bean
+    CommandCapture commandCapture() {
+      return new CommandCapture();
+    }
+
+    @Bean
+    MongoClientSettingsBuilderCustomizer commandCaptureCustomizer(CommandCapture commandCapture) {
+      return settings -> settings.addCommandListener(commandCapture);
+    }
+  }
+
+  /** Guarda las consultas a transaction tal como las envia el driver. */
+  static class CommandCapture implements CommandListener {
+
+    private static final Set<String> QUERY_COMMANDS = Set.of("find", "aggregate", "count");
+    // Campos de sesion y de protocolo que explain no acepta
+    private static final Set<String> SESSION_FIELDS =
+        Set.of("lsid", "txnNumber", "autocommit", "startTransaction");
+
+    private final List<BsonDocument> queries = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+      String name = event.getCommandName();
+      BsonDocument command = event.getCommand();
+      if (QUERY_COMMANDS.contains(name)
+          && command.isString(name)
+          && "transaction".equals(command.getString(name).getValue())) {
+        queries.add(command.clone());
+      }
+    }
+
+    void clear() {
+      queries.clear();
+    }
+
+    Document lastQuery() {
+      assertThat(queries).as("captured transaction queries").isNotEmpty();
+      Document command =
+          new DocumentCodec()
+              .decode(
+                  new BsonDocumentReader(queries.get(queries.size() - 1)),
+                  DecoderContext.builder().build());
+      command.keySet().removeIf(key -> key.startsWith("$") || SESSION_FIELDS.contains(key));
+      return command;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package com.nttdata.bootcamp.microservicio04.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.nttdata.bootcamp.microservicio04.client.AccountClient;
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.AccountType;
+import com.nttdata.bootcamp.microservicio04.model.FeeRunCheckpoint;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class MaintenanceFeeBatchServiceTest {
+
+  private final AccountClient accountClient = mock(AccountClient.class);
+  private final TransactionLedgerService ledgerService = mock(TransactionLedgerService.class);
+  private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+  private MaintenanceFeeBatchService feeService;
+
+  @BeforeEach
+  void setUp() {
+    when(mongoTemplate.findById(anyString(), eq(FeeRunCheckpoint.class))).thenReturn(Mono.empty());
+    when(mongoTemplate.save(any(FeeRunCheckpoint.class)))
+        .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    when(mongoTemplate.find(any(Query.class), eq(Transaction.class))).thenReturn(Flux.empty());
+    when(ledgerService.record(anyList()))
+        .thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+    feeService = new MaintenanceFeeBatchService(accountClient, ledgerService, mongoTemplate);
+    ReflectionTestUtils.setField(feeService, "pageSize", 2);
+    ReflectionTestUtils.setField(feeService, "chunkSize", 50);
+    ReflectionTestUtils.setField(feeService, "concurrency", 4);
+  }
+
+  @Test
+  void stopsWhenTheServiceIgnoresThePageNumber() {
+    // Siempre la misma pagina completa, pida la que se pida
+    when(accountClient.findPage(anyInt(), eq(2)))
+        .thenReturn(Mono.just(List.of(account("a-1"), account("a-2"))));
+
+    FeeRunCheckpoint checkpoint =
+        feeService.run(YearMonth.of(2026, 9)).block(Duration.ofSeconds(5));
+
+    assertThat(checkpoint.getCompleted()).isTrue();
+    assertThat(checkpoint.getLastCompletedPage()).isZero();
+    assertThat(checkpoint.getAccountsScanned()).isEqualTo(2);
+    assertThat(checkpoint.getFeesCharged()).isEqualTo(2);
+    verify(ledgerService, times(1)).record(anyList());
+  }
+
+  @Test
+  void walksPagesUntilAnIncompleteOne() {
+    when(accountClient.findPage(0, 2))
+        .thenReturn(Mono.just(List.of(account("a-1"), account("a-2"))));
+    when(accountClient.findPage(1, 2)).thenReturn(Mono.just(List.of(account("a-3"))));
+
+    FeeRunCheckpoint checkpoint =
+        feeService.run(YearMonth.of(2026, 9)).block(Duration.ofSeconds(5));
+
+    assertThat(checkpoint.getCompleted()).isTrue();
+    assertThat(checkpoint.getLastCompletedPage()).isEqualTo(1);
+    assertThat(checkpoint.getFeesCharged()).isEqualTo(3);
+  }
+
+  @Test
+  void chargesThePageChunksInParallel() {
+    ReflectionTestUtils.setField(feeService, "pageSize", 4);
+    ReflectionTestUtils.setField(feeService, "chunkSize", 1);
+    ReflectionTestUtils.setField(feeService, "concurrency", 2);
+    when(accountClient.findPage(0, 4))
+        .thenReturn(Mono.just(List.of(account("a-1"), account("a-2"), account("a-3"))));
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    when(ledgerService.record(anyList()))
+        .thenAnswer(
+            invocation ->
+                Mono.delay(Duration.ofMillis(50))
+                    .doOnSubscribe(
+                        subscription ->
+                            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                    .doOnTerminate(inFlight::decrementAndGet)
+                    .thenMany(Flux.fromIterable(invocation.<List<Transaction>>getArgument(0))));
+
+    FeeRunCheckpoint checkpoint =
+        feeService.run(YearMonth.of(2026, 9)).block(Duration.ofSeconds(5));
+
+    assertThat(checkpoint.getFeesCharged()).isEqualTo(3);
+    verify(ledgerService, times(3)).record(anyList());
+    assertThat(maxInFlight).hasValue(2);
+  }
+
+  @Test
+  void resumesARunLeftUnfinished() {
+    FeeRunCheckpoint unfinished =
+        new FeeRunCheckpoint(
+            "2026-08", 0, "a-2", 2L, 2L, 0L, false, LocalDateTime.now(), LocalDateTime.now());
+    when(mongoTemplate.find(any(Query.class), eq(FeeRunCheckpoint.class)))
+        .thenReturn(Flux.just(unfinished));
+    when(mongoTemplate.findById("2026-08", FeeRunCheckpoint.class))
+        .thenReturn(Mono.just(unfinished));
+    when(accountClient.findPage(1, 2)).thenReturn(Mono.just(List.of(account("a-3"))));
+    List<Transaction> charged = new CopyOnWriteArrayList<>();
+    when(ledgerService.record(anyList()))
+        .thenAnswer(
+            invocation -> {
+              charged.addAll(invocation.getArgument(0));
+              return Flux.fromIterable(invocation.<List<Transaction>>getArgument(0));
+            });
+
+    List<FeeRunCheckpoint> resumed =
+        feeService.resumeUnfinished().collectList().block(Duration.ofSeconds(5));
+
+    assertThat(resumed).hasSize(1);
+    assertThat(resumed.get(0).getCompleted()).isTrue();
+    assertThat(resumed.get(0).getFeesCharged()).isEqualTo(3);
+    // El cobro de agosto conserva su mes aunque se termine despues
+    assertThat(charged)
+        .extracting(Transaction::getCreated)
+        .containsExactly(LocalDate.of(2026, 8, 31));
+  }
+
+  private static Account account(String id) {
+    Account account = new Account();
+    account.setId(id);
+    account.setAccountType(AccountType.CURRENT);
+    account.setActive(true);
+    account.setCommissionRate(new BigDecimal("5"));
+    return account;
+  }
+}
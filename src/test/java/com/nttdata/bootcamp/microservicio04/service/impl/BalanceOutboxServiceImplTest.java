@@ -0,0 +1,219 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.nttdata.bootcamp.microservicio04.client.AccountClient;
+import com.nttdata.bootcamp.microservicio04.client.BalanceUpdateStage;
+import com.nttdata.bootcamp.microservicio04.client.CreditClient;
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.AccountBalance;
+import com.nttdata.bootcamp.microservicio04.model.BalanceOutboxEntry;
+import com.nttdata.bootcamp.microservicio04.model.OutboxLease;
+import com.nttdata.bootcamp.microservicio04.service.AccountBalanceService;
+import com.nttdata.bootcamp.microservicio04.service.CreditBalanceService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+
+@Testcontainers
+@DataMongoTest(
+    properties = {
+      "spring.cloud.config.enabled=false",
+      "application.outbox.concurrency=1",
+      "application.outbox.max-attempts=2",
+      "application.outbox.backoff=PT1M",
+      "application.outbox.lease=PT30S"
+    })
+@Import({BalanceOutboxServiceImpl.class, BalanceOutboxServiceImplTest.MetricsTestConfig.class})
+class BalanceOutboxServiceImplTest {
+
+  private static final String ACCOUNT_A = "acc-a";
+  private static final String ACCOUNT_B = "acc-b";
+
+  @Container @ServiceConnection
+  static MongoDBContainer mongoDbContainer = new MongoDBContainer("mongo:7.0");
+
+  @Autowired private ReactiveMongoTemplate mongoTemplate;
+
+  @Autowired private BalanceOutboxServiceImpl outboxService;
+
+  @MockBean private AccountClient accountClient;
+
+  @MockBean private CreditClient creditClient;
+
+  @MockBean private AccountBalanceService accountBalanceService;
+
+  @MockBean private CreditBalanceService creditBalanceService;
+
+  @MockBean(name = "accountBalanceUpdateStage")
+  private BalanceUpdateStage accountBalanceUpdateStage;
+
+  @MockBean(name = "creditBalanceUpdateStage")
+  private BalanceUpdateStage creditBalanceUpdateStage;
+
+  @BeforeEach
+  void setUp() {
+    mongoTemplate.remove(new Query(), BalanceOutboxEntry.class).block();
+    mongoTemplate.remove(new Query(), OutboxLease.class).block();
+    reset(accountClient, accountBalanceService, accountBalanceUpdateStage);
+    when(accountBalanceService.settled(anyString()))
+        .thenAnswer(invocation -> Mono.just(balance(invocation.getArgument(0), "100")));
+    when(accountClient.updateById(anyString(), any())).thenReturn(Mono.just(new Account()));
+    when(accountBalanceUpdateStage.submit(anyString(), any())).thenReturn(Mono.empty());
+  }
+
+  @Test
+  void sendsTheProjectedBalanceOncePerProductAfterPendingLegacyDeltas() {
+    insert(
+        entry(ACCOUNT_A, "5", false, 0, Instant.now()),
+        entry(ACCOUNT_A, "10", true, 0, Instant.now()),
+        entry(ACCOUNT_A, "-3", true, 0, Instant.now()));
+
+    assertThat(outboxService.dispatch().block()).isEqualTo(3);
+
+    InOrder order = inOrder(accountBalanceUpdateStage, accountClient);
+    order.verify(accountBalanceUpdateStage).submit(ACCOUNT_A, new BigDecimal("5"));
+    order
+        .verify(accountClient)
+        .updateById(
+            eq(ACCOUNT_A),
+            argThat(update -> new BigDecimal("100").equals(update.getAmountAvailable())));
+    assertThat(pending()).isEmpty();
+  }
+
+  @Test
+  void failedProductBacksOffAndBlocksItsLaterEntries() {
+    when(accountClient.updateById(eq(ACCOUNT_A), any()))
+        .thenReturn(Mono.error(new IllegalStateException("account service down")));
+    insert(
+        entry(ACCOUNT_A, "10", true, 0, Instant.now()),
+        entry(ACCOUNT_B, "7", true, 0, Instant.now()));
+
+    assertThat(outboxService.dispatch().block()).isEqualTo(1);
+    // Una entrada nueva del producto fallido no adelanta a la que espera su reintento
+    insert(entry(ACCOUNT_A, "1", true, 0, Instant.now()));
+    assertThat(outboxService.dispatch().block()).isZero();
+
+    verify(accountClient, times(1)).updateById(eq(ACCOUNT_A), any());
+    List<BalanceOutboxEntry> waiting = pending();
+    assertThat(waiting).hasSize(2);
+    assertThat(waiting.get(0).getNextAttemptAt()).isAfter(Instant.now());
+    assertThat(waiting.get(0).getAttempts()).isEqualTo(1);
+    assertThat(waiting.get(0).getLastError()).isEqualTo("account service down");
+  }
+
+  @Test
+  void exhaustedEntriesMoveToDeadLetterAndCanBeReplayed() {
+    when(accountClient.updateById(eq(ACCOUNT_A), any()))
+        .thenReturn(Mono.error(new IllegalStateException("account service down")));
+    insert(entry(ACCOUNT_A, "10", true, 1, Instant.now()));
+
+    assertThat(outboxService.dispatch().block()).isZero();
+    BalanceOutboxEntry dead = pending().get(0);
+    assertThat(dead.getStatus()).isEqualTo(BalanceOutboxEntry.DEAD);
+    assertThat(dead.getAttempts()).isEqualTo(2);
+
+    assertThat(outboxService.replayDeadLetters().block()).isEqualTo(1);
+    BalanceOutboxEntry replayed = pending().get(0);
+    assertThat(replayed.getStatus()).isEqualTo(BalanceOutboxEntry.PENDING);
+    assertThat(replayed.getAttempts()).isZero();
+  }
+
+  @Test
+  void onlyTheLeaseHolderDispatches() {
+    mongoTemplate.insert(lease("other")).block();
+    insert(entry(ACCOUNT_A, "10", true, 0, Instant.now()));
+
+    assertThat(outboxService.dispatch().block()).isZero();
+    verify(accountClient, never()).updateById(anyString(), any());
+    assertThat(pending()).hasSize(1);
+  }
+
+  @Test
+  void stopsDeliveringWhenTheLeaseIsTakenMidRound() {
+    // Otra instancia toma el lease mientras se entrega el primer producto
+    when(accountBalanceService.settled(ACCOUNT_A))
+        .thenAnswer(
+            invocation ->
+                mongoTemplate
+                    .save(lease("other"))
+                    .thenReturn(balance(ACCOUNT_A, "100")));
+    insert(
+        entry(ACCOUNT_A, "10", true, 0, Instant.now()),
+        entry(ACCOUNT_B, "7", true, 0, Instant.now()));
+
+    assertThat(outboxService.dispatch().block()).isEqualTo(1);
+    verify(accountClient, never()).updateById(eq(ACCOUNT_B), any());
+    assertThat(pending()).extracting(BalanceOutboxEntry::getProductId).containsExactly(ACCOUNT_B);
+  }
+
+  private void insert(BalanceOutboxEntry... entries) {
+    mongoTemplate.insertAll(List.of(entries)).blockLast();
+  }
+
+  private List<BalanceOutboxEntry> pending() {
+    return mongoTemplate.findAll(BalanceOutboxEntry.class).collectList().block();
+  }
+
+  private static OutboxLease lease(String owner) {
+    return new OutboxLease("balance-outbox", owner, Instant.now().plusSeconds(30));
+  }
+
+  private static AccountBalance balance(String accountId, String amount) {
+    return new AccountBalance(accountId, new BigDecimal(amount), 1L, LocalDateTime.now(), null);
+  }
+
+  private static BalanceOutboxEntry entry(
+      String accountId, String delta, boolean projected, int attempts, Instant nextAttemptAt) {
+    return new BalanceOutboxEntry(
+        null,
+        BalanceOutboxEntry.ACCOUNT,
+        accountId,
+        new BigDecimal(delta),
+        null,
+        BalanceOutboxEntry.PENDING,
+        attempts,
+        nextAttemptAt,
+        null,
+        Instant.now(),
+        projected);
+  }
+
+  @TestConfiguration
+  static class MetricsTestConfig {
+
+    @Bean
+    MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nttdata.bootcamp.microservicio04.config.MongoConversionConfig;
+import com.nttdata.bootcamp.microservicio04.model.IdempotencyRecord;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+@Testcontainers
+@DataMongoTest(
+    properties = {
+      "spring.cloud.config.enabled=false",
+      "application.idempotency.in-flight-timeout=PT1S",
+      "application.idempotency.poll-interval=PT0.05S",
+      "application.idempotency.claim-lease=PT2S"
+    })
+@Import({
+  MongoConversionConfig.class,
+  IdempotencyServiceImpl.class,
+  IdempotencyServiceImplTest.CacheTestConfig.class
+})
+class IdempotencyServiceImplTest {
+
+  private static final String ACCOUNT_ID = "6571f1e0c3a4b2d5e8f90123";
+  private static final String FINGERPRINT = "DEPOSIT|" + ACCOUNT_ID + "|||100";
+
+  @Container @ServiceConnection
+  static MongoDBContainer mongoDbContainer = new MongoDBContainer("mongo:7.0");
+
+  @Autowired private ReactiveMongoTemplate mongoTemplate;
+
+  @Autowired private AsyncCache<String, IdempotencyRecord> idempotencyCache;
+
+  @Autowired private IdempotencyServiceImpl idempotencyService;
+
+  @BeforeEach
+  void setUp() {
+    mongoTemplate.remove(new Query(), IdempotencyRecord.class).block();
+    idempotencyCache.synchronous().invalidateAll();
+  }
+
+  @Test
+  void takesOverAClaimWhoseOwnerStoppedRenewingIt() {
+    Instant past = Instant.now().minusSeconds(30);
+    mongoTemplate.insert(claim("crashed", "dead-owner", past)).block();
+    AtomicInteger executions = new AtomicInteger();
+
+    StepVerifier.create(idempotencyService.execute("crashed", request(), () -> created(executions)))
+        .assertNext(transaction -> assertThat(transaction.getId()).isEqualTo("created"))
+        .verifyComplete();
+
+    assertThat(executions).hasValue(1);
+    IdempotencyRecord stored = mongoTemplate.findById("crashed", IdempotencyRecord.class).block();
+    assertThat(stored.getCompleted()).isTrue();
+    assertThat(stored.getClaimToken()).isNotEqualTo("dead-owner");
+  }
+
+  @Test
+  void claimsAgainWhenTheOwnerReleasesTheKey() {
+    Instant live = Instant.now().plusSeconds(30);
+    mongoTemplate.insert(claim("released", "other-owner", live)).block();
+    // El dueno falla y libera la clave mientras esta peticion espera
+    Mono.delay(Duration.ofMillis(300))
+        .then(
+            mongoTemplate.remove(
+                Query.query(Criteria.where("id").is("released")), IdempotencyRecord.class))
+        .subscribeOn(Schedulers.parallel())
+        .subscribe();
+    AtomicInteger executions = new AtomicInteger();
+
+    StepVerifier.create(
+            idempotencyService.execute("released", request(), () -> created(executions)))
+        .assertNext(transaction -> assertThat(transaction.getId()).isEqualTo("created"))
+        .verifyComplete();
+
+    assertThat(executions).hasValue(1);
+  }
+
+  @Test
+  void reportsInProgressWhileTheOwnerKeepsTheClaimAlive() {
+    Instant live = Instant.now().plusSeconds(30);
+    mongoTemplate.insert(claim("busy", "other-owner", live)).block();
+
+    StepVerifier.create(
+            idempotencyService.execute("busy", request(), () -> created(new AtomicInteger())))
+        .expectErrorSatisfies(
+            e ->
+                assertThat(((OperationNoCompletedException) e).getError())
+                    .isEqualTo(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS))
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void keepsTheKeyCompletedWhenTheLedgerWroteItBeforeFailing() {
+    AtomicInteger executions = new AtomicInteger();
+    // El ledger guarda la respuesta y despues falla la confirmacion hacia el cliente
+    StepVerifier.create(
+            idempotencyService.execute(
+                "written",
+                request(),
+                () ->
+                    created(executions)
+                        .flatMap(idempotencyService::complete)
+                        .then(Mono.error(new IllegalStateException("lost ack")))))
+        .expectError(IllegalStateException.class)
+        .verify(Duration.ofSeconds(5));
+
+    StepVerifier.create(
+            idempotencyService.execute("written", request(), () -> created(executions)))
+        .assertNext(transaction -> assertThat(transaction.getId()).isEqualTo("created"))
+        .verifyComplete();
+
+    assertThat(executions).hasValue(1);
+  }
+
+  private static IdempotencyRecord claim(String key, String token, Instant expiresAt) {
+    return new IdempotencyRecord(
+        key, FINGERPRINT, false, null, Instant.now().minusSeconds(60), token, expiresAt);
+  }
+
+  private static Transaction request() {
+    Transaction transaction = new Transaction();
+    transaction.setTransactionType(TransactionType.DEPOSIT);
+    transaction.setAccountId(ACCOUNT_ID);
+    transaction.setAmount(new BigDecimal("100.00"));
+    return transaction;
+  }
+
+  private static Mono<Transaction> created(AtomicInteger executions) {
+    return Mono.fromSupplier(
+        () -> {
+          executions.incrementAndGet();
+          Transaction transaction = request();
+          transaction.setId("created");
+          return transaction;
+        });
+  }
+
+  @TestConfiguration
+  static class CacheTestConfig {
+
+    @Bean
+    AsyncCache<String, IdempotencyRecord> idempotencyCache() {
+      return Caffeine.newBuilder().buildAsync();
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.nttdata.bootcamp.microservicio04.config.MongoConversionConfig;
+import com.nttdata.bootcamp.microservicio04.config.MongoTransactions;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionArchiveBucket;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.repository.TransactionRepository;
+import com.nttdata.bootcamp.microservicio04.utils.PageCursor;
+import com.nttdata.bootcamp.microservicio04.utils.TransactionOrder;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@Testcontainers
+@DataMongoTest(
+    properties = {
+      "spring.cloud.config.enabled=false",
+      "application.mongo.transactions.enabled=false",
+      "application.archive.min-age-months=3",
+      "application.archive.compression=true",
+      // Unos 6 movimientos por mes: cada mes archivado ocupa dos partes
+      "application.archive.max-bucket-size=4"
+    })
+@Import({MongoConversionConfig.class, MongoTransactions.class, TransactionArchiveServiceImpl.class})
+class TransactionArchiveServiceImplTest {
+
+  private static final String ACCOUNT_ID = "6571f1e0c3a4b2d5e8f90123";
+
+  @Container @ServiceConnection
+  static MongoDBContainer mongoDbContainer = new MongoDBContainer("mongo:7.0");
+
+  @Autowired private TransactionRepository transactionRepository;
+
+  @Autowired private ReactiveMongoTemplate mongoTemplate;
+
+  @Autowired private TransactionArchiveServiceImpl archiveService;
+
+  private List<Transaction> history;
+
+  @BeforeEach
+  void setUp() {
+    transactionRepository.deleteAll().block();
+    mongoTemplate.remove(new Query(), TransactionArchiveBucket.class).block();
+    // Un movimiento cada 5 dias durante el ultimo ano
+    history = IntStream.range(0, 73).mapToObj(index -> transaction(index * 5)).toList();
+    transactionRepository.insert(history).blockLast();
+  }
+
+  @Test
+  void archivesOldMonthsAndKeepsTheHistoryInOrder() {
+    LocalDate cutoff = YearMonth.now().minusMonths(3).atDay(1);
+    long old = history.stream().filter(t -> t.getCreated().isBefore(cutoff)).count();
+
+    assertThat(archiveService.archive().block()).isEqualTo(old);
+    // Una segunda ronda no encuentra nada pendiente
+    assertThat(archiveService.archive().block()).isZero();
+
+    List<Transaction> hot = transactionRepository.findAll().collectList().block();
+    assertThat(hot).allMatch(t -> !t.getCreated().isBefore(cutoff));
+
+    List<Transaction> archived =
+        archiveService.findByAccountId(ACCOUNT_ID, null).collectList().block();
+    List<String> expected =
+        history.stream()
+            .filter(t -> t.getCreated().isBefore(cutoff))
+            .sorted(TransactionOrder.NEWEST_FIRST)
+            .map(Transaction::getId)
+            .toList();
+    assertThat(archived).extracting(Transaction::getId).containsExactlyElementsOf(expected);
+    assertThat(archived.get(0).getAmount()).isEqualByComparingTo(BigDecimal.TEN);
+    assertThat(archived.get(0).getTransactionType()).isEqualTo(TransactionType.DEPOSIT);
+    assertThat(archived.get(0).getAccountId()).isEqualTo(ACCOUNT_ID);
+  }
+
+  @Test
+  void readsArchivedTransactionsAfterACursorAndById() {
+    archiveService.archive().block();
+    List<Transaction> archived =
+        archiveService.findByAccountId(ACCOUNT_ID, null).collectList().block();
+    Transaction middle = archived.get(archived.size() / 2);
+
+    List<Transaction> after =
+        archiveService.findByAccountId(ACCOUNT_ID, PageCursor.of(middle)).collectList().block();
+
+    assertThat(after)
+        .extracting(Transaction::getId)
+        .containsExactlyElementsOf(
+            archived.subList(archived.size() / 2 + 1, archived.size()).stream()
+                .map(Transaction::getId)
+                .toList());
+    assertThat(archiveService.findById(middle.getId()).block())
+        .extracting(Transaction::getCreated)
+        .isEqualTo(middle.getCreated());
+  }
+
+  @Test
+  void splitsFullMonthsIntoBoundedParts() {
+    archiveService.archive().block();
+
+    List<TransactionArchiveBucket> buckets =
+        mongoTemplate.findAll(TransactionArchiveBucket.class).collectList().block();
+
+    assertThat(buckets).allMatch(bucket -> bucket.getCount() <= 4);
+    assertThat(buckets).allMatch(bucket -> bucket.getId().matches(".*:\\d{4}-\\d{2}:\\d{4}"));
+    assertThat(buckets).anyMatch(bucket -> bucket.getId().endsWith(":0001"));
+    assertThat(buckets.stream().mapToLong(TransactionArchiveBucket::getCount).sum())
+        .isEqualTo(transactionsArchived());
+  }
+
+  private long transactionsArchived() {
+    LocalDate cutoff = YearMonth.now().minusMonths(3).atDay(1);
+    return history.stream().filter(t -> t.getCreated().isBefore(cutoff)).count();
+  }
+
+  private Transaction transaction(int daysAgo) {
+    Transaction transaction = new Transaction();
+    transaction.setAmount(BigDecimal.TEN);
+    transaction.setCreated(LocalDate.now().minusDays(daysAgo));
+    transaction.setTransactionType(TransactionType.DEPOSIT);
+    transaction.setAccountId(ACCOUNT_ID);
+    transaction.setOwnerTransaction(true);
+    transaction.setActive(true);
+    return transaction;
+  }
+}
@@ -0,0 +1,207 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+import com.nttdata.bootcamp.microservicio04.client.AccountClient;
+import com.nttdata.bootcamp.microservicio04.client.CreditClient;
+import com.nttdata.bootcamp.microservicio04.config.MongoConversionConfig;
+import com.nttdata.bootcamp.microservicio04.config.MongoTransactions;
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.AccountBalance;
+import com.nttdata.bootcamp.microservicio04.model.AccountMonthlySummary;
+import com.nttdata.bootcamp.microservicio04.model.BalanceOutboxEntry;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.repository.TransactionRepository;
+import com.nttdata.bootcamp.microservicio04.service.BalanceOutboxService;
+import com.nttdata.bootcamp.microservicio04.service.AccountSummaryService;
+import com.nttdata.bootcamp.microservicio04.service.IdempotencyService;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+
+@Testcontainers
+@DataMongoTest(
+    properties = {
+      "spring.cloud.config.enabled=false",
+      "application.mongo.transactions.enabled=false",
+      "application.balance.rebuild-attempts=2",
+      "application.balance.rebuild-retry-delay=PT0.01S"
+    })
+@Import({
+  MongoConversionConfig.class,
+  MongoTransactions.class,
+  TransactionLedgerServiceImpl.class,
+  TransactionCounterServiceImpl.class,
+  AccountBalanceServiceImpl.class,
+  CreditBalanceServiceImpl.class,
+  AccountSummaryServiceImpl.class
+})
+class TransactionLedgerServiceImplTest {
+
+  private static final String ACCOUNT_ID = "6571f1e0c3a4b2d5e8f90123";
+
+  @Container @ServiceConnection
+  static MongoDBContainer mongoDbContainer = new MongoDBContainer("mongo:7.0");
+
+  @Autowired private TransactionRepository transactionRepository;
+
+  @Autowired private ReactiveMongoTemplate mongoTemplate;
+
+  @Autowired private TransactionLedgerServiceImpl ledgerService;
+
+  @Autowired private AccountBalanceServiceImpl accountBalanceService;
+
+  @Autowired private AccountSummaryService accountSummaryService;
+
+  @MockBean private AccountClient accountClient;
+
+  @MockBean private CreditClient creditClient;
+
+  @MockBean private BalanceOutboxService balanceOutboxService;
+
+  @MockBean private IdempotencyService idempotencyService;
+
+  @BeforeEach
+  void setUp() {
+    transactionRepository.deleteAll().block();
+    mongoTemplate.remove(new Query(), AccountBalance.class).block();
+    mongoTemplate.remove(new Query(), AccountMonthlySummary.class).block();
+    mongoTemplate.remove(new Query(), BalanceOutboxEntry.class).block();
+    when(balanceOutboxService.enqueue(anyList())).thenReturn(Mono.empty());
+    when(idempotencyService.complete(any())).thenReturn(Mono.empty());
+  }
+
+  @Test
+  void openingAmountIsNotCountedTwiceWhenTheProjectionIsSeeded() {
+    // El servicio de cuentas ya registro el monto de apertura al crear la cuenta
+    remoteBalance("100");
+
+    ledgerService.record(List.of(transaction(TransactionType.OPENING_AMOUNT, "100"))).blockLast();
+
+    assertThat(accountBalanceService.settled(ACCOUNT_ID).block().getBalance())
+        .isEqualByComparingTo("100");
+
+    ledgerService.record(List.of(transaction(TransactionType.DEPOSIT, "50"))).blockLast();
+
+    assertThat(accountBalanceService.settled(ACCOUNT_ID).block().getBalance())
+        .isEqualByComparingTo("150");
+  }
+
+  @Test
+  void rebuildSeedsTheProjectionAgainFromTheRemoteBalance() {
+    remoteBalance("100");
+    accountBalanceService.settled(ACCOUNT_ID).block();
+    // Movimiento ya entregado: no queda nada en el outbox
+    ledgerService.record(List.of(transaction(TransactionType.DEPOSIT, "50"))).blockLast();
+    remoteBalance("170");
+
+    assertThat(accountBalanceService.rebuild().block()).isEqualTo(1L);
+
+    assertThat(accountBalanceService.settled(ACCOUNT_ID).block().getBalance())
+        .isEqualByComparingTo("170");
+  }
+
+  @Test
+  void rebuildKeepsAMovementRecordedWhileItRuns() {
+    remoteBalance("100");
+    accountBalanceService.settled(ACCOUNT_ID).block();
+    Account account = new Account();
+    account.setId(ACCOUNT_ID);
+    account.setAmountAvailable(new BigDecimal("100"));
+    AtomicBoolean raced = new AtomicBoolean();
+    // El deposito llega entre la lectura de la version y el reemplazo, y su entrega sigue pendiente
+    when(accountClient.findFreshById(ACCOUNT_ID))
+        .thenAnswer(
+            invocation ->
+                raced.getAndSet(true)
+                    ? Mono.just(account)
+                    : ledgerService
+                        .record(List.of(transaction(TransactionType.DEPOSIT, "10")))
+                        .then(mongoTemplate.insert(pendingDelivery("10")))
+                        .thenReturn(account));
+
+    assertThat(accountBalanceService.rebuild().block()).isZero();
+
+    assertThat(accountBalanceService.settled(ACCOUNT_ID).block().getBalance())
+        .isEqualByComparingTo("110");
+  }
+
+  @Test
+  void summaryRebuildOnlyFillsTheOpeningBalanceOfALiveSummary() {
+    // Con la proyeccion aun provisional el resumen del mes no conoce su saldo de apertura
+    ledgerService.record(List.of(transaction(TransactionType.DEPOSIT, "50"))).blockLast();
+    remoteBalance("100");
+    String summaryId = ACCOUNT_ID + ":" + YearMonth.now();
+    // Un movimiento que el ledger suma al resumen mientras la agregacion ya termino
+    mongoTemplate
+        .updateFirst(
+            Query.query(Criteria.where("_id").is(summaryId)),
+            new Update().inc("netChange", new Decimal128(new BigDecimal("10"))),
+            AccountMonthlySummary.class)
+        .block();
+
+    accountSummaryService.rebuild(ACCOUNT_ID).block();
+
+    AccountMonthlySummary summary =
+        mongoTemplate.findById(summaryId, AccountMonthlySummary.class).block();
+    assertThat(summary.getNetChange()).isEqualByComparingTo("60");
+    assertThat(summary.getOpeningBalance()).isEqualByComparingTo("100");
+  }
+
+  private static BalanceOutboxEntry pendingDelivery(String delta) {
+    Instant now = Instant.now();
+    return new BalanceOutboxEntry(
+        null,
+        BalanceOutboxEntry.ACCOUNT,
+        ACCOUNT_ID,
+        new BigDecimal(delta),
+        null,
+        BalanceOutboxEntry.PENDING,
+        0,
+        now,
+        null,
+        now,
+        true);
+  }
+
+  private void remoteBalance(String amount) {
+    Account account = new Account();
+    account.setId(ACCOUNT_ID);
+    account.setAmountAvailable(new BigDecimal(amount));
+    when(accountClient.findFreshById(ACCOUNT_ID)).thenReturn(Mono.just(account));
+  }
+
+  private static Transaction transaction(TransactionType type, String amount) {
+    Transaction transaction = new Transaction();
+    transaction.setTransactionType(type);
+    transaction.setAccountId(ACCOUNT_ID);
+    transaction.setAmount(new BigDecimal(amount));
+    transaction.setCreated(LocalDate.now());
+    transaction.setOwnerTransaction(!TransactionType.OPENING_AMOUNT.equals(type));
+    transaction.setActive(true);
+    return transaction;
+  }
+}
@@ -0,0 +1,84 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.nttdata.bootcamp.microservicio04.config.MongoIndexInitializer;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionSearchFilter;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TransactionSearchPlannerTest {
+
+  private final TransactionSearchPlanner planner = new TransactionSearchPlanner(31);
+
+  @Test
+  void accountSearchUsesTheAccountHistoryIndex() {
+    TransactionSearchFilter filter = new TransactionSearchFilter();
+    filter.setAccountId("account-1");
+    filter.setTypes(List.of(TransactionType.DEPOSIT));
+    filter.setMinAmount(BigDecimal.TEN);
+
+    TransactionSearchPlanner.SearchPlan plan = planner.plan(filter);
+
+    assertThat(plan.index()).isEqualTo(MongoIndexInitializer.ACCOUNT_HISTORY_INDEX);
+    assertThat(plan.warnings()).isEmpty();
+    assertThat(plan.criteria().getCriteriaObject())
+        .containsKeys("accountId", "transactionType", "amount");
+  }
+
+  @Test
+  void dateOnlySearchWarnsAboutResidualFiltersAndLongRanges() {
+    TransactionSearchFilter filter = new TransactionSearchFilter();
+    filter.setFrom(LocalDate.of(2024, 1, 1));
+    filter.setTo(LocalDate.of(2024, 6, 30));
+    filter.setActive(true);
+
+    TransactionSearchPlanner.SearchPlan plan = planner.plan(filter);
+
+    assertThat(plan.index()).isEqualTo(MongoIndexInitializer.CREATED_INDEX);
+    assertThat(plan.warnings()).hasSize(3);
+  }
+
+  @Test
+  void searchWithoutIndexedFilterIsRejected() {
+    TransactionSearchFilter filter = new TransactionSearchFilter();
+    filter.setTypes(List.of(TransactionType.WITHDRAWAL));
+
+    assertThatThrownBy(() -> planner.plan(filter))
+        .isInstanceOf(OperationNoCompletedException.class);
+  }
+
+  @Test
+  void unknownProjectionFieldIsRejected() {
+    TransactionSearchFilter filter = new TransactionSearchFilter();
+    filter.setAccountId("account-1");
+    filter.setFields(List.of("amount", "password"));
+
+    assertThatThrownBy(() -> planner.plan(filter))
+        .isInstanceOf(OperationNoCompletedException.class);
+  }
+
+  @Test
+  void matcherAppliesTheSameFilterInMemory() {
+    TransactionSearchFilter filter = new TransactionSearchFilter();
+    filter.setCreditId("credit-1");
+    filter.setTo(LocalDate.of(2024, 3, 31));
+    filter.setMaxAmount(new BigDecimal("100"));
+
+    TransactionSearchPlanner.SearchPlan plan = planner.plan(filter);
+    Transaction inRange = new Transaction();
+    inRange.setCreated(LocalDate.of(2024, 3, 31));
+    inRange.setAmount(new BigDecimal("100"));
+    Transaction tooLate = new Transaction();
+    tooLate.setCreated(LocalDate.of(2024, 4, 1));
+    tooLate.setAmount(BigDecimal.ONE);
+
+    assertThat(plan.matcher()).accepts(inRange).rejects(tooLate);
+  }
+}
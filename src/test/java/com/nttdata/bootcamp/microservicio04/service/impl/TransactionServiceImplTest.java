@@ -0,0 +1,275 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.nttdata.bootcamp.microservicio04.client.AccountClient;
+import com.nttdata.bootcamp.microservicio04.client.CreditClient;
+import com.nttdata.bootcamp.microservicio04.config.TransactionRuleProperties;
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.AccountType;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.model.dto.TransactionBatchResult;
+import com.nttdata.bootcamp.microservicio04.repository.TransactionRepository;
+import com.nttdata.bootcamp.microservicio04.service.AccountBalanceService;
+import com.nttdata.bootcamp.microservicio04.service.TransactionArchiveService;
+import com.nttdata.bootcamp.microservicio04.service.TransactionCounterService;
+import com.nttdata.bootcamp.microservicio04.service.TransactionLedgerService;
+import com.nttdata.bootcamp.microservicio04.utils.KeyedSequencer;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class TransactionServiceImplTest {
+
+  @Test
+  void patchCannotChangeTheAmountOfARecordedTransaction() {
+    Transaction stored = withdrawal("40");
+    when(transactionRepository.findById(stored.getId())).thenReturn(Mono.just(stored));
+    Transaction patch = new Transaction();
+    patch.setAmount(new BigDecimal("400"));
+
+    StepVerifier.create(transactionService.change(patch, stored.getId()))
+        .expectErrorSatisfies(
+            e ->
+                assertThat(((OperationNoCompletedException) e).getError())
+                    .isEqualTo(ErrorCode.TRANSACTION_LEDGER_FIELDS_LOCKED))
+        .verify();
+    verify(transactionRepository, never()).save(any());
+  }
+
+  @Test
+  void patchOfTheActiveFlagIsSaved() {
+    Transaction stored = withdrawal("40");
+    when(transactionRepository.findById(stored.getId())).thenReturn(Mono.just(stored));
+    when(transactionRepository.save(any()))
+        .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    Transaction patch = new Transaction();
+    patch.setAmount(new BigDecimal("40.00"));
+    patch.setActive(false);
+
+    StepVerifier.create(transactionService.change(patch, stored.getId()))
+        .assertNext(saved -> assertThat(saved.getActive()).isFalse())
+        .verifyComplete();
+  }
+
+  @Test
+  void archivedTransactionIsFoundButNotModified() {
+    Transaction archived = withdrawal("40");
+    when(transactionRepository.findById(archived.getId())).thenReturn(Mono.empty());
+    when(archiveService.findById(archived.getId())).thenReturn(Mono.just(archived));
+    Transaction patch = new Transaction();
+    patch.setActive(false);
+
+    StepVerifier.create(transactionService.change(patch, archived.getId()))
+        .expectErrorSatisfies(
+            e ->
+                assertThat(((OperationNoCompletedException) e).getError())
+                    .isEqualTo(ErrorCode.TRANSACTION_ARCHIVED))
+        .verify();
+  }
+
+  @Test
+  void recordedTransactionIsNotDeleted() {
+    Transaction stored = withdrawal("40");
+    when(transactionRepository.findById(stored.getId())).thenReturn(Mono.just(stored));
+
+    StepVerifier.create(transactionService.remove(stored.getId()))
+        .expectErrorSatisfies(
+            e ->
+                assertThat(((OperationNoCompletedException) e).getError())
+                    .isEqualTo(ErrorCode.TRANSACTION_LEDGER_FIELDS_LOCKED))
+        .verify();
+    verify(transactionRepository, never()).deleteById(any(String.class));
+  }
+
+  private static final String ACCOUNT_ID = "account-1";
+  private static final String DESTINATION_ID = "account-2";
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final TransactionCounterService counterService = mock(TransactionCounterService.class);
+  private final AccountBalanceService balanceService = mock(AccountBalanceService.class);
+  private final TransactionLedgerService ledgerService = mock(TransactionLedgerService.class);
+  private final AccountClient accountClient = mock(AccountClient.class);
+  private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+  private final TransactionArchiveService archiveService = mock(TransactionArchiveService.class);
+  private final KeyedSequencer writeSequencer =
+      new KeyedSequencer("test", Duration.ofSeconds(5), meterRegistry);
+  private final List<List<Transaction>> recordedChunks = new CopyOnWriteArrayList<>();
+  private TransactionServiceImpl transactionService;
+
+  @BeforeEach
+  void setUp() {
+    when(accountClient.findById(ACCOUNT_ID)).thenReturn(Mono.just(account(ACCOUNT_ID)));
+    // Saldo y contador escritos antes del lote
+    when(balanceService.findBalance(any())).thenReturn(Mono.just(new BigDecimal("100")));
+    when(counterService.countOwnerTransactions(eq(ACCOUNT_ID), any())).thenReturn(Mono.just(0L));
+    when(ledgerService.record(anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Transaction> chunk = invocation.getArgument(0);
+              recordedChunks.add(chunk);
+              return Flux.fromIterable(chunk);
+            });
+
+    transactionService =
+        new TransactionServiceImpl(
+            transactionRepository,
+            new TransactionValidationPipeline(
+                counterService, balanceService, new TransactionRuleProperties(), meterRegistry),
+            ledgerService,
+            accountClient,
+            mock(CreditClient.class),
+            new TransactionMetrics(meterRegistry),
+            writeSequencer,
+            archiveService);
+    ReflectionTestUtils.setField(transactionService, "batchConcurrency", 8);
+    ReflectionTestUtils.setField(transactionService, "batchChunkSize", 500);
+  }
+
+  @Test
+  void sameAccountItemsInOneChunkSeeEachOther() {
+    // Cada retiro cabe en el saldo inicial, pero juntos no: el tercero lo dejaria en -20
+    Flux<Transaction> batch =
+        Flux.fromStream(IntStream.range(0, 3).mapToObj(index -> withdrawal("40")));
+
+    List<TransactionBatchResult> results =
+        transactionService.createBatch(batch).collectList().block();
+
+    assertThat(results)
+        .extracting(TransactionBatchResult::getStatus)
+        .containsExactly("CREATED", "CREATED", "REJECTED");
+    assertThat(recordedChunks).hasSize(1);
+    assertThat(recordedChunks.get(0)).hasSize(2);
+  }
+
+  @Test
+  void sameAccountItemsInOneChunkRespectTheMonthlyLimit() {
+    Flux<Transaction> batch =
+        Flux.fromStream(IntStream.range(0, 5).mapToObj(index -> withdrawal("1")));
+
+    List<TransactionBatchResult> results =
+        transactionService.createBatch(batch).collectList().block();
+
+    assertThat(results)
+        .extracting(TransactionBatchResult::getStatus)
+        .containsExactly("CREATED", "CREATED", "CREATED", "REJECTED", "REJECTED");
+    assertThat(results.get(3).getErrorMessage())
+        .isEqualTo(ErrorCode.TRANSACTION_LIMIT_EXCEEDED.getMessage());
+  }
+
+  @Test
+  void singleCreateCountsBatchDebitsThatAwaitTheirChunk() {
+    Sinks.Empty<Void> chunkWritten = Sinks.empty();
+    doAnswer(
+            invocation -> {
+              List<Transaction> chunk = invocation.getArgument(0);
+              if (chunk.isEmpty()) {
+                return Flux.empty();
+              }
+              recordedChunks.add(chunk);
+              return chunkWritten.asMono().thenMany(Flux.fromIterable(chunk));
+            })
+        .when(ledgerService)
+        .record(anyList());
+    Flux<TransactionBatchResult> batch =
+        transactionService.createBatch(Flux.just(withdrawal("80")));
+    StepVerifier.create(batch)
+        .then(
+            () -> {
+              // El bloque del lote sigue sin escribirse: un retiro individual no cabe en el saldo
+              StepVerifier.create(transactionService.create(withdrawal("40"))).verifyComplete();
+              chunkWritten.tryEmitEmpty();
+            })
+        .assertNext(result -> assertThat(result.getStatus()).isEqualTo("CREATED"))
+        .verifyComplete();
+
+    assertThat(recordedChunks).hasSize(1);
+  }
+
+  @Test
+  void transferLegsAreRecordedTogetherBeforeAnyBalanceUpdate() {
+    when(accountClient.findById(DESTINATION_ID)).thenReturn(Mono.just(account(DESTINATION_ID)));
+
+    Transaction created = transactionService.create(transfer("30")).block();
+
+    assertThat(created.getAmount()).isEqualByComparingTo("-30");
+    assertThat(recordedChunks).hasSize(1);
+    assertThat(recordedChunks.get(0))
+        .extracting(Transaction::getAccountId)
+        .containsExactly(ACCOUNT_ID, DESTINATION_ID);
+    // Los saldos remotos los envia el outbox tras la escritura del ledger
+    verify(accountClient, never()).updateById(any(), any());
+  }
+
+  @Test
+  void failedLedgerWriteLeavesNoLegAndNoBalanceUpdate() {
+    when(accountClient.findById(DESTINATION_ID)).thenReturn(Mono.just(account(DESTINATION_ID)));
+    when(ledgerService.record(anyList()))
+        .thenReturn(Flux.error(new IllegalStateException("ledger down")));
+
+    StepVerifier.create(transactionService.create(transfer("30")))
+        .expectErrorMessage("ledger down")
+        .verify();
+    verify(accountClient, never()).updateById(any(), any());
+  }
+
+  @Test
+  void transferWithoutFundsKeepsTheTypeNotAllowedCode() {
+    when(accountClient.findById(DESTINATION_ID)).thenReturn(Mono.just(account(DESTINATION_ID)));
+
+    StepVerifier.create(transactionService.create(transfer("150")))
+        .expectErrorSatisfies(
+            error ->
+                assertThat(((OperationNoCompletedException) error).getError())
+                    .isEqualTo(ErrorCode.TRANSACTION_TYPE_NO_ALLOWED))
+        .verify();
+    assertThat(recordedChunks).isEmpty();
+  }
+
+  private static Transaction transfer(String amount) {
+    Transaction transaction = new Transaction();
+    transaction.setAccountId(ACCOUNT_ID);
+    transaction.setDestinationAccountId(DESTINATION_ID);
+    transaction.setTransactionType(TransactionType.BANK_TRANSFER);
+    transaction.setAmount(new BigDecimal(amount));
+    return transaction;
+  }
+
+  private static Account account(String id) {
+    Account account = new Account();
+    account.setId(id);
+    account.setAccountType(AccountType.SAVING);
+    account.setActive(true);
+    account.setTransactionLimit(3);
+    return account;
+  }
+
+  private static Transaction withdrawal(String amount) {
+    Transaction transaction = new Transaction();
+    transaction.setAccountId(ACCOUNT_ID);
+    transaction.setTransactionType(TransactionType.WITHDRAWAL);
+    transaction.setAmount(new BigDecimal(amount));
+    return transaction;
+  }
+}
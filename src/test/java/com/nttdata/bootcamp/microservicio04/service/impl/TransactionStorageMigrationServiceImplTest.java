@@ -0,0 +1,153 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.nttdata.bootcamp.microservicio04.config.MongoConversionConfig;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.repository.TransactionRepository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+
+@Slf4j
+@Testcontainers
+@DataMongoTest(properties = "spring.cloud.config.enabled=false")
+@Import({MongoConversionConfig.class, TransactionStorageMigrationServiceImpl.class})
+class TransactionStorageMigrationServiceImplTest {
+
+  private static final int SYNTHETIC_SIZE = 20_000;
+
+  @Container @ServiceConnection
+  static MongoDBContainer mongoDbContainer = new MongoDBContainer("mongo:7.0");
+
+  @Autowired private TransactionRepository transactionRepository;
+
+  @Autowired private ReactiveMongoTemplate mongoTemplate;
+
+  @Autowired private TransactionStorageMigrationServiceImpl migrationService;
+
+  @BeforeEach
+  void setUp() {
+    transactionRepository.deleteAll().block();
+  }
+
+  @Test
+  void migratedDocumentsKeepTheirValues() {
+    Document legacy = legacyDocument(7);
+    insertRaw(List.of(legacy));
+
+    assertThat(migrationService.migrate().block()).isEqualTo(1L);
+
+    Transaction transaction = transactionRepository.findById(legacy.getString("_id")).block();
+    assertThat(transaction).isNotNull();
+    assertThat(transaction.getAmount()).isEqualByComparingTo(legacy.getString("amount"));
+    assertThat(transaction.getCreated()).isEqualTo(toLocalDate(legacy.getDate("created")));
+    assertThat(transaction.getTransactionType()).isEqualTo(TransactionType.DEPOSIT);
+    assertThat(transaction.getAccountId()).isEqualTo(legacy.getString("accountId"));
+    assertThat(transaction.getOwnerTransaction()).isTrue();
+
+    Document stored =
+        mongoTemplate.findById(legacy.get("_id"), Document.class, "transaction").block();
+    assertThat(stored).doesNotContainKeys("amount", "accountId", "_class");
+    assertThat(stored.get(Transaction.AMOUNT_KEY)).isInstanceOf(Decimal128.class);
+    assertThat(stored.get(Transaction.TYPE_KEY))
+        .isEqualTo(TransactionType.DEPOSIT.getStorageCode());
+  }
+
+  @Test
+  void compactEncodingShrinksTheSyntheticDataset() {
+    insertRaw(IntStream.range(0, SYNTHETIC_SIZE).mapToObj(this::legacyDocument).toList());
+    Document legacyStats = collectionStats();
+
+    migrationService.migrate().block();
+    Document migratedStats = collectionStats();
+
+    transactionRepository.deleteAll().block();
+    transactionRepository
+        .insert(IntStream.range(0, SYNTHETIC_SIZE).mapToObj(this::transaction).toList())
+        .blockLast();
+    Document compactStats = collectionStats();
+
+    log.info(
+        "Synthetic dataset of {} transactions, data size / avg document size in bytes:"
+            + " legacy {} / {}, migrated {} / {}, new ids {} / {}",
+        SYNTHETIC_SIZE,
+        size(legacyStats),
+        avgObjSize(legacyStats),
+        size(migratedStats),
+        avgObjSize(migratedStats),
+        size(compactStats),
+        avgObjSize(compactStats));
+    assertThat(size(migratedStats)).isLessThan(size(legacyStats));
+    assertThat(avgObjSize(compactStats)).isLessThan(avgObjSize(migratedStats));
+  }
+
+  // Documento tal como lo guardaba la version anterior: claves largas, monto String, _class
+  private Document legacyDocument(int index) {
+    return new Document("_id", UUID.randomUUID().toString())
+        .append("amount", BigDecimal.valueOf(10_000 + index, 2).toPlainString())
+        .append("created", toDate(LocalDate.now().minusDays(index % 365)))
+        .append("transactionType", TransactionType.DEPOSIT.name())
+        .append("accountId", "6571f1e0c3a4b2d5e8f90" + (100 + index % 900))
+        .append("ownerTransaction", true)
+        .append("active", true)
+        .append("_class", Transaction.class.getName());
+  }
+
+  private Transaction transaction(int index) {
+    Transaction transaction = new Transaction();
+    transaction.setAmount(BigDecimal.valueOf(10_000 + index, 2));
+    transaction.setCreated(LocalDate.now().minusDays(index % 365));
+    transaction.setTransactionType(TransactionType.DEPOSIT);
+    transaction.setAccountId("6571f1e0c3a4b2d5e8f90" + (100 + index % 900));
+    transaction.setOwnerTransaction(true);
+    transaction.setActive(true);
+    return transaction;
+  }
+
+  private void insertRaw(List<Document> documents) {
+    mongoTemplate
+        .getCollection("transaction")
+        .flatMap(collection -> Mono.from(collection.insertMany(documents)))
+        .block();
+  }
+
+  private Document collectionStats() {
+    return mongoTemplate.executeCommand(new Document("collStats", "transaction")).block();
+  }
+
+  private long size(Document stats) {
+    return stats.get("size", Number.class).longValue();
+  }
+
+  private long avgObjSize(Document stats) {
+    return stats.get("avgObjSize", Number.class).longValue();
+  }
+
+  private Date toDate(LocalDate date) {
+    return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+  }
+
+  private LocalDate toLocalDate(Date date) {
+    return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+  }
+}
@@ -0,0 +1,163 @@
+package com.nttdata.bootcamp.microservicio04.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.nttdata.bootcamp.microservicio04.config.TransactionRuleProperties;
+import com.nttdata.bootcamp.microservicio04.model.Account;
+import com.nttdata.bootcamp.microservicio04.model.AccountType;
+import com.nttdata.bootcamp.microservicio04.model.Transaction;
+import com.nttdata.bootcamp.microservicio04.model.TransactionType;
+import com.nttdata.bootcamp.microservicio04.service.AccountBalanceService;
+import com.nttdata.bootcamp.microservicio04.service.TransactionCounterService;
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class TransactionValidationPipelineTest {
+
+  private final TransactionCounterService counterService = mock(TransactionCounterService.class);
+  private final AccountBalanceService balanceService = mock(AccountBalanceService.class);
+  private final TransactionRuleProperties properties = new TransactionRuleProperties();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final TransactionValidationPipeline pipeline =
+      new TransactionValidationPipeline(counterService, balanceService, properties, meterRegistry);
+
+  @Test
+  void inMemoryRulesRunBeforeRulesWithIo() {
+    assertThat(pipeline.chain(AccountType.FIXED_TERM, TransactionType.WITHDRAWAL))
+        .extracting(TransactionRule::name)
+        .containsExactly(
+            "active-account", "allowed-day", "sufficient-balance", "monthly-transactions");
+    assertThat(pipeline.chain(AccountType.CURRENT, TransactionType.DEPOSIT))
+        .extracting(TransactionRule::name)
+        .containsExactly("active-account");
+  }
+
+  @Test
+  void wrongDayFailsWithoutQueryingMongo() {
+    Account account = account(AccountType.FIXED_TERM);
+    account.setDateAllowedTransaction(LocalDate.now().plusDays(1).getDayOfMonth());
+
+    StepVerifier.create(pipeline.validate(account, withdrawal()))
+        .expectErrorSatisfies(
+            error ->
+                assertThat(((OperationNoCompletedException) error).getErrorMessage())
+                    .isEqualTo(ErrorCode.TRANSACTION_NO_COMPLETED.getMessage()))
+        .verify();
+    verifyNoInteractions(counterService, balanceService);
+    assertThat(
+            meterRegistry
+                .get("transaction.validation.rejections")
+                .tag("rule", "allowed-day")
+                .counter()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void inactiveAccountCompletesEmptyAsBefore() {
+    Account account = account(AccountType.SAVING);
+    account.setActive(false);
+
+    StepVerifier.create(pipeline.validate(account, withdrawal())).verifyComplete();
+    verifyNoInteractions(counterService, balanceService);
+  }
+
+  @Test
+  void insufficientBalanceCompletesEmptyAsBefore() {
+    Account account = account(AccountType.CURRENT);
+    when(balanceService.findBalance(any())).thenReturn(Mono.just(new BigDecimal("10")));
+
+    StepVerifier.create(pipeline.validate(account, withdrawal())).verifyComplete();
+  }
+
+  @Test
+  void configuredLimitOverridesTheAccountLimit() {
+    Account account = account(AccountType.SAVING);
+    account.setTransactionLimit(10);
+    when(balanceService.findBalance(any())).thenReturn(Mono.just(new BigDecimal("100")));
+    when(counterService.countOwnerTransactions(eq(account.getId()), any()))
+        .thenReturn(Mono.just(3L));
+
+    StepVerifier.create(pipeline.validate(account, withdrawal()))
+        .expectNextCount(1)
+        .verifyComplete();
+
+    // Lo mismo que deja el rebind tras un refresh del servidor de configuracion
+    TransactionRuleProperties.Limits limits = new TransactionRuleProperties.Limits();
+    limits.setMonthlyTransactions(3);
+    properties.getLimits().put(AccountType.SAVING, limits);
+
+    StepVerifier.create(pipeline.validate(account, withdrawal()))
+        .expectErrorSatisfies(
+            error ->
+                assertThat(((OperationNoCompletedException) error).getErrorMessage())
+                    .isEqualTo(ErrorCode.TRANSACTION_LIMIT_EXCEEDED.getMessage()))
+        .verify();
+  }
+
+  @Test
+  void pendingBatchMovementsCountAgainstBalanceAndLimit() {
+    Account account = account(AccountType.SAVING);
+    account.setTransactionLimit(3);
+    when(balanceService.findBalance(any())).thenReturn(Mono.just(new BigDecimal("100")));
+    when(counterService.countOwnerTransactions(eq(account.getId()), any()))
+        .thenReturn(Mono.just(1L));
+    PendingMovements pending = new PendingMovements();
+
+    Transaction first = withdrawal();
+    first.setOwnerTransaction(true);
+    StepVerifier.create(pipeline.validate(account, first, pending))
+        .expectNextCount(1)
+        .verifyComplete();
+    pending.add(List.of(first));
+
+    // 100 - 20 pendiente: un retiro de 90 deja el saldo en negativo y no se crea
+    Transaction overdraft = withdrawal();
+    overdraft.setAmount(new BigDecimal("-90"));
+    StepVerifier.create(pipeline.validate(account, overdraft, pending)).verifyComplete();
+
+    // 1 escrita + 1 pendiente: el tercer movimiento del mes supera el limite de 3
+    Transaction second = withdrawal();
+    second.setOwnerTransaction(true);
+    pending.add(List.of(second));
+    StepVerifier.create(pipeline.validate(account, withdrawal(), pending))
+        .expectErrorSatisfies(
+            error ->
+                assertThat(((OperationNoCompletedException) error).getError())
+                    .isEqualTo(ErrorCode.TRANSACTION_LIMIT_EXCEEDED))
+        .verify();
+
+    // Escrito el bloque, el ledger ya los refleja y dejan de contar como pendientes
+    pending.remove(List.of(first, second));
+    assertThat(pending.debits(account.getId())).isEqualByComparingTo(BigDecimal.ZERO);
+    assertThat(pending.ownerTransactions(account.getId())).isZero();
+  }
+
+  private static Account account(AccountType accountType) {
+    Account account = new Account();
+    account.setId("account-1");
+    account.setAccountType(accountType);
+    account.setActive(true);
+    return account;
+  }
+
+  private static Transaction withdrawal() {
+    Transaction transaction = new Transaction();
+    transaction.setAccountId("account-1");
+    transaction.setTransactionType(TransactionType.WITHDRAWAL);
+    transaction.setAmount(new BigDecimal("-20"));
+    return transaction;
+  }
+}
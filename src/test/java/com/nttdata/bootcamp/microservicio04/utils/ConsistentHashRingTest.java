@@ -0,0 +1,101 @@
+package com.nttdata.bootcamp.microservicio04.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class ConsistentHashRingTest {
+
+  private static final int KEYS = 20_000;
+  private static final int VIRTUAL_NODES = 128;
+
+  private static final List<String> KEY_SPACE =
+      IntStream.range(0, KEYS).mapToObj(i -> "account:" + i).toList();
+
+  @Test
+  void emptyRingHasNoOwner() {
+    ConsistentHashRing<String> ring = ConsistentHashRing.of(Map.of(), node -> VIRTUAL_NODES);
+
+    assertThat(ring.isEmpty()).isTrue();
+    assertThat(ring.owner("account:1")).isNull();
+  }
+
+  @Test
+  void keysSpreadEvenlyOverEqualNodes() {
+    Map<String, Long> owned = ownership(ring("a", "b", "c", "d"));
+
+    assertThat(owned).containsOnlyKeys("a", "b", "c", "d");
+    owned.values().forEach(count -> assertThat(count).isCloseTo(KEYS / 4, within(KEYS / 20L)));
+  }
+
+  @Test
+  void joiningNodeOnlyTakesKeysFromOthers() {
+    ConsistentHashRing<String> before = ring("a", "b", "c", "d");
+    ConsistentHashRing<String> after = ring("a", "b", "c", "d", "e");
+
+    long moved = 0;
+    for (String key : KEY_SPACE) {
+      String previous = before.owner(key);
+      String current = after.owner(key);
+      if (!previous.equals(current)) {
+        // Una clave que cambia de dueno solo puede ir al nodo nuevo
+        assertThat(current).isEqualTo("e");
+        moved++;
+      }
+    }
+    assertThat(moved).isCloseTo(KEYS / 5, within(KEYS / 20L));
+  }
+
+  @Test
+  void leavingNodeOnlyReleasesItsOwnKeys() {
+    ConsistentHashRing<String> before = ring("a", "b", "c", "d");
+    ConsistentHashRing<String> after = ring("a", "b", "c");
+
+    for (String key : KEY_SPACE) {
+      String previous = before.owner(key);
+      if (!previous.equals("d")) {
+        assertThat(after.owner(key)).isEqualTo(previous);
+      }
+    }
+  }
+
+  @Test
+  void ownershipFollowsTheWeights() {
+    Map<String, Integer> weights = Map.of("a", 1, "b", 1, "c", 2);
+    ConsistentHashRing<String> ring =
+        ConsistentHashRing.of(
+            nodes(weights.keySet().toArray(String[]::new)),
+            node -> VIRTUAL_NODES * weights.get(node));
+
+    Map<String, Long> owned = ownership(ring);
+
+    assertThat(owned.get("c")).isCloseTo(KEYS / 2, within(KEYS / 20L));
+    assertThat(owned.get("a")).isCloseTo(KEYS / 4, within(KEYS / 20L));
+    assertThat(owned.get("b")).isCloseTo(KEYS / 4, within(KEYS / 20L));
+  }
+
+  private static ConsistentHashRing<String> ring(String... ids) {
+    return ConsistentHashRing.of(nodes(ids), node -> VIRTUAL_NODES);
+  }
+
+  private static Map<String, String> nodes(String... ids) {
+    Map<String, String> nodes = new HashMap<>();
+    for (String id : ids) {
+      nodes.put(id, id);
+    }
+    return nodes;
+  }
+
+  private static Map<String, Long> ownership(ConsistentHashRing<String> ring) {
+    return KEY_SPACE.stream()
+        .map(ring::owner)
+        .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+  }
+}
@@ -0,0 +1,105 @@
+package com.nttdata.bootcamp.microservicio04.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.nttdata.bootcamp.microservicio04.utils.constant.ErrorCode;
+import com.nttdata.bootcamp.microservicio04.utils.exception.OperationNoCompletedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class KeyedSequencerTest {
+
+  private final KeyedSequencer sequencer =
+      new KeyedSequencer("test", Duration.ofSeconds(5), new SimpleMeterRegistry());
+
+  @Test
+  void sameKeyNeverRunsConcurrently() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+
+    Flux<Integer> writes =
+        Flux.range(0, 50)
+            .flatMap(
+                i ->
+                    sequencer.run(
+                        "account:1",
+                        () ->
+                            Mono.fromSupplier(running::incrementAndGet)
+                                .doOnNext(
+                                    current -> maxRunning.accumulateAndGet(current, Math::max))
+                                .delayElement(Duration.ofMillis(1))
+                                // Antes de emitir: doFinally correria despues de soltar la clave
+                                .doOnTerminate(running::decrementAndGet)
+                                .thenReturn(i)));
+
+    StepVerifier.create(writes.collectList())
+        .assertNext(results -> assertThat(results).hasSize(50))
+        .verifyComplete();
+    assertThat(maxRunning.get()).isEqualTo(1);
+  }
+
+  @Test
+  void sameKeyKeepsSubmissionOrder() {
+    List<Integer> completed = new CopyOnWriteArrayList<>();
+    // Las primeras tareas tardan mas: sin secuenciador terminarian en orden inverso
+    List<Mono<Integer>> writes =
+        IntStream.range(0, 20)
+            .mapToObj(
+                i ->
+                    sequencer.run(
+                        "account:1",
+                        () ->
+                            Mono.just(i)
+                                .delayElement(Duration.ofMillis(20 - i))
+                                .doOnNext(completed::add)))
+            .toList();
+
+    StepVerifier.create(Flux.mergeSequential(writes).then()).verifyComplete();
+    assertThat(completed).isEqualTo(IntStream.range(0, 20).boxed().toList());
+  }
+
+  @Test
+  void errorIsDeliveredAndKeyKeepsWorking() {
+    StepVerifier.create(
+            sequencer.run("account:1", () -> Mono.error(new IllegalStateException("boom"))))
+        .verifyError(IllegalStateException.class);
+    StepVerifier.create(sequencer.run("account:1", () -> Mono.just(List.of("ok"))))
+        .expectNext(List.of("ok"))
+        .verifyComplete();
+  }
+
+  @Test
+  void otherKeysDoNotWaitForABusyKey() {
+    Mono<String> slow =
+        sequencer.run("account:1", () -> Mono.just("slow").delayElement(Duration.ofSeconds(2)));
+    slow.subscribe();
+
+    StepVerifier.create(sequencer.run("account:2", () -> Mono.just("fast")))
+        .expectNext("fast")
+        .verifyComplete();
+  }
+
+  @Test
+  void hungTaskTimesOutAndReleasesItsKey() {
+    KeyedSequencer bounded =
+        new KeyedSequencer("bounded", Duration.ofMillis(100), new SimpleMeterRegistry());
+
+    StepVerifier.create(bounded.run("account:1", Mono::never))
+        .expectErrorSatisfies(
+            e ->
+                assertThat(((OperationNoCompletedException) e).getError())
+                    .isEqualTo(ErrorCode.SERVICE_UNAVAILABLE))
+        .verify(Duration.ofSeconds(5));
+    StepVerifier.create(bounded.run("account:1", () -> Mono.just("next")))
+        .expectNext("next")
+        .verifyComplete();
+  }
+}